@@ -22,6 +22,8 @@ package com.hedera.balanceFileLogger;
 
 import java.io.File;
 import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -32,6 +34,8 @@ import com.hedera.configLoader.ConfigLoader.OPERATION_TYPE;
 import com.hedera.databaseUtilities.DatabaseUtilities;
 import com.hedera.fileWatcher.FileWatcher;
 import com.hedera.mirror.dataset.AccountBalancesFileLoader;
+import com.hedera.mirror.dataset.AccountBalancesIndex;
+import com.hedera.mirror.dataset.AccountBalancesIndexServer;
 import com.hedera.utilities.Utility;
 
 import java.time.Instant;
@@ -86,10 +90,34 @@ public class BalanceFileLogger extends FileWatcher {
 	}
 
 	public static void main(String[] args) {
-		FileWatcher fileWatcher = new BalanceFileLogger(balanceFilePath);
+		BalanceFileLogger fileWatcher = new BalanceFileLogger(balanceFilePath);
+		fileWatcher.serveIndex();
 		fileWatcher.watch();
 	}
 
+	/**
+	 * Serve the latest account balances from memory if accountBalancesIndexPort is set, starting with the latest set
+	 * in the database until the next file is loaded. The server runs until the process exits.
+	 */
+	private void serveIndex() {
+		int port = ConfigLoader.getAccountBalancesIndexPort();
+		if (port == 0) {
+			return;
+		}
+		try (Connection conn = DatabaseUtilities.getConnection()) {
+			if (conn != null) {
+				AccountBalancesIndex.load(conn);
+			}
+		} catch (SQLException e) {
+			log.error("Failed to load the latest account balances into the index", e);
+		}
+		try {
+			new AccountBalancesIndexServer(port);
+		} catch (IOException e) {
+			log.error("Failed to serve the latest account balances on port {}", port, e);
+		}
+	}
+
 	@Override
 	public void onCreate() {
 		processLastBalanceFile();
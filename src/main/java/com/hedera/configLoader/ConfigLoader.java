@@ -40,6 +40,11 @@ public class ConfigLoader {
 		,GCP
 	}
 
+	public static enum RECORD_WRITER {
+		BATCH
+		,COPY
+	}
+
 	// cloud provider, must be either S3 or GCP
 	private static CLOUD_PROVIDER cloudProvider = CLOUD_PROVIDER.S3;
 
@@ -107,6 +112,105 @@ public class ConfigLoader {
     // max download items for testing
     private static int maxDownloadItems = 0;
 
+	// number of nodes whose signature files are downloaded concurrently, 1 downloads one node at a time
+	private static final int DEFAULT_SIG_DOWNLOAD_THREADS = 1;
+	private static int sigDownloadThreads = DEFAULT_SIG_DOWNLOAD_THREADS;
+
+	// seconds after which a node's signature download is abandoned for the current cycle, 0 waits indefinitely
+	private static final int DEFAULT_SIG_DOWNLOAD_NODE_TIMEOUT = 0;
+	private static int sigDownloadNodeTimeout = DEFAULT_SIG_DOWNLOAD_NODE_TIMEOUT;
+
+	// number of verified record files that may wait for the parser before downloading pauses
+	private static final int DEFAULT_RECORD_PIPELINE_QUEUE_SIZE = 100;
+	private static int recordPipelineQueueSize = DEFAULT_RECORD_PIPELINE_QUEUE_SIZE;
+
+	// number of transaction ids reserved from s_transactions_seq per database round trip
+	private static final int DEFAULT_TRANSACTION_ID_BLOCK_SIZE = 1000;
+	private static int transactionIdBlockSize = DEFAULT_TRANSACTION_ID_BLOCK_SIZE;
+
+	// maximum number of entity ids cached by the record file logger
+	private static final int DEFAULT_ENTITY_CACHE_SIZE = 100_000;
+	private static int entityCacheSize = DEFAULT_ENTITY_CACHE_SIZE;
+
+	// whether the entity cache is filled from t_entities when the record file logger starts
+	private static final boolean DEFAULT_ENTITY_CACHE_WARM_LOAD = false;
+	private static boolean entityCacheWarmLoad = DEFAULT_ENTITY_CACHE_WARM_LOAD;
+
+	// how the record file logger writes transactions, must be either BATCH (batched inserts) or COPY
+	private static final RECORD_WRITER DEFAULT_RECORD_WRITER = RECORD_WRITER.BATCH;
+	private static RECORD_WRITER recordWriter = DEFAULT_RECORD_WRITER;
+
+	// bytes of COPY data buffered by the COPY record writer before they are sent to the database
+	private static final int DEFAULT_RECORD_COPY_BUFFER_SIZE = 4 * 1024 * 1024;
+	private static int recordCopyBufferSize = DEFAULT_RECORD_COPY_BUFFER_SIZE;
+
+	// number of threads verifying the signature files of a file period, defaults to the number of processors
+	private static final int DEFAULT_SIG_VERIFY_THREADS = Runtime.getRuntime().availableProcessors();
+	private static int sigVerifyThreads = DEFAULT_SIG_VERIFY_THREADS;
+
+	// maximum number of signature verification outcomes remembered across download rounds
+	private static final int DEFAULT_SIG_VERIFY_CACHE_SIZE = 10_000;
+	private static int sigVerifyCacheSize = DEFAULT_SIG_VERIFY_CACHE_SIZE;
+
+	// number of threads decoding the transactions and records of a record file, 0 decodes them on the parsing thread
+	private static final int DEFAULT_RECORD_DECODE_THREADS = 0;
+	private static int recordDecodeThreads = DEFAULT_RECORD_DECODE_THREADS;
+
+	// seconds after which the proxy closes an unused channel to a node
+	private static final int DEFAULT_PROXY_CHANNEL_IDLE_TIMEOUT = 300;
+	private static int proxyChannelIdleTimeout = DEFAULT_PROXY_CHANNEL_IDLE_TIMEOUT;
+
+	// maximum number of query responses cached by the proxy, 0 disables the cache
+	private static final int DEFAULT_PROXY_QUERY_CACHE_SIZE = 10_000;
+	private static int proxyQueryCacheSize = DEFAULT_PROXY_QUERY_CACHE_SIZE;
+
+	// seconds the proxy caches responses to cost answer queries
+	private static final int DEFAULT_PROXY_COST_ANSWER_CACHE_TTL = 10;
+	private static int proxyCostAnswerCacheTtl = DEFAULT_PROXY_COST_ANSWER_CACHE_TTL;
+
+	// seconds the proxy caches receipts of transactions that reached consensus
+	private static final int DEFAULT_PROXY_RECEIPT_CACHE_TTL = 180;
+	private static int proxyReceiptCacheTtl = DEFAULT_PROXY_RECEIPT_CACHE_TTL;
+
+	// seconds after which the proxy gives up on a node's answer and counts the call as failed
+	private static final int DEFAULT_PROXY_CALL_TIMEOUT = 30;
+	private static int proxyCallTimeout = DEFAULT_PROXY_CALL_TIMEOUT;
+
+	// whether the proxy sends queries without payment to a second node when the first is slower than usual
+	private static boolean proxyHedgeQueries = false;
+
+	// number of events inserted per batch, also the number of event ids reserved from s_events_id_seq per round trip
+	private static final int DEFAULT_EVENT_BATCH_SIZE = 1000;
+	private static int eventBatchSize = DEFAULT_EVENT_BATCH_SIZE;
+
+	// number of generations below the highest one whose event ids are kept in memory to resolve parent hashes
+	private static final int DEFAULT_EVENT_CACHE_GENERATIONS = 1000;
+	private static int eventCacheGenerations = DEFAULT_EVENT_CACHE_GENERATIONS;
+
+	// number of connections copying the rows of an account balances file, 1 copies them on the file's connection
+	private static final int DEFAULT_ACCOUNT_BALANCES_LOAD_THREADS = 1;
+	private static int accountBalancesLoadThreads = DEFAULT_ACCOUNT_BALANCES_LOAD_THREADS;
+
+	// every how many account balance sets all balances are stored, the sets in between only store changed balances
+	private static final int DEFAULT_ACCOUNT_BALANCES_FULL_SNAPSHOT_INTERVAL = 1;
+	private static int accountBalancesFullSnapshotInterval = DEFAULT_ACCOUNT_BALANCES_FULL_SNAPSHOT_INTERVAL;
+
+	// loopback port serving the latest balance of an account from memory, 0 to not serve them
+	private static final int DEFAULT_ACCOUNT_BALANCES_INDEX_PORT = 0;
+	private static int accountBalancesIndexPort = DEFAULT_ACCOUNT_BALANCES_INDEX_PORT;
+
+	// signature files of a node downloaded concurrently while its listing is read, 1 downloads them one at a time
+	private static final int DEFAULT_DOWNLOAD_MAX_IN_FLIGHT_PER_NODE = 1;
+	private static int downloadMaxInFlightPerNode = DEFAULT_DOWNLOAD_MAX_IN_FLIGHT_PER_NODE;
+
+	// signature files downloaded concurrently across all nodes
+	private static final int DEFAULT_DOWNLOAD_MAX_IN_FLIGHT = 64;
+	private static int downloadMaxInFlight = DEFAULT_DOWNLOAD_MAX_IN_FLIGHT;
+
+	// number of threads reading and hashing files for HashChainValidator, defaults to the number of processors
+	private static final int DEFAULT_HASH_CHAIN_VALIDATION_THREADS = Runtime.getRuntime().availableProcessors();
+	private static int hashChainValidationThreads = DEFAULT_HASH_CHAIN_VALIDATION_THREADS;
+
     private static Dotenv dotEnv = Dotenv.configure().ignoreIfMissing().load();
 
 	private static boolean bBalanceVerifySigs = false;
@@ -231,6 +335,154 @@ public class ConfigLoader {
 			if (configJsonObject.has("maxDownloadItems")) {
 				maxDownloadItems = configJsonObject.get("maxDownloadItems").getAsInt();
 			}
+			if (configJsonObject.has("sigDownloadThreads")) {
+				var i = configJsonObject.get("sigDownloadThreads").getAsInt();
+				if (i > 0) {
+					sigDownloadThreads = i;
+				}
+			}
+			if (configJsonObject.has("recordPipelineQueueSize")) {
+				var i = configJsonObject.get("recordPipelineQueueSize").getAsInt();
+				if (i > 0) {
+					recordPipelineQueueSize = i;
+				}
+			}
+			if (configJsonObject.has("transactionIdBlockSize")) {
+				var i = configJsonObject.get("transactionIdBlockSize").getAsInt();
+				if (i > 0) {
+					transactionIdBlockSize = i;
+				}
+			}
+			if (configJsonObject.has("entityCacheSize")) {
+				var i = configJsonObject.get("entityCacheSize").getAsInt();
+				if (i > 0) {
+					entityCacheSize = i;
+				}
+			}
+			if (configJsonObject.has("entityCacheWarmLoad")) {
+				entityCacheWarmLoad = configJsonObject.get("entityCacheWarmLoad").getAsBoolean();
+			}
+			if (configJsonObject.has("recordWriter")) {
+				String writer = configJsonObject.get("recordWriter").getAsString();
+				if (writer.contentEquals("BATCH")) {
+					recordWriter = RECORD_WRITER.BATCH;
+				} else if (writer.contentEquals("COPY")) {
+					recordWriter = RECORD_WRITER.COPY;
+				} else {
+					log.error("Record writer {} not recognized, must be one of BATCH or COPY", writer);
+				}
+			}
+			if (configJsonObject.has("recordCopyBufferSize")) {
+				var i = configJsonObject.get("recordCopyBufferSize").getAsInt();
+				if (i > 0) {
+					recordCopyBufferSize = i;
+				}
+			}
+			if (configJsonObject.has("sigVerifyThreads")) {
+				var i = configJsonObject.get("sigVerifyThreads").getAsInt();
+				if (i > 0) {
+					sigVerifyThreads = i;
+				}
+			}
+			if (configJsonObject.has("sigVerifyCacheSize")) {
+				var i = configJsonObject.get("sigVerifyCacheSize").getAsInt();
+				if (i > 0) {
+					sigVerifyCacheSize = i;
+				}
+			}
+			if (configJsonObject.has("recordDecodeThreads")) {
+				var i = configJsonObject.get("recordDecodeThreads").getAsInt();
+				if (i >= 0) {
+					recordDecodeThreads = i;
+				}
+			}
+			if (configJsonObject.has("proxyChannelIdleTimeout")) {
+				var i = configJsonObject.get("proxyChannelIdleTimeout").getAsInt();
+				if (i > 0) {
+					proxyChannelIdleTimeout = i;
+				}
+			}
+			if (configJsonObject.has("proxyQueryCacheSize")) {
+				var i = configJsonObject.get("proxyQueryCacheSize").getAsInt();
+				if (i >= 0) {
+					proxyQueryCacheSize = i;
+				}
+			}
+			if (configJsonObject.has("proxyCostAnswerCacheTtl")) {
+				var i = configJsonObject.get("proxyCostAnswerCacheTtl").getAsInt();
+				if (i > 0) {
+					proxyCostAnswerCacheTtl = i;
+				}
+			}
+			if (configJsonObject.has("proxyReceiptCacheTtl")) {
+				var i = configJsonObject.get("proxyReceiptCacheTtl").getAsInt();
+				if (i > 0) {
+					proxyReceiptCacheTtl = i;
+				}
+			}
+			if (configJsonObject.has("proxyCallTimeout")) {
+				var i = configJsonObject.get("proxyCallTimeout").getAsInt();
+				if (i > 0) {
+					proxyCallTimeout = i;
+				}
+			}
+			if (configJsonObject.has("proxyHedgeQueries")) {
+				proxyHedgeQueries = configJsonObject.get("proxyHedgeQueries").getAsBoolean();
+			}
+			if (configJsonObject.has("eventBatchSize")) {
+				var i = configJsonObject.get("eventBatchSize").getAsInt();
+				if (i > 0) {
+					eventBatchSize = i;
+				}
+			}
+			if (configJsonObject.has("eventCacheGenerations")) {
+				var i = configJsonObject.get("eventCacheGenerations").getAsInt();
+				if (i >= 0) {
+					eventCacheGenerations = i;
+				}
+			}
+			if (configJsonObject.has("accountBalancesLoadThreads")) {
+				var i = configJsonObject.get("accountBalancesLoadThreads").getAsInt();
+				if (i > 0) {
+					accountBalancesLoadThreads = i;
+				}
+			}
+			if (configJsonObject.has("accountBalancesFullSnapshotInterval")) {
+				var i = configJsonObject.get("accountBalancesFullSnapshotInterval").getAsInt();
+				if (i > 0) {
+					accountBalancesFullSnapshotInterval = i;
+				}
+			}
+			if (configJsonObject.has("accountBalancesIndexPort")) {
+				var i = configJsonObject.get("accountBalancesIndexPort").getAsInt();
+				if (i >= 0) {
+					accountBalancesIndexPort = i;
+				}
+			}
+			if (configJsonObject.has("downloadMaxInFlightPerNode")) {
+				var i = configJsonObject.get("downloadMaxInFlightPerNode").getAsInt();
+				if (i > 0) {
+					downloadMaxInFlightPerNode = i;
+				}
+			}
+			if (configJsonObject.has("downloadMaxInFlight")) {
+				var i = configJsonObject.get("downloadMaxInFlight").getAsInt();
+				if (i > 0) {
+					downloadMaxInFlight = i;
+				}
+			}
+			if (configJsonObject.has("hashChainValidationThreads")) {
+				var i = configJsonObject.get("hashChainValidationThreads").getAsInt();
+				if (i > 0) {
+					hashChainValidationThreads = i;
+				}
+			}
+			if (configJsonObject.has("sigDownloadNodeTimeout")) {
+				var i = configJsonObject.get("sigDownloadNodeTimeout").getAsInt();
+				if (i >= 0) {
+					sigDownloadNodeTimeout = i;
+				}
+			}
 			
 			if (configJsonObject.has("persistClaims")) {
 				persistClaims = configJsonObject.get("persistClaims").getAsBoolean();
@@ -377,6 +629,106 @@ public class ConfigLoader {
 		return maxDownloadItems;
 	}
 
+	public static int getSigDownloadThreads() {
+		return sigDownloadThreads;
+	}
+
+	public static int getSigDownloadNodeTimeout() {
+		return sigDownloadNodeTimeout;
+	}
+
+	public static int getRecordPipelineQueueSize() {
+		return recordPipelineQueueSize;
+	}
+
+	public static int getTransactionIdBlockSize() {
+		return transactionIdBlockSize;
+	}
+
+	public static int getEntityCacheSize() {
+		return entityCacheSize;
+	}
+
+	public static boolean getEntityCacheWarmLoad() {
+		return entityCacheWarmLoad;
+	}
+
+	public static RECORD_WRITER getRecordWriter() {
+		return recordWriter;
+	}
+
+	public static int getRecordCopyBufferSize() {
+		return recordCopyBufferSize;
+	}
+
+	public static int getSigVerifyThreads() {
+		return sigVerifyThreads;
+	}
+
+	public static int getSigVerifyCacheSize() {
+		return sigVerifyCacheSize;
+	}
+
+	public static int getRecordDecodeThreads() {
+		return recordDecodeThreads;
+	}
+
+	public static int getProxyChannelIdleTimeout() {
+		return proxyChannelIdleTimeout;
+	}
+
+	public static int getProxyQueryCacheSize() {
+		return proxyQueryCacheSize;
+	}
+
+	public static int getProxyCostAnswerCacheTtl() {
+		return proxyCostAnswerCacheTtl;
+	}
+
+	public static int getProxyReceiptCacheTtl() {
+		return proxyReceiptCacheTtl;
+	}
+
+	public static int getProxyCallTimeout() {
+		return proxyCallTimeout;
+	}
+
+	public static boolean getProxyHedgeQueries() {
+		return proxyHedgeQueries;
+	}
+
+	public static int getEventBatchSize() {
+		return eventBatchSize;
+	}
+
+	public static int getEventCacheGenerations() {
+		return eventCacheGenerations;
+	}
+
+	public static int getAccountBalancesLoadThreads() {
+		return accountBalancesLoadThreads;
+	}
+
+	public static int getAccountBalancesFullSnapshotInterval() {
+		return accountBalancesFullSnapshotInterval;
+	}
+
+	public static int getAccountBalancesIndexPort() {
+		return accountBalancesIndexPort;
+	}
+
+	public static int getDownloadMaxInFlightPerNode() {
+		return downloadMaxInFlightPerNode;
+	}
+
+	public static int getDownloadMaxInFlight() {
+		return downloadMaxInFlight;
+	}
+
+	public static int getHashChainValidationThreads() {
+		return hashChainValidationThreads;
+	}
+
 	public static boolean getPersistClaims() {
 		return persistClaims;
 	}
@@ -77,6 +77,39 @@ public class ApplicationStatus {
 	    }
 	}
 
+	/**
+	 * Updates two status codes in one transaction, for values that must never be seen out of step
+	 */
+	private void updateStatuses(ApplicationStatusCode code, String statusValue, ApplicationStatusCode otherCode, String otherStatusValue) throws Exception {
+
+	    try (Connection connect = DatabaseUtilities.getConnection()) {
+	    	log.trace("Updating application status for : {}, {}", code.name(), otherCode.name());
+
+	    	connect.setAutoCommit(false);
+			try (PreparedStatement updateValue = connect.prepareStatement(updateSQL)) {
+				updateValue.setString(1, statusValue);
+				updateValue.setString(2, code.name());
+				updateValue.execute();
+
+				updateValue.setString(1, otherStatusValue);
+				updateValue.setString(2, otherCode.name());
+				updateValue.execute();
+
+				connect.commit();
+			} catch (Exception e) {
+				connect.rollback();
+				throw e;
+			}
+
+			applicationStatusMap.put(code, statusValue);
+			applicationStatusMap.put(otherCode, otherStatusValue);
+
+	    } catch (Exception e) {
+			log.error("Error updating application status for : {}, {}, {}", code.name(), otherCode.name(), e);
+			throw e;
+	    }
+	}
+
 	public String getStatus(ApplicationStatusCode code) throws Exception {
 		String value = "";
 		
@@ -134,6 +167,15 @@ public class ApplicationStatus {
 		updateStatus(ApplicationStatusCode.LAST_VALID_DOWNLOADED_RECORD_FILE_HASH, hash);
 	}
 
+	/**
+	 * Updates the last valid downloaded record file and its hash together, so that a restart always resumes the hash
+	 * chain from a matching name and hash
+	 */
+	public void updateLastValidDownloadedRecordFile(String name, String hash) throws Exception {
+		updateStatuses(ApplicationStatusCode.LAST_VALID_DOWNLOADED_RECORD_FILE, name,
+				ApplicationStatusCode.LAST_VALID_DOWNLOADED_RECORD_FILE_HASH, hash);
+	}
+
 	public String getLastValidDownloadedEventFileName() throws Exception {
 		return getStatus(ApplicationStatusCode.LAST_VALID_DOWNLOADED_EVENT_FILE);
 	}
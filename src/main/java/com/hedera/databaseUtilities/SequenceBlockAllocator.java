@@ -0,0 +1,98 @@
+package com.hedera.databaseUtilities;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import lombok.extern.log4j.Log4j2;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Hands out values of a database sequence from blocks reserved with a single query, instead of one nextval() round
+ * trip per row.
+ *
+ * Values reserved but never used, for example because the transaction that used them was rolled back or the process
+ * stopped, are lost and leave gaps in the sequence. Columns filled from an allocator must only rely on values being
+ * unique, not contiguous.
+ */
+@Log4j2
+public class SequenceBlockAllocator {
+
+	private final String sequenceName;
+	private final String sql;
+	private final int blockSize;
+	private final long[] block;
+	private int next = 0;
+	private int size = 0;
+
+	/**
+	 * @param sequenceName name of the sequence, not user supplied as it is embedded in the query
+	 * @param blockSize number of values reserved per round trip
+	 */
+	public SequenceBlockAllocator(String sequenceName, int blockSize) {
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+		}
+		this.sequenceName = sequenceName;
+		this.sql = "SELECT nextval('" + sequenceName + "') FROM generate_series(1, ?)";
+		this.blockSize = blockSize;
+		this.block = new long[blockSize];
+	}
+
+	/**
+	 * @param connect connection used to reserve a new block when the current one is exhausted
+	 * @return the next value of the sequence
+	 * @throws SQLException
+	 */
+	public synchronized long next(Connection connect) throws SQLException {
+		if (next == size) {
+			reserve(connect);
+		}
+		return block[next++];
+	}
+
+	/**
+	 * @return the number of reserved values not handed out yet
+	 */
+	public synchronized int remaining() {
+		return size - next;
+	}
+
+	private void reserve(Connection connect) throws SQLException {
+		int count = 0;
+		try (PreparedStatement statement = connect.prepareStatement(sql)) {
+			statement.setInt(1, blockSize);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					block[count++] = resultSet.getLong(1);
+				}
+			}
+		}
+		if (count == 0) {
+			throw new SQLException("No values returned by sequence " + sequenceName);
+		}
+		log.trace("Reserved {} values from {} starting at {}", count, sequenceName, block[0]);
+		next = 0;
+		size = count;
+	}
+}
@@ -124,9 +124,9 @@ public class AccountBalancesDownloader extends Downloader {
 					break;
 				}
 
-				Pair<Boolean, File> fileResult = downloadFile(DownloadType.BALANCE, validSigFile, tmpDir);
-				File file = fileResult.getRight();
-				if (file != null && Utility.hashMatch(validSigFile, file)) {
+				Pair<File, byte[]> fileResult = downloadFile(DownloadType.BALANCE, validSigFile, tmpDir);
+				File file = fileResult == null ? null : fileResult.getLeft();
+				if (file != null && Utility.hashMatch(validSigFile, fileResult.getRight())) {
 
 					// move the file to the valid directory
 					File fTo = new File(validDir + file.getName());
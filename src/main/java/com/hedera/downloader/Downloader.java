@@ -29,12 +29,14 @@ import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.model.ListObjectsRequest;
 import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.amazonaws.services.s3.transfer.Download;
 import com.amazonaws.services.s3.transfer.TransferManager;
 import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.hedera.configLoader.ConfigLoader;
 import com.hedera.configLoader.ConfigLoader.CLOUD_PROVIDER;
 import com.hedera.configLoader.ConfigLoader.OPERATION_TYPE;
@@ -51,14 +53,30 @@ import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 public abstract class Downloader {
 	protected final Logger log = LogManager.getLogger(getClass());
@@ -83,6 +101,18 @@ public abstract class Downloader {
 
 	String saveFilePath = "";
 
+	// pool used to download signature files of several nodes concurrently, null when downloading serially
+	private final ExecutorService sigDownloadExecutor;
+
+	private final Map<String, Integer> nodeErrorCounts = new HashMap<>();
+
+	// SHA-384 hashes of the record and event files moved to the valid directory by file name, computed while they were
+	// downloaded, until the files are verified against the previous file hash
+	private static final Map<String, byte[]> validFileHashes = new ConcurrentHashMap<>();
+
+	// downloads started by saveToLocalAsync that are in flight, across all nodes and downloaders
+	private static final Semaphore downloadPermits = new Semaphore(ConfigLoader.getDownloadMaxInFlight());
+
 	public enum DownloadType {RCD, BALANCE, EVENT};
 
 	public Downloader() throws Exception {
@@ -96,6 +126,14 @@ public abstract class Downloader {
 
 		nodeAccountIds = loadNodeAccountIDs();
 
+		int sigDownloadThreads = ConfigLoader.getSigDownloadThreads();
+		if (sigDownloadThreads > 1) {
+			sigDownloadExecutor = Executors.newFixedThreadPool(sigDownloadThreads,
+					new ThreadFactoryBuilder().setNameFormat("sig-download-%d").setDaemon(true).build());
+		} else {
+			sigDownloadExecutor = null;
+		}
+
 		s3KeyComparator = new Comparator<String>() {
 			@Override
 			public int compare(String o1, String o2) {
@@ -324,19 +362,126 @@ public abstract class Downloader {
 
 		// refresh node account ids
 		nodeAccountIds = loadNodeAccountIDs();
+		Stopwatch stopwatch = Stopwatch.createStarted();
+
+		List<Callable<NodeSigFiles>> tasks = new ArrayList<>();
 		for (String nodeAccountId : nodeAccountIds) {
-			if (Utility.checkStopFile()) {
-				log.info("Stop file found, stopping");
-				break;
-			}
-			log.debug("Downloading {} signature files for node {} created after file {}", type, nodeAccountId, lastValidFileName);
-			// Get a list of objects in the bucket, 100 at a time
 			String prefix = s3Prefix + nodeAccountId + "/";
-			int count = 0;
-			int downloadCount = 0;
-			int downloadMax = ConfigLoader.getMaxDownloadItems();
-			Stopwatch stopwatch = Stopwatch.createStarted();
+			String marker = lastValidFileName;
+			tasks.add(() -> downloadSigFilesForNode(type, nodeAccountId, prefix, marker));
+		}
 
+		List<NodeSigFiles> results = new ArrayList<>();
+		if (sigDownloadExecutor == null) {
+			for (Callable<NodeSigFiles> task : tasks) {
+				if (Utility.checkStopFile()) {
+					log.info("Stop file found, stopping");
+					break;
+				}
+				results.add(task.call());
+			}
+		} else {
+			int timeout = ConfigLoader.getSigDownloadNodeTimeout();
+			// when each node's task started running, 0 while it is queued behind other nodes
+			AtomicLongArray startTimes = new AtomicLongArray(tasks.size());
+			List<Future<NodeSigFiles>> futures = new ArrayList<>(tasks.size());
+			for (int i = 0; i < tasks.size(); i++) {
+				int node = i;
+				Callable<NodeSigFiles> task = tasks.get(i);
+				futures.add(sigDownloadExecutor.submit(() -> {
+					startTimes.set(node, System.nanoTime());
+					return task.call();
+				}));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				Future<NodeSigFiles> future = futures.get(i);
+				String nodeAccountId = nodeAccountIds.get(i);
+				try {
+					results.add(timeout > 0 ? getWithNodeTimeout(future, startTimes, i, timeout) : future.get());
+				} catch (TimeoutException e) {
+					future.cancel(true);
+					log.warn("Timed out downloading {} signature files for node {} after {}s, skipping it this cycle", type, nodeAccountId, timeout);
+					results.add(new NodeSigFiles(nodeAccountId, Collections.emptyList(), 1));
+				} catch (ExecutionException e) {
+					log.error("Error downloading {} signature files for node {}", type, nodeAccountId, e.getCause());
+					results.add(new NodeSigFiles(nodeAccountId, Collections.emptyList(), 1));
+				}
+			}
+		}
+
+		// merge in node order so the lists in sigFilesMap are the same regardless of completion order
+		int count = 0;
+		int errors = 0;
+		for (NodeSigFiles result : results) {
+			for (File sigFile : result.sigFiles) {
+				sigFilesMap.computeIfAbsent(sigFile.getName(), k -> new ArrayList<>()).add(sigFile);
+			}
+			count += result.sigFiles.size();
+			if (result.errors > 0) {
+				errors += result.errors;
+				nodeErrorCounts.merge(result.nodeAccountId, result.errors, Integer::sum);
+			}
+		}
+
+		if (errors > 0) {
+			log.warn("Downloaded {} {} signatures from {} nodes in {} with {} errors, total errors by node: {}",
+					count, type, results.size(), stopwatch, errors, nodeErrorCounts);
+		} else {
+			log.info("Downloaded {} {} signatures from {} nodes in {}", count, type, results.size(), stopwatch);
+		}
+		return sigFilesMap;
+	}
+
+	/**
+	 * Waits for a node's signature downloads until timeout seconds after they started running, so that a node queued
+	 * behind slower nodes still gets its full time
+	 * @param future
+	 * @param startTimes
+	 * @param node index of the node in startTimes
+	 * @param timeout in seconds
+	 * @return the node's signature files
+	 * @throws TimeoutException when the node ran for longer than timeout
+	 */
+	private static <T> T getWithNodeTimeout(Future<T> future, AtomicLongArray startTimes, int node, int timeout)
+			throws InterruptedException, ExecutionException, TimeoutException {
+		long timeoutNanos = TimeUnit.SECONDS.toNanos(timeout);
+		while (true) {
+			long startTime = startTimes.get(node);
+			if (startTime == 0) {
+				// still queued, its time hasn't started
+				try {
+					return future.get(Math.min(timeoutNanos, TimeUnit.SECONDS.toNanos(1)), TimeUnit.NANOSECONDS);
+				} catch (TimeoutException e) {
+					continue;
+				}
+			}
+			long remaining = startTime + timeoutNanos - System.nanoTime();
+			return future.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Lists and downloads the signature files of a single node, paginating independently of the other nodes.
+	 * Safe to run concurrently for different nodes.
+	 * @param type
+	 * @param nodeAccountId
+	 * @param prefix the S3 prefix of the node's folder, ending with "/"
+	 * @param lastValidFileName
+	 * @return the signature files downloaded for the node and the number of failures
+	 */
+	private NodeSigFiles downloadSigFilesForNode(DownloadType type, String nodeAccountId, String prefix, String lastValidFileName) {
+		if (Utility.checkStopFile()) {
+			log.info("Stop file found, stopping");
+			return new NodeSigFiles(nodeAccountId, new ArrayList<>(), 0);
+		}
+		log.debug("Downloading {} signature files for node {} created after file {}", type, nodeAccountId, lastValidFileName);
+		int downloadCount = 0;
+		int downloadMax = ConfigLoader.getMaxDownloadItems();
+		Stopwatch stopwatch = Stopwatch.createStarted();
+
+		NodeDownloads downloads = new NodeDownloads();
+		try {
+			// Get a list of objects in the bucket, 100 at a time
 			ListObjectsRequest listRequest = new ListObjectsRequest()
 					.withBucketName(bucketName)
 					.withPrefix(prefix)
@@ -344,57 +489,116 @@ public abstract class Downloader {
 					.withMarker(prefix + lastValidFileName)
 					.withMaxKeys(100);
 			ObjectListing objects = s3Client.listObjects(listRequest);
-			try {
-				while(downloadCount <= downloadMax) {
+			while(downloadCount <= downloadMax) {
+				if (Utility.checkStopFile()) {
+					log.info("Stop file found, stopping");
+					break;
+				}
+				List<S3ObjectSummary> summaries = objects.getObjectSummaries();
+				for(S3ObjectSummary summary : summaries) {
 					if (Utility.checkStopFile()) {
 						log.info("Stop file found, stopping");
 						break;
+					} else if (downloadCount >= downloadMax) {
+						break;
 					}
-					List<S3ObjectSummary> summaries = objects.getObjectSummaries();
-					for(S3ObjectSummary summary : summaries) {
-						if (Utility.checkStopFile()) {
-							log.info("Stop file found, stopping");
-							break;
-						} else if (downloadCount >= downloadMax) {
-							break;
-						}
 
-						String s3ObjectKey = summary.getKey();
+					String s3ObjectKey = summary.getKey();
 
-						if (((isNeededSigFile(s3ObjectKey, type) && s3KeyComparator.compare(s3ObjectKey, prefix + lastValidFileName) > 0))
-								|| (lastValidFileName.isEmpty())) {
-							String saveTarget = saveFilePath + s3ObjectKey;
-							Pair<Boolean, File> result = saveToLocal(bucketName, s3ObjectKey, saveTarget);
-							if (result.getLeft()) count++;
-							if (downloadMax != 0) downloadCount++;
-
-							File sigFile = result.getRight();
-							if (sigFile != null) {
-								String fileName = sigFile.getName();
-								List<File> files = sigFilesMap.getOrDefault(fileName, new ArrayList<>());
-								files.add(sigFile);
-								sigFilesMap.put(fileName, files);
-							}
-						}
-					}
-					if (Utility.checkStopFile()) {
-						log.info("Stop file found, stopping");
-						break;
-					} else if (downloadCount >= downloadMax) {
-						break;
-					} else if (objects.isTruncated()) {
-						objects = s3Client.listNextBatchOfObjects(objects);
-					} else {
-						break;
+					if (((isNeededSigFile(s3ObjectKey, type) && s3KeyComparator.compare(s3ObjectKey, prefix + lastValidFileName) > 0))
+							|| (lastValidFileName.isEmpty())) {
+						String saveTarget = saveFilePath + s3ObjectKey;
+						downloads.start(s3ObjectKey, saveTarget);
+						if (downloadMax != 0) downloadCount++;
 					}
 				}
-				log.info("Downloaded {} {} signatures for node {} in {}", count, type, nodeAccountId, stopwatch);
-			} catch (Exception e) {
-				log.error("Error downloading {} signature files for node {} after {}", type, nodeAccountId, stopwatch, e);
+				if (Utility.checkStopFile()) {
+					log.info("Stop file found, stopping");
+					break;
+				} else if (downloadCount >= downloadMax) {
+					break;
+				} else if (objects.isTruncated()) {
+					objects = s3Client.listNextBatchOfObjects(objects);
+				} else {
+					break;
+				}
 			}
+			downloads.finish();
+			log.info("Downloaded {} {} signatures for node {} in {}", downloads.downloaded, type, nodeAccountId, stopwatch);
+		} catch (Exception e) {
+			downloads.errors++;
+			log.error("Error downloading {} signature files for node {} after {}", type, nodeAccountId, stopwatch, e);
+		} finally {
+			// the downloads already started still complete or fail on their own, collecting them releases their permits
+			downloads.finish();
 		}
+		return new NodeSigFiles(nodeAccountId, downloads.files, downloads.errors);
+	}
 
-		return sigFilesMap;
+	/**
+	 * The downloads of a node's listing loop, started with saveToLocalAsync. Up to downloadMaxInFlightPerNode of them
+	 * are in flight, and their results are collected in the order they were started, which is the listing's key order.
+	 */
+	private class NodeDownloads {
+		private final ArrayDeque<PendingDownload> pending = new ArrayDeque<>();
+		private final int maxInFlight = ConfigLoader.getDownloadMaxInFlightPerNode();
+		// downloaded files in key order
+		private final List<File> files = new ArrayList<>();
+		private int downloaded;
+		private int errors;
+
+		private void start(String s3ObjectKey, String localFilepath) throws InterruptedException {
+			while (pending.size() >= maxInFlight) {
+				collectNext();
+			}
+			// only wait for another node's downloads to free a permit once this node's are collected, as they hold
+			// permits too
+			while (!pending.isEmpty() && !downloadPermits.tryAcquire()) {
+				collectNext();
+			}
+			if (pending.isEmpty()) {
+				pending.add(saveToLocalAsync(bucketName, s3ObjectKey, localFilepath));
+			} else {
+				pending.add(startDownload(bucketName, s3ObjectKey, localFilepath, true));
+			}
+		}
+
+		private void collectNext() {
+			Pair<Boolean, File> result = pending.remove().get();
+			if (result.getLeft()) {
+				downloaded++;
+			}
+			if (result.getRight() != null) {
+				files.add(result.getRight());
+			} else {
+				errors++;
+			}
+		}
+
+		private void finish() {
+			while (!pending.isEmpty()) {
+				collectNext();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of signature download errors per node since startup
+	 */
+	public Map<String, Integer> getNodeErrorCounts() {
+		return Collections.unmodifiableMap(nodeErrorCounts);
+	}
+
+	private static class NodeSigFiles {
+		private final String nodeAccountId;
+		private final List<File> sigFiles;
+		private final int errors;
+
+		private NodeSigFiles(String nodeAccountId, List<File> sigFiles, int errors) {
+			this.nodeAccountId = nodeAccountId;
+			this.sigFiles = sigFiles;
+			this.errors = errors;
+		}
 	}
 
 	/**
@@ -408,32 +612,154 @@ public abstract class Downloader {
 	 * @return
 	 */
 	protected Pair<Boolean, File> saveToLocal(String bucket_name, String s3ObjectKey, String localFilepath)  {
+		return startDownload(bucket_name, s3ObjectKey, localFilepath, false).get();
+	}
+
+	/**
+	 * Starts downloading like saveToLocal without waiting for the download to complete, so that the transfer manager
+	 * downloads several objects concurrently. Waits while downloadMaxInFlight downloads started this way are in flight.
+	 * The result must be collected with PendingDownload.get(), which releases the download's permit.
+	 * @param bucket_name
+	 * @param s3ObjectKey
+	 * @param localFilepath
+	 * @return the download in flight
+	 */
+	protected PendingDownload saveToLocalAsync(String bucket_name, String s3ObjectKey, String localFilepath) throws InterruptedException {
+		downloadPermits.acquire();
+		return startDownload(bucket_name, s3ObjectKey, localFilepath, true);
+	}
+
+	private PendingDownload startDownload(String bucket_name, String s3ObjectKey, String localFilepath, boolean permit) {
+		File f = localFile(localFilepath);
+		Stopwatch stopwatch = Stopwatch.createStarted();
+
+		Download download = null;
+		try {
+			download = xfer_mgr.download(bucket_name, s3ObjectKey, f);
+		} catch (Exception ex) {
+			log.error("Failed downloading {} after {}", s3ObjectKey, stopwatch, ex);
+		}
+		return new PendingDownload(s3ObjectKey, f, download, stopwatch, permit);
+	}
+
+	private static File localFile(String localFilepath) {
 		// ensure filePaths have OS specific separator
 		localFilepath = localFilepath.replace("/", "~");
 		localFilepath = localFilepath.replace("\\", "~");
 		localFilepath = localFilepath.replace("~", File.separator);
 
-		File f = new File(localFilepath).getAbsoluteFile();
+		return new File(localFilepath).getAbsoluteFile();
+	}
+
+	/**
+	 * Downloads an object like saveToLocal, streaming it through a SHA-384 digest as it is written to the file, so that
+	 * the file doesn't need to be read again to verify its hash.
+	 * @param bucket_name
+	 * @param s3ObjectKey
+	 * @param localFilepath
+	 * @return the file and its hash, or null if the download failed
+	 */
+	protected Pair<File, byte[]> saveToLocalWithHash(String bucket_name, String s3ObjectKey, String localFilepath) {
+		File f = localFile(localFilepath);
 		Stopwatch stopwatch = Stopwatch.createStarted();
 
+		MessageDigest md;
 		try {
-			Download download = xfer_mgr.download(bucket_name, s3ObjectKey, f);
-			download.waitForCompletion();
-			if (download.isDone()) {
-				log.debug("Finished downloading {} in {}", s3ObjectKey, stopwatch);
-				return Pair.of(true, f);
-			} else {
-				log.error("Failed downloading {} after {}", s3ObjectKey, stopwatch);
-				return Pair.of(false, null);
-			}
+			md = MessageDigest.getInstance("SHA-384");
+		} catch (NoSuchAlgorithmException ex) {
+			log.error("SHA-384 is not available", ex);
+			return null;
+		}
+		try (S3Object object = s3Client.getObject(bucket_name, s3ObjectKey);
+			 InputStream in = new DigestInputStream(object.getObjectContent(), md)) {
+			Files.createDirectories(f.toPath().getParent());
+			Files.copy(in, f.toPath(), REPLACE_EXISTING);
+			log.debug("Finished downloading {} in {}", s3ObjectKey, stopwatch);
+			return Pair.of(f, md.digest());
 		} catch (Exception ex) {
 			log.error("Failed downloading {} after {}", s3ObjectKey, stopwatch, ex);
 		}
-		return Pair.of(false, null);
+		return null;
+	}
+
+	/**
+	 * Keeps the hash of a file moved to the valid directory, for getValidFileHash()
+	 */
+	protected static void putValidFileHash(File file, byte[] fileHash) {
+		validFileHashes.put(file.getName(), fileHash);
+	}
+
+	/**
+	 * @return the hash of a file in the valid directory, computed while it was downloaded by this process, or read from
+	 * the file if it wasn't
+	 */
+	protected static byte[] getValidFileHash(String fileName) {
+		byte[] fileHash = validFileHashes.remove(new File(fileName).getName());
+		return fileHash != null ? fileHash : Utility.getFileHash(fileName);
+	}
+
+	/**
+	 * A download started by saveToLocal or saveToLocalAsync
+	 */
+	protected class PendingDownload {
+		private final String s3ObjectKey;
+		private final File file;
+		// null if the download failed to start
+		private final Download download;
+		private final Stopwatch stopwatch;
+		// whether the download holds one of the downloadPermits until it's collected
+		private boolean permit;
+
+		private PendingDownload(String s3ObjectKey, File file, Download download, Stopwatch stopwatch, boolean permit) {
+			this.s3ObjectKey = s3ObjectKey;
+			this.file = file;
+			this.download = download;
+			this.stopwatch = stopwatch;
+			this.permit = permit;
+		}
+
+		/**
+		 * Waits for the download to complete, an interrupted wait aborts it.
+		 * @return the same as saveToLocal
+		 */
+		public Pair<Boolean, File> get() {
+			try {
+				if (download == null) {
+					return Pair.of(false, null);
+				}
+				download.waitForCompletion();
+				if (download.isDone()) {
+					log.debug("Finished downloading {} in {}", s3ObjectKey, stopwatch);
+					return Pair.of(true, file);
+				} else {
+					log.error("Failed downloading {} after {}", s3ObjectKey, stopwatch);
+					return Pair.of(false, null);
+				}
+			} catch (InterruptedException ex) {
+				log.warn("Interrupted downloading {} after {}", s3ObjectKey, stopwatch);
+				Thread.currentThread().interrupt();
+				try {
+					download.abort();
+				} catch (IOException e) {
+					log.warn("Failed to abort download of {}", s3ObjectKey, e);
+				}
+			} catch (Exception ex) {
+				log.error("Failed downloading {} after {}", s3ObjectKey, stopwatch, ex);
+			} finally {
+				if (permit) {
+					permit = false;
+					downloadPermits.release();
+				}
+			}
+			return Pair.of(false, null);
+		}
 	}
 
 	void shutdownTransferManager() {
 		log.info("Shutting down");
+		if (sigDownloadExecutor != null) {
+			sigDownloadExecutor.shutdownNow();
+		}
 		if (xfer_mgr != null) {
 			xfer_mgr.shutdownNow();
 		}
@@ -500,7 +826,11 @@ public abstract class Downloader {
 		}
 	}
 
-	protected Pair<Boolean, File> downloadFile(DownloadType downloadType, File sigFile, String targetDir) {
+	/**
+	 * Downloads the file of a signature file from the same node, see saveToLocalWithHash
+	 * @return the file and its hash, or null if the download failed
+	 */
+	protected Pair<File, byte[]> downloadFile(DownloadType downloadType, File sigFile, String targetDir) {
 		String fileName = "";
 		String s3Prefix = "";
 
@@ -524,6 +854,6 @@ public abstract class Downloader {
 		String s3ObjectKey = s3Prefix + nodeAccountId + "/" + fileName;
 
 		String localFileName = targetDir + "/" + fileName;
-		return saveToLocal(bucketName, s3ObjectKey, localFileName);
+		return saveToLocalWithHash(bucketName, s3ObjectKey, localFileName);
 	}
 }
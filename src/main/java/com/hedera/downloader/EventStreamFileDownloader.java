@@ -138,7 +138,12 @@ public class EventStreamFileDownloader extends Downloader {
 				if (newLastValidEventFileHash.isEmpty() ||
 						newLastValidEventFileHash.equals(prevFileHash) ||
 						prevFileHash.equals(Hex.encodeHexString(new byte[48]))) {
-					newLastValidEventFileHash = Utility.bytesToHex(Utility.getFileHash(fileName));
+					String fileHash = Utility.bytesToHex(getValidFileHash(fileName));
+					if (fileHash == null) {
+						log.warn("Unable to hash {}", fileName);
+						break;
+					}
+					newLastValidEventFileHash = fileHash;
 					newLastValidEventFileName = new File(fileName).getName();
 				} else {
 					break;
@@ -185,14 +190,15 @@ public class EventStreamFileDownloader extends Downloader {
 			List<File> validSigFiles = verifier.verifySignatureFiles(sigFiles);
 
 			for (File validSigFile : validSigFiles) {
-				Pair<Boolean, File> fileResult = downloadFile(DownloadType.EVENT, validSigFile, tmpDir);
-				File file = fileResult.getRight();
-				if (file != null &&	Utility.hashMatch(validSigFile, file)) {
+				Pair<File, byte[]> fileResult = downloadFile(DownloadType.EVENT, validSigFile, tmpDir);
+				File file = fileResult == null ? null : fileResult.getLeft();
+				if (file != null &&	Utility.hashMatch(validSigFile, fileResult.getRight())) {
 					log.debug("Verified signature file matches at least 2/3 of nodes: {}", fileName);
 					// move the file to the valid directory
 					File fTo = new File(validDir + file.getName());
 
 					if (moveFile(file, fTo)) {
+						putValidFileHash(fTo, fileResult.getRight());
 						log.debug("Verified signature file matches at least 2/3 of nodes: {}", fileName);
 						valid = true;
 						break;
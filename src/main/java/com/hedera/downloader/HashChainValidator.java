@@ -0,0 +1,169 @@
+package com.hedera.downloader;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hedera.configLoader.ConfigLoader;
+import com.hedera.parser.EventStreamFileParser;
+import com.hedera.parser.RecordFileParser;
+import com.hedera.utilities.Utility;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.codec.binary.Hex;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Validates the hash chain of a directory of record or event files, for instance after restoring them from a backup.
+ * Reading a file's previous file hash and hashing the file don't depend on the other files, so the files are read and
+ * hashed on hashChainValidationThreads threads while a single pass checks the links in file name order and reports
+ * the first broken one.
+ * Usage: HashChainValidator directory [hash of the record file before the first one]
+ * [hash of the event file before the first one]
+ * Record files and event files are two chains, each starting from its own hash.
+ */
+@Log4j2
+public class HashChainValidator {
+
+	private static final String ZERO_HASH = Hex.encodeHexString(new byte[48]);
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			log.error("Usage: HashChainValidator directory [hash of the record file before the first one] " +
+					"[hash of the event file before the first one]");
+			return;
+		}
+		String previousRecordFileHash = args.length > 1 ? args[1] : "";
+		String previousEventFileHash = args.length > 2 ? args[2] : "";
+
+		ExecutorService executor = Executors.newFixedThreadPool(ConfigLoader.getHashChainValidationThreads(),
+				new ThreadFactoryBuilder().setNameFormat("hash-chain-%d").setDaemon(true).build());
+		boolean valid = true;
+		try {
+			List<String> recordFiles = listFiles(args[0], Utility::isRecordFile);
+			if (!recordFiles.isEmpty()) {
+				valid = findFirstBrokenLink(recordFiles, previousRecordFileHash, RecordFileParser::readPrevFileHash, executor) == null;
+			}
+			List<String> eventFiles = listFiles(args[0], Utility::isEventStreamFile);
+			if (!eventFiles.isEmpty()) {
+				valid &= findFirstBrokenLink(eventFiles, previousEventFileHash, EventStreamFileParser::readPrevFileHash, executor) == null;
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		if (!valid) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Checks that each file's previous file hash is the hash of the file before it, or the zero hash that restarts
+	 * the chain. The files are read and hashed on the executor and checked in order as their results come in, the
+	 * files after the first broken link are not read.
+	 * @param files paths of the files of one chain, in any order, an empty chain is valid
+	 * @param previousFileHash hash of the file before the first one, empty to accept any previous file hash for it
+	 * @param prevFileHashReader reads the previous file hash of a file, null if it can't be read
+	 * @param executor
+	 * @return the path of the first file that doesn't link to the file before it or can't be read, null if the whole
+	 * chain is valid
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	public static String findFirstBrokenLink(List<String> files, String previousFileHash,
+			Function<String, String> prevFileHashReader, ExecutorService executor)
+			throws InterruptedException, ExecutionException {
+		if (files.isEmpty()) {
+			log.info("No files to validate the hash chain of");
+			return null;
+		}
+		List<String> sortedFiles = files.stream()
+				.sorted(Comparator.comparing((String path) -> Utility.getInstantFromFileName(new File(path).getName()))
+						.thenComparing(path -> path))
+				.collect(Collectors.toList());
+		log.info("Validating the hash chain of {} files from {}", sortedFiles.size(), sortedFiles.get(0));
+
+		List<Future<Link>> links = new ArrayList<>(sortedFiles.size());
+		for (String path : sortedFiles) {
+			links.add(executor.submit(() ->
+					new Link(path, prevFileHashReader.apply(path), Utility.bytesToHex(Utility.getFileHash(path)))));
+		}
+
+		String expectedHash = previousFileHash;
+		String previousFile = null;
+		try {
+			for (int i = 0; i < links.size(); i++) {
+				Link link = links.get(i).get();
+				// the results are not needed once checked
+				links.set(i, null);
+				if (link.prevFileHash == null || link.fileHash == null) {
+					log.error("Unable to read the hashes of {}", link.path);
+					return link.path;
+				}
+				if (!expectedHash.isEmpty() && !expectedHash.equals(link.prevFileHash) && !ZERO_HASH.equals(link.prevFileHash)) {
+					log.error("Hash chain broken at {}: previous file hash {} doesn't match hash {} of {}", link.path,
+							link.prevFileHash, expectedHash, previousFile == null ? "the file before the first one" : previousFile);
+					return link.path;
+				}
+				expectedHash = link.fileHash;
+				previousFile = link.path;
+			}
+		} finally {
+			links.stream().filter(future -> future != null).forEach(future -> future.cancel(true));
+		}
+		log.info("Hash chain of {} files is valid, last file {} has hash {}", links.size(), previousFile, expectedHash);
+		return null;
+	}
+
+	private static List<String> listFiles(String directory, Predicate<String> fileFilter) throws Exception {
+		try (Stream<Path> pathStream = Files.walk(Paths.get(directory))) {
+			return pathStream.map(Path::toString).filter(fileFilter).collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * A file's previous file hash and its own hash, null when they couldn't be read
+	 */
+	private static class Link {
+		private final String path;
+		private final String prevFileHash;
+		private final String fileHash;
+
+		private Link(String path, String prevFileHash, String fileHash) {
+			this.path = path;
+			this.prevFileHash = prevFileHash;
+			this.fileHash = fileHash;
+		}
+	}
+}
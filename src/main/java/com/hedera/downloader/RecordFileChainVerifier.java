@@ -0,0 +1,146 @@
+package com.hedera.downloader;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.hedera.databaseUtilities.ApplicationStatus;
+import com.hedera.parser.RecordFileParser;
+import com.hedera.utilities.Utility;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.codec.binary.Hex;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Verifies the hash chain of the record files in the valid directory incrementally. The last verified file (the tip)
+ * is kept in memory and the downloader adds each file it moves to the valid directory, so verify() only reads the
+ * files that arrived since the previous call instead of walking and rehashing the whole directory.
+ * The valid directory is walked once, when the verifier is created, for the files a previous run left unverified.
+ */
+@Log4j2
+public class RecordFileChainVerifier {
+
+	private static final String ZERO_HASH = Hex.encodeHexString(new byte[48]);
+
+	private final ApplicationStatus applicationStatus;
+	// files in the valid directory that are newer than the tip, in file name order, with their hash when known
+	private final TreeMap<String, byte[]> pendingFiles =
+			new TreeMap<>(Comparator.comparing((String path) -> fileInstant(path)).thenComparing(path -> path));
+	private String tipName;
+	private String tipHash;
+
+	public RecordFileChainVerifier(ApplicationStatus applicationStatus, String validDir) throws Exception {
+		this.applicationStatus = applicationStatus;
+		tipName = applicationStatus.getLastValidDownloadedRecordFileName();
+		tipHash = applicationStatus.getLastValidDownloadedRecordFileHash();
+
+		File validDirFile = new File(validDir);
+		if (validDirFile.exists()) {
+			try (Stream<Path> pathStream = Files.walk(validDirFile.toPath())) {
+				pathStream.map(Path::toString).filter(Utility::isRecordFile).forEach(path -> add(path, null));
+			}
+		}
+		log.info("Verifying the record file chain from {}, {} files pending", tipName, pendingFiles.size());
+	}
+
+	/**
+	 * Adds a record file that was moved to the valid directory. Files that are not newer than the tip are ignored.
+	 * @param path
+	 * @param fileHash the hash of the file, or null to compute it when the file is verified
+	 */
+	public void add(String path, byte[] fileHash) {
+		if (tipName.isEmpty() || fileInstant(path).isAfter(Utility.getInstantFromFileName(tipName))) {
+			pendingFiles.put(path, fileHash);
+		}
+	}
+
+	/**
+	 * Verifies the pending files that extend the chain from the tip, in order, and stops at the first file that
+	 * doesn't. The new tip name and hash are saved together, then the verified files stop being pending.
+	 * @return the paths of the newly verified record files, in chain order
+	 * @throws Exception
+	 */
+	public List<String> verify() throws Exception {
+		List<String> verifiedFiles = new ArrayList<>();
+		String newTipName = tipName;
+		String newTipHash = tipHash;
+		String bypassUntilAfter = applicationStatus.getBypassRecordHashMismatchUntilAfter();
+
+		Iterator<Map.Entry<String, byte[]>> pending = pendingFiles.entrySet().iterator();
+		while (pending.hasNext()) {
+			if (Utility.checkStopFile()) {
+				log.info("Stop file found, stopping");
+				break;
+			}
+			Map.Entry<String, byte[]> entry = pending.next();
+			String path = entry.getKey();
+			File file = new File(path);
+			if (!file.exists()) {
+				log.warn("Pending record file was removed from the valid directory: {}", path);
+				pending.remove();
+				continue;
+			}
+
+			String prevFileHash = RecordFileParser.readPrevFileHash(path);
+			if (prevFileHash == null) {
+				log.warn("Doesn't contain valid prevFileHash: {}", path);
+				break;
+			}
+			if (!(newTipHash.isEmpty() ||
+					newTipHash.equals(prevFileHash) ||
+					prevFileHash.equals(ZERO_HASH) ||
+					bypassUntilAfter.compareTo(file.getName()) > 0)) {
+				log.warn("File Hash Mismatch with previous : {}", path);
+				break;
+			}
+			byte[] fileHash = entry.getValue() != null ? entry.getValue() : Utility.getFileHash(path);
+			if (fileHash == null) {
+				log.warn("Unable to hash {}", path);
+				break;
+			}
+			newTipName = file.getName();
+			newTipHash = Utility.bytesToHex(fileHash);
+			verifiedFiles.add(path);
+		}
+
+		if (!verifiedFiles.isEmpty()) {
+			applicationStatus.updateLastValidDownloadedRecordFile(newTipName, newTipHash);
+			tipName = newTipName;
+			tipHash = newTipHash;
+			verifiedFiles.forEach(pendingFiles::remove);
+		}
+		return verifiedFiles;
+	}
+
+	private static Instant fileInstant(String path) {
+		return Utility.getInstantFromFileName(new File(path).getName());
+	}
+}
@@ -23,25 +23,19 @@ package com.hedera.downloader;
 import com.hedera.configLoader.ConfigLoader;
 import com.hedera.configLoader.ConfigLoader.OPERATION_TYPE;
 import com.hedera.databaseUtilities.ApplicationStatus;
-import com.hedera.parser.RecordFileParser;
 import com.hedera.signatureVerifier.NodeSignatureVerifier;
 import com.hedera.utilities.Utility;
 
 import lombok.extern.log4j.Log4j2;
-import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @Log4j2
 public class RecordFileDownloader extends Downloader {
@@ -49,18 +43,27 @@ public class RecordFileDownloader extends Downloader {
 	private static String validDir = ConfigLoader.getDefaultParseDir(OPERATION_TYPE.RECORDS);
 	private static String tmpDir = ConfigLoader.getDefaultTmpDir(OPERATION_TYPE.RECORDS);
 	private static ApplicationStatus applicationStatus;
+	private static RecordFileChainVerifier chainVerifier;
 
 	public RecordFileDownloader() throws Exception {
 		applicationStatus = new ApplicationStatus();
 		Utility.createDirIfNotExists(validDir);
 		Utility.createDirIfNotExists(tmpDir);
 		Utility.purgeDirectory(tmpDir);
+		chainVerifier = new RecordFileChainVerifier(applicationStatus, validDir);
 	}
 
-	public static void downloadNewRecordfiles(RecordFileDownloader downloader) throws Exception {
+	/**
+	 * Downloads and verifies the record files that are newer than the last valid downloaded one
+	 * @param downloader
+	 * @return the paths of the record files whose hash chain was verified by this call, in chain order
+	 * @throws Exception
+	 */
+	public static List<String> downloadNewRecordfiles(RecordFileDownloader downloader) throws Exception {
 		setupCloudConnection();
 
 		HashMap<String, List<File>> sigFilesMap;
+		List<String> verifiedFiles = Collections.emptyList();
 		try {
 			sigFilesMap = downloader.downloadSigFiles(DownloadType.RCD);
 
@@ -68,10 +71,7 @@ public class RecordFileDownloader extends Downloader {
 			downloader.verifySigsAndDownloadRecordFiles(sigFilesMap);
 
 			if (validDir != null) {
-//				new Thread(() -> {
-					verifyValidRecordFiles(validDir);
-//				}).start();
-			} else {
+				verifiedFiles = verifyValidRecordFiles();
 			}
 
 			xfer_mgr.shutdownNow();
@@ -79,6 +79,7 @@ public class RecordFileDownloader extends Downloader {
 		} catch (IOException e) {
 			log.error("Error downloading and verifying new record files", e);
 		}
+		return verifiedFiles;
 	}
 
 	public static void main(String[] args) throws Exception {
@@ -94,61 +95,16 @@ public class RecordFileDownloader extends Downloader {
 	}
 
 	/**
-	 * Check if there is any missing .rcd file:
-	 * (1) Sort .rcd files by timestamp,
-	 * (2) Verify the .rcd files to see if the file Hash matches prevFileHash
-	 * @param validDir
-	 * @throws Exception 
+	 * Verifies the hash chain of the .rcd files that arrived in the valid directory since the last call
+	 * @return the paths of the newly verified .rcd files, in chain order
 	 */
-	public static void verifyValidRecordFiles(String validDir) throws Exception {
-		String lastValidRcdFileName =  applicationStatus.getLastValidDownloadedRecordFileName();
-		String lastValidRcdFileHash = applicationStatus.getLastValidDownloadedRecordFileHash();
-		File validDirFile = new File(validDir);
-		if (!validDirFile.exists()) {
-			return;
-		}
-		try (Stream<Path> pathStream = Files.walk(validDirFile.toPath())) {
-			List<String> fileNames = pathStream.filter(p -> Utility.isRecordFile(p.toString()))
-					.filter(p -> lastValidRcdFileName.isEmpty() ||
-							fileNameComparator.compare(p.toFile().getName(), lastValidRcdFileName) > 0)
-					.sorted(pathComparator)
-					.map(p -> p.toString()).collect(Collectors.toList());
-
-			String newLastValidRcdFileName = lastValidRcdFileName;
-			String newLastValidRcdFileHash = lastValidRcdFileHash;
-
-			for (String rcdName : fileNames) {
-				if (Utility.checkStopFile()) {
-					log.info("Stop file found, stopping");
-					break;
-				}
-				String prevFileHash = RecordFileParser.readPrevFileHash(rcdName);
-				if (prevFileHash == null) {
-					log.warn("Doesn't contain valid prevFileHash: {}", rcdName);
-					break;
-				}
-				if (newLastValidRcdFileHash.isEmpty() ||
-						newLastValidRcdFileHash.equals(prevFileHash) ||
-						prevFileHash.equals(Hex.encodeHexString(new byte[48]))) {
-					newLastValidRcdFileHash = Utility.bytesToHex(Utility.getFileHash(rcdName));
-					newLastValidRcdFileName = new File(rcdName).getName();
-				} else if (applicationStatus.getBypassRecordHashMismatchUntilAfter().compareTo(new File(rcdName).getName()) > 0) {
-					newLastValidRcdFileName = new File(rcdName).getName();
-					newLastValidRcdFileHash = Utility.bytesToHex(Utility.getFileHash(rcdName));
-				} else {
-					log.warn("File Hash Mismatch with previous : {}", rcdName);
-					break;
-				}
-			}
-
-			if (!newLastValidRcdFileName.equals(lastValidRcdFileName)) {
-				applicationStatus.updateLastValidDownloadedRecordFileHash(newLastValidRcdFileHash);
-				applicationStatus.updateLastValidDownloadedRecordFileName(newLastValidRcdFileName);
-			}
-
+	public static List<String> verifyValidRecordFiles() {
+		try {
+			return chainVerifier.verify();
 		} catch (Exception ex) {
 			log.error("Failed to verify record files in {}", validDir, ex);
 		}
+		return Collections.emptyList();
 	}
 
 	/**
@@ -190,13 +146,14 @@ public class RecordFileDownloader extends Downloader {
 					break;
 				}
 
-				Pair<Boolean, File> rcdFileResult = downloadFile(DownloadType.RCD, validSigFile, tmpDir);
-				File rcdFile = rcdFileResult.getRight();
-				if (rcdFile != null && Utility.hashMatch(validSigFile, rcdFile)) {
+				Pair<File, byte[]> rcdFileResult = downloadFile(DownloadType.RCD, validSigFile, tmpDir);
+				File rcdFile = rcdFileResult == null ? null : rcdFileResult.getLeft();
+				if (rcdFile != null && Utility.hashMatch(validSigFile, rcdFileResult.getRight())) {
 					// move the file to the valid directory
 					File fTo = new File(validDir + "/" + rcdFile.getName());
 
 					if (moveFile(rcdFile, fTo)) {
+						chainVerifier.add(fTo.getPath(), rcdFileResult.getRight());
 						log.debug("Verified signature file matches at least 2/3 of nodes: {}", fileName);
 						valid = true;
 						break;
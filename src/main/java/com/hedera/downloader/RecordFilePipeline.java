@@ -0,0 +1,161 @@
+package com.hedera.downloader;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.hedera.configLoader.ConfigLoader;
+import com.hedera.configLoader.ConfigLoader.OPERATION_TYPE;
+import com.hedera.parser.RecordFileParser;
+import com.hedera.utilities.Utility;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs record file download and record file parsing concurrently.
+ *
+ * The download stage lists and downloads signature files, verifies them, fetches the matching .rcd files and
+ * checks the hash chain. Every record file whose hash chain has been verified is handed to the parse stage through
+ * a bounded queue. When the parse stage falls behind the queue fills up and the download stage blocks until there
+ * is room again, so the amount of downloaded but unparsed data stays bounded.
+ */
+@Log4j2
+public class RecordFilePipeline {
+
+	private static final long POLL_INTERVAL_MS = 500L;
+	private static final long RETRY_INTERVAL_MS = 1000L;
+
+	private final RecordFileDownloader downloader;
+	private final String parseDir;
+	private final BlockingQueue<String> verifiedFiles;
+	private volatile boolean stopping = false;
+
+	public RecordFilePipeline(RecordFileDownloader downloader) throws Exception {
+		// initializes the parser's application status
+		new RecordFileParser();
+		this.downloader = downloader;
+		this.parseDir = ConfigLoader.getDefaultParseDir(OPERATION_TYPE.RECORDS);
+		this.verifiedFiles = new ArrayBlockingQueue<>(ConfigLoader.getRecordPipelineQueueSize());
+	}
+
+	/**
+	 * Runs both stages until the stop file is found
+	 * @throws Exception
+	 */
+	public void run() throws Exception {
+		// parse files verified by a previous run before new ones are queued
+		RecordFileParser.parseNewFiles(parseDir);
+
+		Thread downloadThread = new Thread(this::download, "record-download");
+		Thread parseThread = new Thread(this::parse, "record-parse");
+		downloadThread.start();
+		parseThread.start();
+		downloadThread.join();
+		parseThread.join();
+	}
+
+	private void download() {
+		try {
+			while (!stopping) {
+				if (Utility.checkStopFile()) {
+					log.info("Stop file found, stopping");
+					break;
+				}
+
+				List<String> files = RecordFileDownloader.downloadNewRecordfiles(downloader);
+				if (files.isEmpty()) {
+					// nothing new, don't list the bucket again right away
+					Thread.sleep(POLL_INTERVAL_MS);
+					continue;
+				}
+				for (String file : files) {
+					if (verifiedFiles.remainingCapacity() == 0) {
+						log.info("Parser is {} files behind, waiting before queueing {}", verifiedFiles.size(), file);
+					}
+					while (!verifiedFiles.offer(file, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+						if (stopping) {
+							return;
+						}
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Exception e) {
+			log.error("Error downloading record files, stopping", e);
+		} finally {
+			stopping = true;
+		}
+	}
+
+	private void parse() {
+		List<String> pending = new ArrayList<>();
+		try {
+			while (true) {
+				if (Utility.checkStopFile()) {
+					log.info("Stop file found, stopping");
+					break;
+				}
+
+				if (pending.isEmpty()) {
+					String file = verifiedFiles.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+					if (file == null) {
+						if (stopping) {
+							break;
+						}
+						continue;
+					}
+					pending.add(file);
+				}
+				verifiedFiles.drainTo(pending);
+
+				int parsed = RecordFileParser.parseFiles(pending);
+				if (parsed > 0) {
+					String last = new File(pending.get(parsed - 1)).getName();
+					Duration lag = Duration.between(Utility.getInstantFromFileName(last), Instant.now());
+					log.info("Parsed {} record files, {} queued, ingestion lag {}", parsed, verifiedFiles.size(), lag);
+					pending.subList(0, parsed).clear();
+				}
+				if (!pending.isEmpty()) {
+					// keep the unparsed files so they are retried in order
+					log.warn("Failed to parse {}, retrying", pending.get(0));
+					if (stopping) {
+						break;
+					}
+					Thread.sleep(RETRY_INTERVAL_MS);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Exception e) {
+			log.error("Error parsing record files, stopping", e);
+		} finally {
+			stopping = true;
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package com.hedera.mirror.dataset;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import lombok.Getter;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Buffers account_balances rows of one consensus timestamp in PostgreSQL's COPY text format, and copies them into
+ * the table.
+ *
+ * A writer may be filled on one thread and copied on another, as long as it isn't used concurrently.
+ */
+public final class AccountBalancesCopyWriter {
+    private static final String SQL = "COPY account_balances (consensus_timestamp, account_id, balance) FROM STDIN";
+
+    // consensus timestamp column and the start of the account_id composite, the same for every row
+    private final byte[] rowPrefix;
+    private byte[] buffer;
+    private int size;
+    @Getter
+    private int rows;
+
+    /**
+     * @param consensusTimestamp of the rows
+     * @param capacity initial buffer size in bytes
+     */
+    public AccountBalancesCopyWriter(final long consensusTimestamp, final int capacity) {
+        rowPrefix = (consensusTimestamp + "\t(a,").getBytes(StandardCharsets.US_ASCII);
+        buffer = new byte[Math.max(capacity, 64)];
+    }
+
+    public void addBalance(final long realmNum, final long accountNum, final long balance) {
+        ensureCapacity(rowPrefix.length + 3 * 21 + 3);
+        System.arraycopy(rowPrefix, 0, buffer, size, rowPrefix.length);
+        size += rowPrefix.length;
+        appendLong(realmNum);
+        buffer[size++] = ',';
+        appendLong(accountNum);
+        buffer[size++] = ')';
+        buffer[size++] = '\t';
+        appendLong(balance);
+        buffer[size++] = '\n';
+        rows++;
+    }
+
+    /**
+     * Copies the rows in the connection's current transaction, and clears them
+     * @return the number of rows copied
+     */
+    public long copy(final Connection connection) throws SQLException {
+        if (rows == 0) {
+            return 0;
+        }
+        final CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(SQL);
+        try {
+            copyIn.writeToCopy(buffer, 0, size);
+            final long copied = copyIn.endCopy();
+            clear();
+            return copied;
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    public void clear() {
+        size = 0;
+        rows = 0;
+    }
+
+    private void appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            final var digits = Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(digits, 0, buffer, size, digits.length);
+            size += digits.length;
+            return;
+        }
+        if (value < 0) {
+            buffer[size++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = size + digits - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size += digits;
+    }
+
+    private void ensureCapacity(final int length) {
+        if (size + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+        }
+    }
+
+    /**
+     * @return the buffered rows, for tests
+     */
+    String contents() {
+        return new String(buffer, 0, size, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,213 @@
+package com.hedera.mirror.dataset;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.hedera.mirror.exception.InvalidDatasetException;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the lines of an account balances CSV stream from a byte buffer.
+ *
+ * Header lines are read as strings with {@link #readLine()}. Account balance lines are tokenized in place with
+ * {@link #next()}, which parses the shard, realm, account number and balance columns straight from the buffer into
+ * primitive fields, so reading balances doesn't allocate.
+ */
+public final class AccountBalancesCsvReader implements AutoCloseable {
+    private static final int COLUMNS = 4;
+
+    private final String name;
+    private final InputStream in;
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean eof;
+    // bounds of the current line, without its terminator
+    private int lineStart;
+    private int lineEnd;
+    private final long[] columns = new long[COLUMNS];
+
+    @Getter
+    private int lineNumber;
+
+    /**
+     * @param name for error messages (an identifier of the stream such as the filename or path)
+     * @param in
+     * @param bufferSize initial size of the buffer, grown if a line doesn't fit
+     */
+    public AccountBalancesCsvReader(final String name, final InputStream in, final int bufferSize) {
+        this.name = name;
+        this.in = in;
+        buffer = new byte[Math.max(bufferSize, 64)];
+    }
+
+    /**
+     * @return the next line without its terminator, or null at the end of the stream
+     */
+    public String readLine() throws IOException {
+        if (!nextLine()) {
+            return null;
+        }
+        return new String(buffer, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the next non-empty account balance line, its columns are then available from the getters. If the line is
+     * invalid, the reader is still positioned after it so that reading can continue with the next line.
+     * @return false at the end of the stream
+     * @throws InvalidDatasetException if the line doesn't have 4 integer columns in range
+     */
+    public boolean next() throws IOException, InvalidDatasetException {
+        do {
+            if (!nextLine()) {
+                return false;
+            }
+        } while (lineStart == lineEnd);
+
+        int column = 0;
+        int i = lineStart;
+        while (true) {
+            if (column == COLUMNS) {
+                throw invalidLine();
+            }
+            i = parseColumn(i, column++);
+            if (i == lineEnd) {
+                break;
+            }
+            i++; // comma
+        }
+        if (column != COLUMNS || columns[1] < Short.MIN_VALUE || columns[1] > Short.MAX_VALUE
+                || columns[2] < Integer.MIN_VALUE || columns[2] > Integer.MAX_VALUE) {
+            throw invalidLine();
+        }
+        return true;
+    }
+
+    public long getShardNum() {
+        return columns[0];
+    }
+
+    public long getRealmNum() {
+        return columns[1];
+    }
+
+    public long getAccountNum() {
+        return columns[2];
+    }
+
+    public long getBalance() {
+        return columns[3];
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Parses the integer starting at from into the column
+     * @return the position of the comma or line end following it
+     */
+    private int parseColumn(final int from, final int column) {
+        int i = from;
+        boolean negative = false;
+        if (i < lineEnd && (buffer[i] == '-' || buffer[i] == '+')) {
+            negative = buffer[i] == '-';
+            i++;
+        }
+        final int digitsStart = i;
+        long value = 0;
+        for (; i < lineEnd && buffer[i] != ','; i++) {
+            final int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                throw invalidLine();
+            }
+            value = value * 10 + digit;
+        }
+        if (i == digitsStart) {
+            throw invalidLine();
+        }
+        columns[column] = negative ? -value : value;
+        return i;
+    }
+
+    private InvalidDatasetException invalidLine() {
+        return new InvalidDatasetException(String.format("Invalid line in account balances file %s:line(%d).",
+                name, lineNumber));
+    }
+
+    /**
+     * Moves to the next line, filling the buffer until the line's terminator or the end of the stream is in it
+     * @return false at the end of the stream
+     */
+    private boolean nextLine() throws IOException {
+        int scanned = position;
+        while (true) {
+            for (int i = scanned; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    setLine(i);
+                    position = i + 1;
+                    return true;
+                }
+            }
+            if (eof) {
+                if (position == limit) {
+                    return false;
+                }
+                setLine(limit);
+                position = limit;
+                return true;
+            }
+            scanned = limit - position;
+            fill();
+        }
+    }
+
+    private void setLine(final int end) {
+        lineStart = position;
+        lineEnd = end > position && buffer[end - 1] == '\r' ? end - 1 : end;
+        lineNumber++;
+    }
+
+    /**
+     * Moves the unread bytes to the start of the buffer, growing it if they fill it, and reads more bytes after them
+     */
+    private void fill() throws IOException {
+        final int remaining = limit - position;
+        if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        } else if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+        }
+        position = 0;
+        limit = remaining;
+        final int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+}
@@ -46,4 +46,10 @@ public interface AccountBalancesDataset extends AutoCloseable {
     Instant getConsensusTimestamp();
 
     Stream<NumberedLine> getRecordStream();
+
+    /**
+     * Alternative to getRecordStream() that tokenizes the CSV lines without allocating a string per line. Only one of
+     * them may be used.
+     */
+    AccountBalancesCsvReader getRecordReader();
 }
@@ -28,11 +28,11 @@ import lombok.extern.log4j.Log4j2;
 import org.apache.logging.log4j.message.ParameterizedMessage;
 
 import javax.annotation.Nullable;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.time.Instant;
+import java.util.Objects;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
@@ -51,7 +51,7 @@ public final class AccountBalancesDatasetV2 implements AccountBalancesDataset {
 
     @Getter
     private @Nullable Instant consensusTimestamp;
-    private @Nullable BufferedReader reader;
+    private @Nullable AccountBalancesCsvReader reader;
     @Getter
     private String name;
     @Getter
@@ -68,7 +68,7 @@ public final class AccountBalancesDatasetV2 implements AccountBalancesDataset {
      */
     public AccountBalancesDatasetV2(final String name, final InputStream in) throws InvalidDatasetException {
         this.name = name;
-        reader = new BufferedReader(new InputStreamReader(in), bufferSize);
+        reader = new AccountBalancesCsvReader(name, in, bufferSize);
         try {
             parseHeader();
         } catch (InvalidDatasetException e) {
@@ -129,11 +129,26 @@ public final class AccountBalancesDatasetV2 implements AccountBalancesDataset {
         if (null == reader) {
             return Stream.empty();
         }
-        return reader.lines().map(line -> {
+        final var lines = reader;
+        return Stream.generate(() -> {
+            try {
+                return lines.readLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).takeWhile(Objects::nonNull).map(line -> {
             return new NumberedLine(++lineNumber, line);
         });
     }
 
+    /**
+     * Return the reader positioned on the first line of the account balances CSV data.
+     * @return
+     */
+    public @Nullable AccountBalancesCsvReader getRecordReader() {
+        return reader;
+    }
+
     @Override
     public void close() throws Exception {
         if (null != reader) {
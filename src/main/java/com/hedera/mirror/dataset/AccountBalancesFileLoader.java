@@ -21,6 +21,7 @@ package com.hedera.mirror.dataset;
  */
 
 import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.hedera.configLoader.ConfigLoader;
 import com.hedera.databaseUtilities.DatabaseUtilities;
 import com.hedera.mirror.exception.InvalidDatasetException;
@@ -30,12 +31,22 @@ import lombok.extern.log4j.Log4j2;
 
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.time.Instant;
-import java.util.stream.Stream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Parse an account balances file and load it into the database.
@@ -48,6 +59,17 @@ public final class AccountBalancesFileLoader implements AutoCloseable {
 	private final TimestampConverter timestampConverter = new TimestampConverter();
 	private final boolean useDatabaseTransaction;
 	private final int insertBatchSize;
+	private final int loadThreads;
+	private final int fullSnapshotInterval;
+	private final boolean indexBalances;
+	// balances of the last set loaded by this process, that the next set can be a delta of
+	private static AccountBalancesSnapshot lastSnapshot;
+	// balances of the set being loaded, null unless sets are stored as deltas or indexed
+	private AccountBalancesSnapshot snapshot;
+	// set the set being loaded is a delta of, null if it is loaded in full
+	private AccountBalancesSnapshot base;
+	private int baseAccountsRead;
+	private int unchangedSlot;
 	@Getter
 	private boolean insertErrors;
 	@Getter
@@ -72,89 +94,190 @@ public final class AccountBalancesFileLoader implements AutoCloseable {
                 new FileInputStream(filePath.toFile()));
 		useDatabaseTransaction = ConfigLoader.getAccountBalancesUseTransaction();
 		insertBatchSize = ConfigLoader.getAccountBalancesInsertBatchSize();
+		loadThreads = ConfigLoader.getAccountBalancesLoadThreads();
+		fullSnapshotInterval = ConfigLoader.getAccountBalancesFullSnapshotInterval();
+		indexBalances = ConfigLoader.getAccountBalancesIndexPort() > 0;
 	}
 
 	/**
-	 * Process a line (CSV account balance line) and insert it into the DB (or skip it if empty).
-	 * @param ps
-	 * @param line
+	 * Read the next valid account balance line into the writer. Invalid lines are logged and skipped, the balance set
+	 * is then not completed. When the set is a delta, balances that didn't change since the base set are skipped too.
+	 * @return false at the end of the dataset
 	 */
-	private void processLine(final PreparedStatement ps, final long consensusTimestamp, final NumberedLine line)
-			throws InvalidDatasetException, SQLException {
-		final String[] cols = line.getValue().split(",");
-		if (4 != cols.length) {
-			throw new InvalidDatasetException(String.format(
-					"Invalid line in account balances file %s:line(%d).",
-					filePath, line.getLineNumber()));
+	private boolean readBalance(final AccountBalancesCsvReader reader, final AccountBalancesCopyWriter writer)
+			throws IOException {
+		while (true) {
+			try {
+				if (!reader.next()) {
+					return readUnchangedBalance(writer);
+				}
+				if (reader.getShardNum() != systemShardNum) {
+					throw new InvalidDatasetException(String.format(
+							"Invalid shardNum %d in account balances file %s:line(%d).",
+							reader.getShardNum(), filePath, reader.getLineNumber()));
+				}
+				++validRowCount;
+				if (null != snapshot) {
+					final long account = AccountBalancesSnapshot.account(reader.getRealmNum(), reader.getAccountNum());
+					snapshot.put(account, reader.getBalance());
+					final int slot = null == base ? -1 : base.find(account);
+					if (slot >= 0) {
+						++baseAccountsRead;
+						if (base.balanceAt(slot) == reader.getBalance()) {
+							continue;
+						}
+					}
+				}
+				writer.addBalance(reader.getRealmNum(), reader.getAccountNum(), reader.getBalance());
+				return true;
+			} catch (InvalidDatasetException e) {
+				log.error(e);
+				insertErrors = true;
+			}
 		}
+	}
 
-		final var shardNum = Long.valueOf(cols[0]);
-		if (shardNum != systemShardNum) {
-			throw new InvalidDatasetException(String.format(
-					"Invalid shardNum %d in account balances file %s:line(%d).",
-					shardNum, filePath, line.getLineNumber()));
+	/**
+	 * A delta can't express that an account of the base set isn't in the file anymore. If so, once the file is read,
+	 * the balances that were skipped as unchanged are read into the writer too, and the set is stored in full.
+	 * @return false once there are no more unchanged balances
+	 */
+	private boolean readUnchangedBalance(final AccountBalancesCopyWriter writer) {
+		if (null == base || baseAccountsRead == base.getSize()) {
+			return false;
+		}
+		for (int slot = snapshot.nextSlot(unchangedSlot); slot >= 0; slot = snapshot.nextSlot(slot + 1)) {
+			final long account = snapshot.accountAt(slot);
+			final int baseSlot = base.find(account);
+			if (baseSlot >= 0 && base.balanceAt(baseSlot) == snapshot.balanceAt(slot)) {
+				writer.addBalance(AccountBalancesSnapshot.realmNum(account), AccountBalancesSnapshot.accountNum(account),
+						snapshot.balanceAt(slot));
+				unchangedSlot = slot + 1;
+				return true;
+			}
 		}
+		log.info("{} accounts of the account balance set at {} are not in {}, storing it in full",
+				base.getSize() - baseAccountsRead, base.getConsensusTimestamp(), filePath);
+		base = null;
+		return false;
+	}
+
+	private AccountBalancesCopyWriter newWriter(final long consensusTimestamp) {
+		// about 40 bytes per row
+		return new AccountBalancesCopyWriter(consensusTimestamp, insertBatchSize * 48);
+	}
 
+	/**
+	 * Copy the account balances on the connection, in chunks of insertBatchSize rows.
+	 */
+	private void copyBalances(final Connection conn, final long consensusTimestamp,
+							  final AccountBalancesCsvReader reader) throws IOException, SQLException {
+		final var writer = newWriter(consensusTimestamp);
+		while (readBalance(reader, writer)) {
+			if (writer.getRows() >= insertBatchSize) {
+				writer.copy(conn);
+			}
+		}
+		writer.copy(conn);
+	}
+
+	/**
+	 * Copy the account balances in chunks of insertBatchSize rows over loadThreads connections, while the file is
+	 * read on this thread. Chunks are recycled, so at most 2 chunks per connection are in memory.
+	 */
+	private void copyBalancesInParallel(final long consensusTimestamp, final AccountBalancesCsvReader reader)
+			throws IOException, SQLException {
+		final BlockingQueue<AccountBalancesCopyWriter> free = new ArrayBlockingQueue<>(loadThreads * 2);
+		// room for all the chunks and one end marker per connection, so that puts don't block
+		final BlockingQueue<AccountBalancesCopyWriter> full = new ArrayBlockingQueue<>(loadThreads * 3);
+		for (int i = 0; i < loadThreads * 2; i++) {
+			free.add(newWriter(consensusTimestamp));
+		}
+		final var end = new AccountBalancesCopyWriter(consensusTimestamp, 0);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(loadThreads,
+				new ThreadFactoryBuilder().setNameFormat("balance-loader-%d").setDaemon(true).build());
 		try {
-			ps.setLong(1, consensusTimestamp);
-			ps.setShort(2, Short.valueOf(cols[1])); // realm_num
-			ps.setInt(3, Integer.valueOf(cols[2])); // num
-			ps.setLong(4, Long.valueOf(cols[3])); // balance (hbar_tinybars);
-			ps.addBatch();
-		} catch (NumberFormatException e) {
-			throw new InvalidDatasetException(String.format("Invalid line in account balances file %s:line(%d).",
-					filePath, line.getLineNumber()));
+			final List<Future<Long>> loaders = new ArrayList<>(loadThreads);
+			for (int i = 0; i < loadThreads; i++) {
+				loaders.add(executor.submit(() -> copyChunks(free, full, end)));
+			}
+
+			var writer = takeFree(free, loaders);
+			while (readBalance(reader, writer)) {
+				if (writer.getRows() >= insertBatchSize) {
+					full.put(writer);
+					writer = takeFree(free, loaders);
+				}
+			}
+			full.put(writer);
+			for (int i = 0; i < loadThreads; i++) {
+				full.put(end);
+			}
+
+			long copied = 0;
+			for (Future<Long> loader : loaders) {
+				copied += loader.get();
+			}
+			log.debug("Copied {} account balances over {} connections", copied, loadThreads);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while copying account balances", e);
+		} catch (ExecutionException e) {
+			throw new SQLException("Failed to copy account balances", e.getCause());
+		} finally {
+			executor.shutdownNow();
 		}
 	}
 
-	private void processRecordStreamWithoutDatabaseTransaction(final PreparedStatement ps,
-															   final long consensusTimestamp,
-															   final Stream<NumberedLine> stream)
-			throws SQLException {
-		var state = new Object() {
-			int recordsInCurrentBatch = 0;
-		};
-		stream.forEachOrdered((line) -> {
-			try {
-				if (line.getValue().isEmpty()) return;
-				processLine(ps, consensusTimestamp, line);
-				++validRowCount;
-				++state.recordsInCurrentBatch;
-				if (state.recordsInCurrentBatch >= insertBatchSize) {
-					state.recordsInCurrentBatch = 0;
-					ps.executeBatch();
+	/**
+	 * Take a free chunk, checking on the loaders while there is none. A loader that couldn't get a connection never
+	 * returns the chunks, so its failure is thrown instead of waiting for them.
+	 */
+	private static AccountBalancesCopyWriter takeFree(final BlockingQueue<AccountBalancesCopyWriter> free,
+													  final List<Future<Long>> loaders)
+			throws InterruptedException, ExecutionException {
+		while (true) {
+			final var writer = free.poll(1, TimeUnit.SECONDS);
+			if (null != writer) {
+				return writer;
+			}
+			for (Future<Long> loader : loaders) {
+				if (loader.isDone()) {
+					loader.get();
 				}
-			} catch (InvalidDatasetException | SQLException e) {
-				log.error(e);
-				insertErrors = true;
 			}
-		});
-		// Process any remaining insert batches.
-		if (state.recordsInCurrentBatch > 0) {
-			ps.executeBatch();
 		}
 	}
 
-	private void processRecordStreamWithDatabaseTransaction(final PreparedStatement ps, final long consensusTimestamp,
-													   		final Stream<NumberedLine> stream)
-			throws SQLException, InvalidDatasetException {
-		int recordsInCurrentBatch = 0;
-		Iterable<NumberedLine> iterable = stream::iterator;
-		for (NumberedLine line : iterable) {
-			if (line.getValue().isEmpty()) continue;
-
-			processLine(ps, consensusTimestamp, line);
-			++validRowCount;
-			++recordsInCurrentBatch;
-			if (recordsInCurrentBatch >= insertBatchSize) {
-				recordsInCurrentBatch = 0;
-				ps.executeBatch();
+	/**
+	 * Copy the chunks put in full on a connection of its own until the end marker, returning them to free. Once a copy
+	 * failed, chunks are still returned but not copied anymore, so that the reading thread doesn't wait for them.
+	 * @return the number of rows copied
+	 */
+	private static long copyChunks(final BlockingQueue<AccountBalancesCopyWriter> free,
+								   final BlockingQueue<AccountBalancesCopyWriter> full,
+								   final AccountBalancesCopyWriter end) throws InterruptedException, SQLException {
+		long copied = 0;
+		SQLException failure = null;
+		try (Connection conn = DatabaseUtilities.getConnection()) {
+			for (var writer = full.take(); writer != end; writer = full.take()) {
+				try {
+					if (null == failure) {
+						copied += writer.copy(conn);
+					}
+				} catch (SQLException e) {
+					failure = e;
+				} finally {
+					writer.clear();
+					free.put(writer);
+				}
 			}
 		}
-		// Process any remaining insert batches.
-		if (recordsInCurrentBatch > 0) {
-			ps.executeBatch();
+		if (null != failure) {
+			throw failure;
 		}
+		return copied;
 	}
 
 	/**
@@ -180,15 +303,18 @@ public final class AccountBalancesFileLoader implements AutoCloseable {
 	    final var longConsensusTimestamp = timestampConverter.toNanosecondLong(consensusTimestamp);
 
 		//
-		// 1) insert row into account_balance_sets.
-		// 2) stream insert all the account_balances records.
-		// 3) update/close the account_balance_set.
+		// 1) insert row into account_balance_sets, or skip the file if that set is already complete.
+		// 2) delete the account_balances records of a previous attempt, COPY can't skip existing rows.
+		// 3) stream copy all the account_balances records, or only the changed ones if the set is a delta.
+		// 4) update/close the account_balance_set.
 		//
 		log.info("Starting processing account balances file {}", filePath);
 		var stopwatch = Stopwatch.createStarted();
+		// rows copied over other connections can't be part of this connection's transaction
+		final var useDatabaseTransaction = this.useDatabaseTransaction && loadThreads <= 1;
 		try (Connection conn = DatabaseUtilities.getConnection()) {
 			try {
-				final Stream<NumberedLine> stream = dataset.getRecordStream();
+				final var reader = dataset.getRecordReader();
 
 				if (useDatabaseTransaction) {
 					conn.setAutoCommit(false);
@@ -196,28 +322,51 @@ public final class AccountBalancesFileLoader implements AutoCloseable {
 
 				final var insertSet = conn.prepareStatement(
 						"insert into account_balance_sets (consensus_timestamp) values (?) on conflict do nothing returning is_complete, processing_start_timestamp;");
-				final var insertBalance = conn.prepareStatement(
-						"insert into account_balances (consensus_timestamp, account_id, balance) values (?, ('a', ?, ?), ?) on conflict do nothing;");
+				final var selectSet = conn.prepareStatement(
+						"select is_complete from account_balance_sets where consensus_timestamp = ?;");
+				final var deleteBalances = conn.prepareStatement(
+						"delete from account_balances where consensus_timestamp = ?;");
 				final var updateSet = conn.prepareStatement(
-						"update account_balance_sets set is_complete = true, processing_end_timestamp = now() at time zone 'utc' where consensus_timestamp = ? and is_complete = false;");
+						"update account_balance_sets set is_complete = true, base_consensus_timestamp = ?, processing_end_timestamp = now() at time zone 'utc' where consensus_timestamp = ? and is_complete = false;");
 
 				insertSet.setLong(1, longConsensusTimestamp);
-				insertSet.execute();
+				final boolean newSet;
+				try (var rs = insertSet.executeQuery()) {
+					newSet = rs.next();
+				}
+				if (!newSet && isSetComplete(selectSet, longConsensusTimestamp)) {
+					// deleting and copying the rows again would hide a complete set from readers, or leave it
+					// incomplete on a failure
+					if (useDatabaseTransaction) {
+						conn.commit();
+					}
+					log.info("Account balance set at {} is already complete, skipping {}", consensusTimestamp,
+							filePath);
+					return true;
+				}
+				startSnapshot(longConsensusTimestamp, newSet);
+				deleteBalances.setLong(1, longConsensusTimestamp);
+				deleteBalances.execute();
 
-				if (useDatabaseTransaction) {
-					processRecordStreamWithoutDatabaseTransaction(insertBalance, longConsensusTimestamp, stream);
+				if (loadThreads > 1) {
+					copyBalancesInParallel(longConsensusTimestamp, reader);
 				} else {
-					processRecordStreamWithDatabaseTransaction(insertBalance, longConsensusTimestamp, stream);
+					copyBalances(conn, longConsensusTimestamp, reader);
 				}
 
 				if (!insertErrors) {
-					updateSet.setLong(1, longConsensusTimestamp);
+					if (null != snapshot) {
+						snapshot.setBase(base);
+					}
+					updateSet.setObject(1, null == snapshot ? null : snapshot.getBaseConsensusTimestamp(), Types.BIGINT);
+					updateSet.setLong(2, longConsensusTimestamp);
 					updateSet.execute();
 				}
 
 				if (useDatabaseTransaction) {
 					conn.commit();
 				}
+				endSnapshot();
 				if (!insertErrors) {
 					log.info("Successfully processed account balances file {} with {} records in {}", filePath,
 							validRowCount, stopwatch);
@@ -226,8 +375,9 @@ public final class AccountBalancesFileLoader implements AutoCloseable {
 							validRowCount, stopwatch);
 				}
 				return !insertErrors;
-			} catch (SQLException | InvalidDatasetException e) {
+			} catch (SQLException | InvalidDatasetException | IOException e) {
 				insertErrors = true;
+				lastSnapshot = null;
 				log.error("Exception processing account balances file {}", filePath, e);
 				if (useDatabaseTransaction) {
 					conn.rollback();
@@ -239,6 +389,47 @@ public final class AccountBalancesFileLoader implements AutoCloseable {
 		return false;
 	}
 
+	private static boolean isSetComplete(final PreparedStatement selectSet, final long consensusTimestamp)
+			throws SQLException {
+		selectSet.setLong(1, consensusTimestamp);
+		try (var rs = selectSet.executeQuery()) {
+			return rs.next() && rs.getBoolean(1);
+		}
+	}
+
+	/**
+	 * Start collecting the balances of the set if sets are stored as deltas or indexed, and make it a delta of the last
+	 * set loaded if it is the next set of the same full set. Sets loaded again, after or before the last set, are
+	 * stored in full.
+	 */
+	private void startSnapshot(final long consensusTimestamp, final boolean newSet) {
+		if (fullSnapshotInterval <= 1 && !indexBalances) {
+			return;
+		}
+		snapshot = new AccountBalancesSnapshot(consensusTimestamp, null == lastSnapshot ? 0 : lastSnapshot.getSize());
+		if (fullSnapshotInterval > 1 && newSet && null != lastSnapshot && lastSnapshot.getConsensusTimestamp() < consensusTimestamp &&
+				lastSnapshot.getDeltaCount() + 1 < fullSnapshotInterval) {
+			base = lastSnapshot;
+		}
+	}
+
+	/**
+	 * Keep the balances of the set for the next one and publish them to the index if it was loaded completely.
+	 */
+	private void endSnapshot() {
+		if (null == snapshot) {
+			return;
+		}
+		if (insertErrors) {
+			lastSnapshot = null;
+		} else if (null == lastSnapshot || lastSnapshot.getConsensusTimestamp() < snapshot.getConsensusTimestamp()) {
+			lastSnapshot = snapshot;
+		}
+		if (indexBalances && !insertErrors) {
+			AccountBalancesIndex.publish(snapshot);
+		}
+	}
+
     @Override
     public void close() throws Exception {
         if (null != dataset) {
@@ -0,0 +1,86 @@
+package com.hedera.mirror.dataset;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import lombok.extern.log4j.Log4j2;
+
+import javax.annotation.Nullable;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Balances of all accounts as of the latest account balance set, kept in memory for point lookups of an account's
+ * current balance without querying account_balances.
+ *
+ * The balances are published by AccountBalancesFileLoader once a set is completely loaded, and replaced by the next
+ * newer set. A published snapshot is never changed, so it can be read from any thread.
+ */
+@Log4j2
+public final class AccountBalancesIndex {
+    private static volatile AccountBalancesSnapshot latest;
+
+    private AccountBalancesIndex() {
+    }
+
+    /**
+     * @return the balances of the latest set loaded, or null if none has been loaded yet
+     */
+    public static @Nullable AccountBalancesSnapshot getLatest() {
+        return latest;
+    }
+
+    /**
+     * Publish the balances of a set, unless the balances of a newer set are already published. The snapshot must not
+     * be changed afterwards.
+     */
+    public static synchronized void publish(final AccountBalancesSnapshot snapshot) {
+        if (null == latest || latest.getConsensusTimestamp() < snapshot.getConsensusTimestamp()) {
+            latest = snapshot;
+        }
+    }
+
+    /**
+     * Publish the balances of the latest complete set in the database, so that lookups are served before the next
+     * set is loaded.
+     */
+    public static void load(final Connection conn) throws SQLException {
+        AccountBalancesSnapshot snapshot = null;
+        try (var ps = conn.prepareStatement(
+                "select consensus_timestamp, (account_id).realm_num, (account_id).num, balance from f_account_balances_at(?);")) {
+            ps.setLong(1, Long.MAX_VALUE);
+            try (var rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (null == snapshot) {
+                        snapshot = new AccountBalancesSnapshot(rs.getLong(1), 0);
+                    }
+                    snapshot.put(AccountBalancesSnapshot.account(rs.getLong(2), rs.getLong(3)), rs.getLong(4));
+                }
+            }
+        }
+        if (null == snapshot) {
+            log.info("No account balance set to load into the account balances index");
+            return;
+        }
+        log.info("Loaded {} account balances at {} into the account balances index", snapshot.getSize(),
+                snapshot.getConsensusTimestamp());
+        publish(snapshot);
+    }
+}
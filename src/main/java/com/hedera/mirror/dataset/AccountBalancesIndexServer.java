@@ -0,0 +1,133 @@
+package com.hedera.mirror.dataset;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.hedera.configLoader.ConfigLoader;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.log4j.Log4j2;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves the latest balance of an account from AccountBalancesIndex over HTTP, on the loopback interface only:
+ *
+ * GET /balances/0.0.2 returns {"timestamp":"1566336600.147998006","balances":[{"account":"0.0.2","balance":100}]},
+ * the same shape as the REST API's /api/v1/balances, or 404 if the account isn't in the latest set.
+ *
+ * Lookups are a hash table probe, so they are answered on the server's dispatcher thread.
+ */
+@Log4j2
+public final class AccountBalancesIndexServer implements AutoCloseable {
+    static final String PATH = "/balances/";
+
+    private final HttpServer server;
+    private final long systemShardNum = ConfigLoader.getSystemShardNum();
+
+    /**
+     * @param port to listen on, 0 for any free port
+     */
+    public AccountBalancesIndexServer(final int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(PATH, this::handle);
+        server.start();
+        log.info("Serving the latest account balances on {}", server.getAddress());
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "Method not allowed");
+                return;
+            }
+            final String body = balanceJson(AccountBalancesIndex.getLatest(),
+                    exchange.getRequestURI().getPath().substring(PATH.length()));
+            if (null == body) {
+                send(exchange, 404, "Not found");
+            } else {
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                send(exchange, 200, body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(final HttpExchange exchange, final int status, final String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * @param accountId shard.realm.num, or num in the system shard and realm 0
+     * @return the response for the account, or null if the account id is invalid or the account isn't in the balances
+     */
+    @Nullable String balanceJson(final @Nullable AccountBalancesSnapshot balances, final String accountId) {
+        if (null == balances) {
+            return null;
+        }
+        final String[] parts = accountId.split("\\.", -1);
+        final long shardNum;
+        final long realmNum;
+        final long accountNum;
+        try {
+            if (parts.length == 3) {
+                shardNum = Long.parseLong(parts[0]);
+                realmNum = Short.parseShort(parts[1]);
+                accountNum = Integer.parseInt(parts[2]);
+            } else if (parts.length == 1) {
+                shardNum = systemShardNum;
+                realmNum = 0;
+                accountNum = Integer.parseInt(parts[0]);
+            } else {
+                return null;
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        final int slot = shardNum == systemShardNum ?
+                balances.find(AccountBalancesSnapshot.account(realmNum, accountNum)) : -1;
+        if (slot < 0) {
+            return null;
+        }
+        final long timestamp = balances.getConsensusTimestamp();
+        return String.format("{\"timestamp\":\"%d.%09d\",\"balances\":[{\"account\":\"%d.%d.%d\",\"balance\":%d}]}",
+                Math.floorDiv(timestamp, 1_000_000_000L), Math.floorMod(timestamp, 1_000_000_000L),
+                shardNum, realmNum, accountNum, balances.balanceAt(slot));
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,152 @@
+package com.hedera.mirror.dataset;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import lombok.Getter;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * Balances of all the accounts of an account balance set, by account, kept in memory so that the next set can only
+ * store the balances that changed.
+ *
+ * Accounts are keyed by a long combining their realm and num (see account()), in an open addressing table of primitive
+ * arrays instead of a map of boxed longs, as a set holds an entry for every account.
+ */
+public final class AccountBalancesSnapshot {
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    @Getter
+    private final long consensusTimestamp;
+    // consensus timestamp of the full set the deltas up to this set are based on, null if this set is full
+    @Getter
+    private @Nullable Long baseConsensusTimestamp;
+    // number of delta sets since the full set, 0 if this set is full
+    @Getter
+    private int deltaCount;
+    private long[] accounts;
+    private long[] balances;
+    @Getter
+    private int size;
+
+    public AccountBalancesSnapshot(final long consensusTimestamp, final int expectedSize) {
+        this.consensusTimestamp = consensusTimestamp;
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        accounts = new long[capacity];
+        balances = new long[capacity];
+        Arrays.fill(accounts, EMPTY);
+    }
+
+    public static long account(final long realmNum, final long accountNum) {
+        return (realmNum << 32) | (accountNum & 0xffffffffL);
+    }
+
+    public static long realmNum(final long account) {
+        return account >> 32;
+    }
+
+    public static long accountNum(final long account) {
+        return (int)account;
+    }
+
+    /**
+     * Make this set a delta of the base set, or a full set if base is null.
+     */
+    public void setBase(final @Nullable AccountBalancesSnapshot base) {
+        if (null == base) {
+            baseConsensusTimestamp = null;
+            deltaCount = 0;
+        } else if (null == base.baseConsensusTimestamp) {
+            baseConsensusTimestamp = base.consensusTimestamp;
+            deltaCount = 1;
+        } else {
+            baseConsensusTimestamp = base.baseConsensusTimestamp;
+            deltaCount = base.deltaCount + 1;
+        }
+    }
+
+    public void put(final long account, final long balance) {
+        if ((size + 1) * 2 > accounts.length) {
+            resize();
+        }
+        int slot = slot(account, accounts);
+        if (accounts[slot] == EMPTY) {
+            accounts[slot] = account;
+            size++;
+        }
+        balances[slot] = balance;
+    }
+
+    /**
+     * @return the slot of the account, or -1 if the set doesn't have a balance for it
+     */
+    public int find(final long account) {
+        int slot = slot(account, accounts);
+        return accounts[slot] == EMPTY ? -1 : slot;
+    }
+
+    /**
+     * Iterate the set's slots: for (int slot = nextSlot(0); slot >= 0; slot = nextSlot(slot + 1))
+     * @return the first used slot from slot on, or -1 if there is none
+     */
+    public int nextSlot(int slot) {
+        for (; slot < accounts.length; slot++) {
+            if (accounts[slot] != EMPTY) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    public long accountAt(final int slot) {
+        return accounts[slot];
+    }
+
+    public long balanceAt(final int slot) {
+        return balances[slot];
+    }
+
+    private static int slot(final long account, final long[] accounts) {
+        final int mask = accounts.length - 1;
+        long hash = account * 0x9e3779b97f4a7c15L;
+        int slot = (int)(hash ^ (hash >>> 32)) & mask;
+        while (accounts[slot] != EMPTY && accounts[slot] != account) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        final long[] oldAccounts = accounts;
+        final long[] oldBalances = balances;
+        accounts = new long[oldAccounts.length * 2];
+        balances = new long[oldAccounts.length * 2];
+        Arrays.fill(accounts, EMPTY);
+        for (int i = 0; i < oldAccounts.length; i++) {
+            if (oldAccounts[i] != EMPTY) {
+                final int slot = slot(oldAccounts[i], accounts);
+                accounts[slot] = oldAccounts[i];
+                balances[slot] = oldBalances[i];
+            }
+        }
+    }
+}
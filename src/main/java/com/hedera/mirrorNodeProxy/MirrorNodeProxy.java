@@ -23,6 +23,8 @@ package com.hedera.mirrorNodeProxy;
 import com.hedera.configLoader.ConfigLoader;
 import com.hedera.mirrorservice.CryptoServiceMirror;
 import com.hedera.mirrorservice.FileServiceMirror;
+import com.hedera.mirrorservice.NodeChannelPool;
+import com.hedera.mirrorservice.ServiceAgent;
 import com.hedera.mirrorservice.SmartContractServiceMirror;
 import com.hedera.utilities.Utility;
 import com.hederahashgraph.api.proto.java.AccountID;
@@ -34,8 +36,12 @@ import io.grpc.netty.NettyServerBuilder;
 import lombok.extern.log4j.Log4j2;
 import org.apache.commons.lang3.tuple.Pair;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -46,7 +52,11 @@ public class MirrorNodeProxy {
 
 	private static String nodeInfoFile;
 
-	static HashMap<String, Pair<String, Integer>> accountIDHostPort;
+	static volatile HashMap<String, Pair<String, Integer>> accountIDHostPort;
+
+	private static volatile List<AccountID> nodeAccountIDs = Collections.emptyList();
+
+	private static long addressBookLastModified;
 
 	/**
 	 * server thread for Netty
@@ -61,7 +71,9 @@ public class MirrorNodeProxy {
 	}
 
 	public MirrorNodeProxy(int port) {
+		// calls are forwarded to the nodes without blocking, they don't need a thread pool of their own
 		server = NettyServerBuilder.forPort(port)
+				.directExecutor()
 				.addService(new CryptoServiceMirror())
 				.addService(new FileServiceMirror())
 				.addService(new SmartContractServiceMirror())
@@ -73,8 +85,13 @@ public class MirrorNodeProxy {
 			log.info("Netty server started");
 			Runtime.getRuntime().addShutdownHook(new Thread(this::shutdownNetty));
 			loadAccountIDHostPort();
-			while(true){
+			for (long i = 1; ; i++) {
 				Thread.sleep(5000);
+				reloadAccountIDHostPortIfChanged();
+				if (i % 12 == 0) {
+					// every minute
+					ServiceAgent.logStats();
+				}
 			}
 
 		} catch (Throwable t) {
@@ -82,8 +99,22 @@ public class MirrorNodeProxy {
 		}
 	}
 
+	/**
+	 * Reloads the nodes' hosts and ports when the address book file was modified,
+	 * the pooled channels to nodes that moved or were removed are closed
+	 */
+	static void reloadAccountIDHostPortIfChanged() {
+		long lastModified = new File(ConfigLoader.getAddressBookFile()).lastModified();
+		if (lastModified != addressBookLastModified) {
+			log.info("Address book {} changed, reloading", ConfigLoader.getAddressBookFile());
+			loadAccountIDHostPort();
+			NodeChannelPool.addressBookChanged();
+		}
+	}
+
 	public static void loadAccountIDHostPort() {
-		accountIDHostPort = new HashMap<>();
+		HashMap<String, Pair<String, Integer>> accountIDHostPort = new HashMap<>();
+		addressBookLastModified = new File(ConfigLoader.getAddressBookFile()).lastModified();
 		log.info("Loading nodes info from {}", nodeInfoFile);
 
 		try {
@@ -101,6 +132,20 @@ public class MirrorNodeProxy {
 		} catch (IOException ex) {
 			log.warn("Failed to load account IDs from {}", ConfigLoader.getAddressBookFile(), ex);
 		}
+		// replaced at once, calls in flight see either the old or the new address book
+		List<AccountID> nodeAccountIDs = new ArrayList<>();
+		for (String node : accountIDHostPort.keySet()) {
+			nodeAccountIDs.add(Utility.stringToAccountID(node));
+		}
+		MirrorNodeProxy.accountIDHostPort = accountIDHostPort;
+		MirrorNodeProxy.nodeAccountIDs = Collections.unmodifiableList(nodeAccountIDs);
+	}
+
+	/**
+	 * @return the account IDs of the nodes in the address book
+	 */
+	public static List<AccountID> getNodeAccountIDs() {
+		return nodeAccountIDs;
 	}
 
 	public static Pair<String, Integer> getHostPort(AccountID accountID) {
@@ -114,6 +159,7 @@ public class MirrorNodeProxy {
 	void shutdownNetty() {
 		try {
 			log.info("Netty server shutting down");
+			NodeChannelPool.shutdown();
 			this.server.awaitTermination(5, TimeUnit.SECONDS);
 		} catch (InterruptedException ex) {
 			log.error("Error shutting down netty", ex);
@@ -27,10 +27,9 @@ import com.hederahashgraph.api.proto.java.Response;
 import com.hederahashgraph.api.proto.java.Transaction;
 import com.hederahashgraph.api.proto.java.TransactionResponse;
 import com.hederahashgraph.service.proto.java.CryptoServiceGrpc;
-import io.grpc.ManagedChannel;
+import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import lombok.extern.log4j.Log4j2;
-import org.apache.commons.lang3.tuple.Pair;
 
 @Log4j2
 public class CryptoServiceMirror extends CryptoServiceGrpc.CryptoServiceImplBase {
@@ -48,11 +47,11 @@ public class CryptoServiceMirror extends CryptoServiceGrpc.CryptoServiceImplBase
 			String methodName) {
 		try {
 			AccountID nodeAccountID = ServiceAgent.extractNodeAccountID(request);
-			Pair<CryptoServiceGrpc.CryptoServiceBlockingStub, ManagedChannel> pair = ServiceAgent.getCryptoServiceStub(nodeAccountID);
-			ServiceAgent.rpcHelper_Tx(pair.getLeft(), pair.getRight(),
-					request, responseObserver, methodName);
+			ServiceAgent.forwardTransaction(CryptoServiceGrpc.SERVICE_NAME, methodName, nodeAccountID, request, responseObserver);
 		} catch (InvalidProtocolBufferException ex) {
 			log.error("Error parsing transaction body", ex);
+			responseObserver.onError(Status.INVALID_ARGUMENT.withDescription("Error parsing transaction body")
+					.asRuntimeException());
 		}
 	}
 
@@ -71,11 +70,11 @@ public class CryptoServiceMirror extends CryptoServiceGrpc.CryptoServiceImplBase
 		AccountID accountID = ServiceAgent.extractNodeAccountID(request);
 		if (accountID == null) {
 			log.error("Missing nodeAccountID, Query = {}", request);
+			responseObserver.onError(Status.INVALID_ARGUMENT.withDescription("Missing nodeAccountID")
+					.asRuntimeException());
 			return;
 		}
-		Pair<CryptoServiceGrpc.CryptoServiceBlockingStub, ManagedChannel> pair = ServiceAgent.getCryptoServiceStub(accountID);
-		ServiceAgent.rpcHelper_Query(pair.getLeft(), pair.getRight(),
-				request, responseObserver, methodName);
+		ServiceAgent.forwardQuery(CryptoServiceGrpc.SERVICE_NAME, methodName, accountID, request, responseObserver);
 	}
 
 	/**
@@ -27,10 +27,9 @@ import com.hederahashgraph.api.proto.java.Response;
 import com.hederahashgraph.api.proto.java.Transaction;
 import com.hederahashgraph.api.proto.java.TransactionResponse;
 import com.hederahashgraph.service.proto.java.FileServiceGrpc;
-import io.grpc.ManagedChannel;
+import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import lombok.extern.log4j.Log4j2;
-import org.apache.commons.lang3.tuple.Pair;
 
 @Log4j2
 public class FileServiceMirror extends FileServiceGrpc.FileServiceImplBase {
@@ -48,12 +47,12 @@ public class FileServiceMirror extends FileServiceGrpc.FileServiceImplBase {
 			String methodName) {
 		try {
 			AccountID nodeAccountID = ServiceAgent.extractNodeAccountID(request);
-			Pair<FileServiceGrpc.FileServiceBlockingStub, ManagedChannel> pair = ServiceAgent.getFileServiceStub(nodeAccountID);
-			ServiceAgent.rpcHelper_Tx(pair.getLeft(), pair.getRight(),
-					request, responseObserver, methodName);
+			ServiceAgent.forwardTransaction(FileServiceGrpc.SERVICE_NAME, methodName, nodeAccountID, request, responseObserver);
 
 		} catch (InvalidProtocolBufferException ex) {
 			log.error("Error parsing transaction body", ex);
+			responseObserver.onError(Status.INVALID_ARGUMENT.withDescription("Error parsing transaction body")
+					.asRuntimeException());
 		}
 	}
 
@@ -72,11 +71,11 @@ public class FileServiceMirror extends FileServiceGrpc.FileServiceImplBase {
 		AccountID accountID = ServiceAgent.extractNodeAccountID(request);
 		if (accountID == null) {
 			log.error("Missing nodeAccountID, Query = {}", request);
+			responseObserver.onError(Status.INVALID_ARGUMENT.withDescription("Missing nodeAccountID")
+					.asRuntimeException());
 			return;
 		}
-		Pair<FileServiceGrpc.FileServiceBlockingStub, ManagedChannel> pair = ServiceAgent.getFileServiceStub(accountID);
-		ServiceAgent.rpcHelper_Query(pair.getLeft(), pair.getRight(),
-				request, responseObserver, methodName);
+		ServiceAgent.forwardQuery(FileServiceGrpc.SERVICE_NAME, methodName, accountID, request, responseObserver);
 	}
 
 	/**
@@ -0,0 +1,162 @@
+package com.hedera.mirrorservice;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hedera.configLoader.ConfigLoader;
+import com.hedera.mirrorNodeProxy.MirrorNodeProxy;
+import com.hedera.utilities.Utility;
+import com.hederahashgraph.api.proto.java.AccountID;
+
+import io.grpc.ConnectivityState;
+import io.grpc.ManagedChannel;
+import io.grpc.netty.NettyChannelBuilder;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long lived gRPC channels to the nodes, one per node account ID, shared by all proxied calls to the node.
+ *
+ * A channel is rebuilt when it was shut down or failed to connect, or when the host or port of its node changed in the
+ * address book. Channels that were not used for proxyChannelIdleTimeout seconds are shut down by a background task,
+ * as are the channels of nodes that were removed from the address book.
+ */
+@Log4j2
+public class NodeChannelPool {
+
+	private static final Map<String, PooledChannel> channels = new ConcurrentHashMap<>();
+
+	private static final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(
+			new ThreadFactoryBuilder().setNameFormat("channel-evictor-%d").setDaemon(true).build());
+
+	static {
+		long period = Math.max(1, ConfigLoader.getProxyChannelIdleTimeout() / 2);
+		evictor.scheduleWithFixedDelay(NodeChannelPool::evictIdle, period, period, TimeUnit.SECONDS);
+	}
+
+	private NodeChannelPool() {
+	}
+
+	/**
+	 * @return the channel to the node
+	 * @throws IllegalArgumentException if the node is not in the address book
+	 */
+	public static ManagedChannel get(AccountID nodeAccountID) {
+		String node = Utility.accountIDToString(nodeAccountID);
+		Pair<String, Integer> hostPort = MirrorNodeProxy.getHostPort(nodeAccountID);
+		if (hostPort == null) {
+			throw new IllegalArgumentException("Node " + node + " is not in the address book");
+		}
+
+		// lastUsed is updated within compute, so that the evictor can't close a channel that was just handed out
+		PooledChannel pooled = channels.compute(node, (k, existing) -> {
+			if (existing != null && existing.isUsable(hostPort)) {
+				existing.lastUsed = System.nanoTime();
+				return existing;
+			}
+			if (existing != null) {
+				log.info("Rebuilding channel to node {} at {}:{}, it was {} to {}:{}", node, hostPort.getKey(), hostPort.getValue(),
+						existing.channel.getState(false), existing.host, existing.port);
+				existing.channel.shutdown();
+			} else {
+				log.debug("Building channel to node {} at {}:{}", node, hostPort.getKey(), hostPort.getValue());
+			}
+			return new PooledChannel(hostPort.getKey(), hostPort.getValue());
+		});
+		return pooled.channel;
+	}
+
+	/**
+	 * Shuts down the channels of nodes that are no longer in the address book, or whose host or port changed.
+	 * Called once the address book was reloaded.
+	 */
+	public static void addressBookChanged() {
+		channels.forEach((node, pooled) -> {
+			Pair<String, Integer> hostPort = MirrorNodeProxy.getHostPort(Utility.stringToAccountID(node));
+			if (hostPort == null || !pooled.isAt(hostPort)) {
+				log.info("Closing channel to node {} at {}:{}, the address book changed", node, pooled.host, pooled.port);
+				remove(node, pooled);
+			}
+		});
+	}
+
+	public static void shutdown() {
+		evictor.shutdownNow();
+		channels.forEach(NodeChannelPool::remove);
+	}
+
+	static void evictIdle() {
+		long idleSince = System.nanoTime() - TimeUnit.SECONDS.toNanos(ConfigLoader.getProxyChannelIdleTimeout());
+		for (String node : channels.keySet()) {
+			channels.computeIfPresent(node, (k, pooled) -> {
+				if (pooled.lastUsed - idleSince >= 0) {
+					return pooled;
+				}
+				log.debug("Closing idle channel to node {} at {}:{}", node, pooled.host, pooled.port);
+				pooled.channel.shutdown();
+				return null;
+			});
+		}
+	}
+
+	private static void remove(String node, PooledChannel pooled) {
+		if (channels.remove(node, pooled)) {
+			pooled.channel.shutdown();
+		}
+	}
+
+	private static class PooledChannel {
+		private final String host;
+		private final int port;
+		private final ManagedChannel channel;
+		private volatile long lastUsed;
+
+		PooledChannel(String host, int port) {
+			this.host = host;
+			this.port = port;
+			channel = NettyChannelBuilder
+					.forAddress(host, port)
+					.usePlaintext()
+					// responses are only passed on to the client's call
+					.directExecutor()
+					.build();
+			lastUsed = System.nanoTime();
+		}
+
+		boolean isAt(Pair<String, Integer> hostPort) {
+			return host.equals(hostPort.getKey()) && port == hostPort.getValue();
+		}
+
+		boolean isUsable(Pair<String, Integer> hostPort) {
+			if (!isAt(hostPort) || channel.isShutdown()) {
+				return false;
+			}
+			// a failed channel would wait for its reconnect backoff, a new one connects right away
+			return channel.getState(false) != ConnectivityState.TRANSIENT_FAILURE;
+		}
+	}
+}
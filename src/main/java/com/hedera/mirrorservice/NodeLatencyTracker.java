@@ -0,0 +1,222 @@
+package com.hedera.mirrorservice;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.hedera.utilities.Utility;
+import com.hederahashgraph.api.proto.java.AccountID;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Response times and errors of the calls proxied to each node, over the last {@value #WINDOW} calls to the node that
+ * are not older than the sample age.
+ *
+ * A node is healthy while at most maxErrorRate of its recent calls failed. Nodes are selected among the healthy ones:
+ * nodes without recent calls first, so that every node gets measured, otherwise the one with the lower median response
+ * time of two picked at random, which sends most calls to the fastest nodes without piling all of them onto one.
+ * A node without recent calls is only probed by one call at a time: while that call is in flight the node is passed
+ * over, so a node that accepts calls but doesn't answer them can't attract every call until the probe times out.
+ *
+ * Thread safe.
+ */
+public class NodeLatencyTracker {
+
+	static final int WINDOW = 128;
+
+	private final Map<String, NodeStats> stats = new ConcurrentHashMap<>();
+	private final long maxSampleAgeNanos;
+	private final double maxErrorRate;
+
+	/**
+	 * @param maxSampleAge seconds after which a call is no longer taken into account
+	 * @param maxErrorRate the largest share of failed recent calls of a healthy node
+	 */
+	public NodeLatencyTracker(long maxSampleAge, double maxErrorRate) {
+		this.maxSampleAgeNanos = TimeUnit.SECONDS.toNanos(maxSampleAge);
+		this.maxErrorRate = maxErrorRate;
+	}
+
+	/**
+	 * Counts a call sent to the node as in flight until it is recorded or abandoned
+	 */
+	public void started(AccountID node) {
+		stats.computeIfAbsent(Utility.accountIDToString(node), k -> new NodeStats()).inFlight.incrementAndGet();
+	}
+
+	public void record(AccountID node, long latencyNanos, boolean success) {
+		NodeStats nodeStats = stats.computeIfAbsent(Utility.accountIDToString(node), k -> new NodeStats());
+		nodeStats.finished();
+		nodeStats.record(latencyNanos, success);
+	}
+
+	/**
+	 * A call to the node ended without telling anything about the node, for instance it was cancelled
+	 */
+	public void abandoned(AccountID node) {
+		NodeStats nodeStats = stats.get(Utility.accountIDToString(node));
+		if (nodeStats != null) {
+			nodeStats.finished();
+		}
+	}
+
+	/**
+	 * @return the number of calls to the node that are in flight
+	 */
+	public int inFlight(AccountID node) {
+		NodeStats nodeStats = stats.get(Utility.accountIDToString(node));
+		return nodeStats == null ? 0 : nodeStats.inFlight.get();
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return the response time percentile of the recent successful calls to the node, or -1 if there are none
+	 */
+	public long percentile(AccountID node, double percentile) {
+		NodeStats nodeStats = stats.get(Utility.accountIDToString(node));
+		return nodeStats == null ? -1 : nodeStats.percentile(percentile, System.nanoTime() - maxSampleAgeNanos);
+	}
+
+	/**
+	 * @return the share of failed recent calls to the node, 0 if there are none
+	 */
+	public double errorRate(AccountID node) {
+		NodeStats nodeStats = stats.get(Utility.accountIDToString(node));
+		return nodeStats == null ? 0 : nodeStats.errorRate(System.nanoTime() - maxSampleAgeNanos);
+	}
+
+	public boolean isHealthy(AccountID node) {
+		return errorRate(node) <= maxErrorRate;
+	}
+
+	/**
+	 * @param nodes the nodes to select from
+	 * @param excluded a node not to select, or null
+	 * @return the selected node, or null if there is none besides the excluded one
+	 */
+	public AccountID select(List<AccountID> nodes, AccountID excluded) {
+		List<AccountID> candidates = new ArrayList<>(nodes.size());
+		List<AccountID> unmeasured = new ArrayList<>();
+		for (AccountID node : nodes) {
+			if (!node.equals(excluded) && isHealthy(node)) {
+				if (percentile(node, 50) >= 0) {
+					candidates.add(node);
+				} else if (inFlight(node) == 0) {
+					unmeasured.add(node);
+				}
+				// otherwise the node is being probed, wait for the probe's outcome
+			}
+		}
+
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		if (!unmeasured.isEmpty()) {
+			return unmeasured.get(random.nextInt(unmeasured.size()));
+		}
+		if (candidates.isEmpty()) {
+			// all nodes fail or are being probed, try any of them
+			List<AccountID> others = new ArrayList<>(nodes.size());
+			for (AccountID node : nodes) {
+				if (!node.equals(excluded)) {
+					others.add(node);
+				}
+			}
+			return others.isEmpty() ? null : others.get(random.nextInt(others.size()));
+		}
+		if (candidates.size() == 1) {
+			return candidates.get(0);
+		}
+		int first = random.nextInt(candidates.size());
+		int second = (first + 1 + random.nextInt(candidates.size() - 1)) % candidates.size();
+		AccountID a = candidates.get(first);
+		AccountID b = candidates.get(second);
+		return percentile(a, 50) <= percentile(b, 50) ? a : b;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		stats.forEach((node, nodeStats) -> {
+			long since = System.nanoTime() - maxSampleAgeNanos;
+			sb.append(String.format("%s%s p50 %.1fms, p95 %.1fms, %.1f%% errors", sb.length() == 0 ? "" : "; ", node,
+					nodeStats.percentile(50, since) / 1e6, nodeStats.percentile(95, since) / 1e6,
+					100 * nodeStats.errorRate(since)));
+		});
+		return sb.toString();
+	}
+
+	private static class NodeStats {
+		private final long[] times = new long[WINDOW];
+		private final long[] latencies = new long[WINDOW];
+		private final boolean[] failed = new boolean[WINDOW];
+		private final AtomicInteger inFlight = new AtomicInteger();
+		private int next = 0;
+		private int count = 0;
+
+		void finished() {
+			inFlight.updateAndGet(n -> Math.max(0, n - 1));
+		}
+
+		synchronized void record(long latencyNanos, boolean success) {
+			times[next] = System.nanoTime();
+			latencies[next] = latencyNanos;
+			failed[next] = !success;
+			next = (next + 1) % WINDOW;
+			count = Math.min(count + 1, WINDOW);
+		}
+
+		synchronized long percentile(double percentile, long since) {
+			long[] recent = new long[count];
+			int n = 0;
+			for (int i = 0; i < count; i++) {
+				if (!failed[i] && times[i] - since >= 0) {
+					recent[n++] = latencies[i];
+				}
+			}
+			if (n == 0) {
+				return -1;
+			}
+			Arrays.sort(recent, 0, n);
+			// nearest rank
+			int rank = Math.max(1, (int) Math.ceil(percentile / 100 * n));
+			return recent[Math.min(n, rank) - 1];
+		}
+
+		synchronized double errorRate(long since) {
+			int calls = 0;
+			int errors = 0;
+			for (int i = 0; i < count; i++) {
+				if (times[i] - since >= 0) {
+					calls++;
+					if (failed[i]) {
+						errors++;
+					}
+				}
+			}
+			return calls == 0 ? 0 : (double) errors / calls;
+		}
+	}
+}
@@ -0,0 +1,220 @@
+package com.hedera.mirrorservice;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hedera.utilities.Utility;
+import com.hederahashgraph.api.proto.java.AccountID;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import lombok.extern.log4j.Log4j2;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A unary call forwarded to a node, the node's response or error completes the client's call.
+ *
+ * A hedged call is sent again to another node when the first node did not answer within its 95th percentile response
+ * time. The first response completes the client's call and the other call is cancelled, an error completes it once
+ * no call is outstanding anymore. Only calls without side effects on the nodes may be hedged.
+ *
+ * Calls to the nodes have a deadline, so a node that doesn't answer is recorded as failing instead of never being
+ * measured.
+ */
+@Log4j2
+class ProxiedCall<ReqT, RespT> {
+
+	private static final ScheduledExecutorService hedgeScheduler = Executors.newSingleThreadScheduledExecutor(
+			new ThreadFactoryBuilder().setNameFormat("hedge-scheduler-%d").setDaemon(true).build());
+
+	private final String methodName;
+	private final MethodDescriptor<ReqT, RespT> method;
+	private final ReqT request;
+	private final StreamObserver<RespT> responseObserver;
+	private final Consumer<RespT> responseLogger;
+	private final NodeLatencyTracker latencyTracker;
+	private final Function<AccountID, Channel> channels;
+	private final long callTimeout;
+
+	private final AtomicBoolean completed = new AtomicBoolean();
+	private final AtomicInteger outstanding = new AtomicInteger();
+	private final List<ClientCall<ReqT, RespT>> calls = new CopyOnWriteArrayList<>();
+	private volatile ScheduledFuture<?> hedge;
+
+	ProxiedCall(String methodName, MethodDescriptor<ReqT, RespT> method, ReqT request,
+			StreamObserver<RespT> responseObserver, Consumer<RespT> responseLogger, NodeLatencyTracker latencyTracker,
+			Function<AccountID, Channel> channels, long callTimeout) {
+		this.methodName = methodName;
+		this.method = method;
+		this.request = request;
+		this.responseObserver = responseObserver;
+		this.responseLogger = responseLogger;
+		this.latencyTracker = latencyTracker;
+		this.channels = channels;
+		this.callTimeout = callTimeout;
+	}
+
+	/**
+	 * @param nodeAccountID the node to send the call to
+	 * @param hedgeNode selects the node to send the call to again if it is hedged, null if it isn't
+	 */
+	void start(AccountID nodeAccountID, Supplier<AccountID> hedgeNode) {
+		if (responseObserver instanceof ServerCallStreamObserver) {
+			// stop waiting on the nodes once the client gave up
+			((ServerCallStreamObserver<RespT>) responseObserver).setOnCancelHandler(() -> {
+				completed.set(true);
+				cancelHedge();
+				cancelCalls("Cancelled by the client", null);
+			});
+		}
+
+		try {
+			send(nodeAccountID);
+		} catch (IllegalArgumentException ex) {
+			log.error("Unable to forward {} : {}", methodName, ex.getMessage());
+			if (completed.compareAndSet(false, true)) {
+				responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(ex.getMessage()).asRuntimeException());
+			}
+			return;
+		}
+
+		long delay = hedgeNode != null ? latencyTracker.percentile(nodeAccountID, 95) : -1;
+		if (delay >= 0) {
+			hedge = hedgeScheduler.schedule(() -> sendHedge(nodeAccountID, hedgeNode.get()), delay, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private void sendHedge(AccountID nodeAccountID, AccountID hedgeNodeAccountID) {
+		if (completed.get() || hedgeNodeAccountID == null) {
+			return;
+		}
+		log.debug("{} : no answer from node {} yet, sending it to node {}", methodName,
+				Utility.accountIDToString(nodeAccountID), Utility.accountIDToString(hedgeNodeAccountID));
+		try {
+			send(hedgeNodeAccountID);
+		} catch (IllegalArgumentException ex) {
+			log.warn("Unable to hedge {} : {}", methodName, ex.getMessage());
+		}
+	}
+
+	private void send(AccountID nodeAccountID) {
+		ClientCall<ReqT, RespT> call = channels.apply(nodeAccountID).newCall(method,
+				CallOptions.DEFAULT.withDeadlineAfter(callTimeout, TimeUnit.SECONDS));
+		calls.add(call);
+		outstanding.incrementAndGet();
+		latencyTracker.started(nodeAccountID);
+		ClientCalls.asyncUnaryCall(call, request, new NodeObserver(nodeAccountID, call, System.nanoTime()));
+		if (completed.get()) {
+			// completed while it was being sent
+			call.cancel("Answered by another node", null);
+		}
+	}
+
+	private void cancelHedge() {
+		ScheduledFuture<?> scheduledHedge = hedge;
+		if (scheduledHedge != null) {
+			scheduledHedge.cancel(false);
+		}
+	}
+
+	private void cancelCalls(String message, ClientCall<ReqT, RespT> except) {
+		for (ClientCall<ReqT, RespT> call : calls) {
+			if (call != except) {
+				call.cancel(message, null);
+			}
+		}
+	}
+
+	private boolean isCancelled() {
+		return responseObserver instanceof ServerCallStreamObserver
+				&& ((ServerCallStreamObserver<RespT>) responseObserver).isCancelled();
+	}
+
+	/**
+	 * Passes the response of a node on to the client, unless another node answered first
+	 */
+	private class NodeObserver implements StreamObserver<RespT> {
+		private final AccountID nodeAccountID;
+		private final ClientCall<ReqT, RespT> call;
+		private final long startNanos;
+
+		NodeObserver(AccountID nodeAccountID, ClientCall<ReqT, RespT> call, long startNanos) {
+			this.nodeAccountID = nodeAccountID;
+			this.call = call;
+			this.startNanos = startNanos;
+		}
+
+		@Override
+		public void onNext(RespT response) {
+			latencyTracker.record(nodeAccountID, System.nanoTime() - startNanos, true);
+			if (!completed.compareAndSet(false, true)) {
+				return;
+			}
+			cancelHedge();
+			cancelCalls("Answered by another node", call);
+			responseLogger.accept(response);
+			if (!isCancelled()) {
+				responseObserver.onNext(response);
+				responseObserver.onCompleted();
+			}
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			Status status = Status.fromThrowable(t);
+			if (status.getCode() != Status.Code.CANCELLED) {
+				// including DEADLINE_EXCEEDED
+				latencyTracker.record(nodeAccountID, System.nanoTime() - startNanos, false);
+				log.warn("{} failed on node {} : {}", methodName, Utility.accountIDToString(nodeAccountID), status);
+			} else {
+				latencyTracker.abandoned(nodeAccountID);
+			}
+			if (outstanding.decrementAndGet() == 0 && completed.compareAndSet(false, true)) {
+				cancelHedge();
+				if (!isCancelled()) {
+					responseObserver.onError(t);
+				}
+			}
+		}
+
+		@Override
+		public void onCompleted() {
+			// the client's call is completed with the first response
+		}
+	}
+}
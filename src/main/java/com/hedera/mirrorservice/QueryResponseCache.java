@@ -0,0 +1,168 @@
+package com.hedera.mirrorservice;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.google.protobuf.ByteString;
+import com.hederahashgraph.api.proto.java.Query;
+import com.hederahashgraph.api.proto.java.QueryHeader;
+import com.hederahashgraph.api.proto.java.Response;
+import com.hederahashgraph.api.proto.java.ResponseCodeEnum;
+import com.hederahashgraph.api.proto.java.ResponseHeader;
+import com.hederahashgraph.api.proto.java.ResponseType;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded, least recently used cache of the nodes' responses to queries that don't carry a payment, with a time to
+ * live that depends on the type of the query:
+ * COST_ANSWER and COST_ANSWER_STATE_PROOF queries of any type, whose fees change rarely, and receipts of transactions
+ * that reached consensus, which don't change anymore. Responses with a precheck code other than OK, and receipts
+ * whose status is still UNKNOWN, are not cached.
+ * Paid queries always reach the node, it has to process their payment.
+ *
+ * Thread safe.
+ */
+public class QueryResponseCache {
+
+	public enum Policy {
+		COST_ANSWER,
+		RECEIPT
+	}
+
+	private final int capacity;
+	private final Map<Policy, Long> ttlNanos = new EnumMap<>(Policy.class);
+	private final Map<ByteString, CachedResponse> responses;
+
+	private final Map<Policy, long[]> hitsAndMisses = new EnumMap<>(Policy.class);
+
+	/**
+	 * @param capacity maximum number of entries
+	 * @param costAnswerTtl seconds cost answers are cached for
+	 * @param receiptTtl seconds receipts are cached for
+	 */
+	public QueryResponseCache(int capacity, long costAnswerTtl, long receiptTtl) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+		ttlNanos.put(Policy.COST_ANSWER, TimeUnit.SECONDS.toNanos(costAnswerTtl));
+		ttlNanos.put(Policy.RECEIPT, TimeUnit.SECONDS.toNanos(receiptTtl));
+		for (Policy policy : Policy.values()) {
+			hitsAndMisses.put(policy, new long[2]);
+		}
+		responses = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ByteString, CachedResponse> eldest) {
+				return size() > QueryResponseCache.this.capacity;
+			}
+		};
+	}
+
+	/**
+	 * @return the policy the response to the query is cached with, or null if it is not cacheable
+	 */
+	public Policy policy(Query query, QueryHeader queryHeader) {
+		if (queryHeader == null || queryHeader.hasPayment()) {
+			return null;
+		}
+		if (queryHeader.getResponseType() == ResponseType.COST_ANSWER
+				|| queryHeader.getResponseType() == ResponseType.COST_ANSWER_STATE_PROOF) {
+			return Policy.COST_ANSWER;
+		}
+		if (query.hasTransactionGetReceipt()) {
+			return Policy.RECEIPT;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the cached response to the query, or null
+	 */
+	public synchronized Response get(Policy policy, Query query) {
+		ByteString key = query.toByteString();
+		CachedResponse cached = responses.get(key);
+		long[] counts = hitsAndMisses.get(policy);
+		if (cached != null && cached.expiresAt - System.nanoTime() > 0) {
+			counts[0]++;
+			return cached.response;
+		}
+		if (cached != null) {
+			responses.remove(key);
+		}
+		counts[1]++;
+		return null;
+	}
+
+	/**
+	 * Caches the node's response to the query if the policy allows it
+	 */
+	public void put(Policy policy, Query query, Response response) {
+		ResponseHeader responseHeader = ServiceAgent.extractResponseHeader(response);
+		if (responseHeader == null || responseHeader.getNodeTransactionPrecheckCode() != ResponseCodeEnum.OK) {
+			return;
+		}
+		if (policy == Policy.RECEIPT && (!response.hasTransactionGetReceipt()
+				|| response.getTransactionGetReceipt().getReceipt().getStatus() == ResponseCodeEnum.UNKNOWN)) {
+			// not reached consensus yet
+			return;
+		}
+		long expiresAt = System.nanoTime() + ttlNanos.get(policy);
+		synchronized (this) {
+			responses.put(query.toByteString(), new CachedResponse(response, expiresAt));
+		}
+	}
+
+	public synchronized int size() {
+		return responses.size();
+	}
+
+	public synchronized long getHits(Policy policy) {
+		return hitsAndMisses.get(policy)[0];
+	}
+
+	public synchronized long getMisses(Policy policy) {
+		return hitsAndMisses.get(policy)[1];
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder sb = new StringBuilder(String.format("%d/%d entries", responses.size(), capacity));
+		hitsAndMisses.forEach((policy, counts) -> {
+			long lookups = counts[0] + counts[1];
+			sb.append(String.format(", %s %d hits, %d misses (%.1f%% hit rate)", policy, counts[0], counts[1],
+					lookups == 0 ? 0.0 : 100.0 * counts[0] / lookups));
+		});
+		return sb.toString();
+	}
+
+	private static class CachedResponse {
+		private final Response response;
+		private final long expiresAt;
+
+		CachedResponse(Response response, long expiresAt) {
+			this.response = response;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
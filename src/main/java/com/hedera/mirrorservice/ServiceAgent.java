@@ -21,12 +21,14 @@ package com.hedera.mirrorservice;
  */
 
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.hedera.configLoader.ConfigLoader;
 import com.hedera.mirrorNodeProxy.MirrorNodeProxy;
 import com.hedera.utilities.Utility;
 import com.hederahashgraph.api.proto.java.AccountID;
 import com.hederahashgraph.api.proto.java.Query;
 import com.hederahashgraph.api.proto.java.QueryHeader;
 import com.hederahashgraph.api.proto.java.Response;
+import com.hederahashgraph.api.proto.java.ResponseHeader;
 import com.hederahashgraph.api.proto.java.ResponseType;
 import com.hederahashgraph.api.proto.java.Transaction;
 import com.hederahashgraph.api.proto.java.TransactionBody;
@@ -36,18 +38,51 @@ import com.hederahashgraph.service.proto.java.FileServiceGrpc;
 import com.hederahashgraph.service.proto.java.SmartContractServiceGrpc;
 
 import io.grpc.ManagedChannel;
-import io.grpc.netty.NettyChannelBuilder;
-import io.grpc.stub.AbstractStub;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServiceDescriptor;
+import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @Log4j2
 public class ServiceAgent {
 
+	// seconds after which a call no longer counts towards the response times and error rate of a node
+	private static final long NODE_STATS_MAX_AGE = 60;
+	// nodes with a larger share of failed calls are not selected for queries without payment
+	private static final double NODE_MAX_ERROR_RATE = 0.5;
+
+	private static final QueryResponseCache queryResponseCache = ConfigLoader.getProxyQueryCacheSize() > 0
+			? new QueryResponseCache(ConfigLoader.getProxyQueryCacheSize(), ConfigLoader.getProxyCostAnswerCacheTtl(),
+					ConfigLoader.getProxyReceiptCacheTtl())
+			: null;
+
+	// response times and errors of the calls to each node
+	private static final NodeLatencyTracker latencyTracker = new NodeLatencyTracker(NODE_STATS_MAX_AGE, NODE_MAX_ERROR_RATE);
+
+	// method descriptors of the proxied services, by service and stub method name
+	private static final Map<String, MethodDescriptor<?, ?>> methods = new HashMap<>();
+
+	static {
+		for (ServiceDescriptor service : List.of(CryptoServiceGrpc.getServiceDescriptor(),
+				FileServiceGrpc.getServiceDescriptor(), SmartContractServiceGrpc.getServiceDescriptor())) {
+			for (MethodDescriptor<?, ?> method : service.getMethods()) {
+				// the mirrors use the stub's method names, the lower camel case of the proto's
+				String fullMethodName = method.getFullMethodName();
+				String stubMethodName = StringUtils.uncapitalize(fullMethodName.substring(fullMethodName.lastIndexOf('/') + 1));
+				methods.put(MethodDescriptor.generateFullMethodName(service.getName(), stubMethodName), method);
+			}
+		}
+	}
+
 	public static AccountID getDefaultNodeAccountID() {
 		return AccountID.newBuilder().setAccountNum(3).build();
 	}
@@ -103,22 +138,21 @@ public class ServiceAgent {
 
 	/**
 	 * Extract the nodeAccountID in payment in the QueryHeader of each Query,
-	 * If the Query doesn't contain any payment, we return the default node AccountID
+	 * If the Query doesn't contain any payment, we return the node selected by {@link #selectNode}, or the default node AccountID
 	 * @param query
 	 * @return AccountID
 	 */
 	public static AccountID extractNodeAccountID(final Query query) {
-		QueryHeader queryHeader;
-		// Get the specific Query object contained in this Query Message
-		Object field = getOneOfField(query);
-		// Call getHeader() method of the specific Query object
+		QueryHeader queryHeader = extractQueryHeader(query);
+		if (queryHeader == null) {
+			return null;
+		}
 		try {
-			Method getHeaderMethod = field.getClass().getMethod("getHeader");
-			queryHeader = (QueryHeader) getHeaderMethod.invoke(field);
 			if (queryHeader.hasPayment()) {
 				return Utility.getTransactionBody(queryHeader.getPayment()).getNodeAccountID();
 			}
-			return getDefaultNodeAccountID();
+			AccountID selected = selectNode(null);
+			return selected != null ? selected : getDefaultNodeAccountID();
 
 		} catch (Exception ex) {
 			log.error("Error extracting node account ID", ex);
@@ -127,6 +161,37 @@ public class ServiceAgent {
 		return null;
 	}
 
+	/**
+	 * @return the QueryHeader of the specific Query object contained in the Query Message, or null
+	 */
+	static QueryHeader extractQueryHeader(final Query query) {
+		// Get the specific Query object contained in this Query Message
+		Object field = getOneOfField(query);
+		// Call getHeader() method of the specific Query object
+		try {
+			Method getHeaderMethod = field.getClass().getMethod("getHeader");
+			return (QueryHeader) getHeaderMethod.invoke(field);
+		} catch (Exception ex) {
+			log.error("Error extracting query header", ex);
+		}
+		return null;
+	}
+
+	/**
+	 * @return the ResponseHeader of the specific response contained in the Response Message, or null
+	 */
+	static ResponseHeader extractResponseHeader(final Response response) {
+		Object field = response.getField(response.getDescriptorForType()
+				.findFieldByNumber(response.getResponseCase().getNumber()));
+		try {
+			Method getHeaderMethod = field.getClass().getMethod("getHeader");
+			return (ResponseHeader) getHeaderMethod.invoke(field);
+		} catch (Exception ex) {
+			log.error("Error extracting response header", ex);
+		}
+		return null;
+	}
+
 	static AccountID extractNodeAccountID(final QueryHeader queryHeader) throws InvalidProtocolBufferException {
 		if (queryHeader.hasPayment()) {
 			return TransactionBody.parseFrom(queryHeader.getPayment().getBodyBytes()).getNodeAccountID();
@@ -138,112 +203,109 @@ public class ServiceAgent {
 		return MirrorNodeProxy.getHostPort(nodeAccountID);
 	}
 
-	static ManagedChannel buildManagedChannel(final String host, final int port) {
-		return NettyChannelBuilder
-				.forAddress(host, port)
-				.usePlaintext()
-				.build();
-	}
-
-	static ManagedChannel buildManagedChannel(final AccountID nodeAccountID) {
-		Pair<String, Integer> hostPort = getHostPortForNode(nodeAccountID);
-		return NettyChannelBuilder
-				.forAddress(hostPort.getKey(), hostPort.getValue())
-				.usePlaintext()
-				.build();
+	/**
+	 * @return the pooled channel to the node, it is shared and must not be shut down by the caller
+	 */
+	static ManagedChannel getManagedChannel(final AccountID nodeAccountID) {
+		return NodeChannelPool.get(nodeAccountID);
 	}
 
 	/**
-	 * call remote service method;
-	 * send Transaction;
-	 * get the TransactionResponse;
-	 * return to clients.
-	 * @param stub
-	 * @param channel
+	 * Forwards a Transaction to the node without blocking: the node's TransactionResponse, or error, completes the
+	 * client's call from the channel's callback.
+	 * @param serviceName name of the grpc service of the method, e.g. CryptoServiceGrpc.SERVICE_NAME
+	 * @param methodName name of the method which we want to call remotely
+	 * @param nodeAccountID
 	 * @param request
 	 * @param responseObserver
-	 * @param methodName name of the method which we want to call remotely
 	 */
-	static void rpcHelper_Tx(final AbstractStub stub,
-			final ManagedChannel channel,
+	static void forwardTransaction(final String serviceName,
+			final String methodName,
+			final AccountID nodeAccountID,
 			final Transaction request,
-			final StreamObserver<TransactionResponse> responseObserver,
-			final String methodName) {
-		try {
-			AccountID nodeAccountID = extractNodeAccountID(request);
-			Class blockingStubClass = stub.getClass();
-			Method method = blockingStubClass.getMethod(methodName, request.getClass());
-			// call rpc function and get TransactionResponse
-			TransactionResponse response = (TransactionResponse) method.invoke(stub, request);
-			// shutdown the ManagedChannel
-			channel.shutdown();
-			ServiceAgent.logInfo(request, nodeAccountID, response, methodName);
-			// return response to Clients
-			responseObserver.onNext(response);
-			responseObserver.onCompleted();
-		} catch (InvalidProtocolBufferException ex) {
-			log.error("rpcHelper_Tx : Transaction body parsing exception", ex);
-		} catch (NoSuchMethodException ex) {
-			log.error("rpcHelper_Tx : NoSuchMethodException", ex);
-		} catch (IllegalAccessException ex) {
-			log.error("rpcHelper_Tx : IllegalAccessException", ex);
-		} catch (InvocationTargetException ex) {
-			log.error("rpcHelper_Tx : InvocationTargetException", ex.getCause());
-		}
+			final StreamObserver<TransactionResponse> responseObserver) {
+		// transactions are never hedged, they would reach consensus twice
+		forward(serviceName, methodName, nodeAccountID, request, responseObserver, response -> {
+			try {
+				logInfo(request, nodeAccountID, response, methodName);
+			} catch (InvalidProtocolBufferException ex) {
+				log.error("forwardTransaction : Transaction body parsing exception", ex);
+			}
+		}, false);
 	}
 
 	/**
-	 * call remote service method;
-	 * send Query;
-	 * get the Response;
-	 * return to clients.
-	 * @param stub
-	 * @param channel
+	 * Forwards a Query to the node without blocking: the node's Response, or error, completes the client's call from
+	 * the channel's callback.
+	 * With proxyHedgeQueries, a query without payment is hedged: sent again to another node if the node did not answer
+	 * within its 95th percentile response time.
+	 * @param serviceName name of the grpc service of the method, e.g. CryptoServiceGrpc.SERVICE_NAME
+	 * @param methodName name of the method which we want to call remotely
+	 * @param nodeAccountID
 	 * @param request
 	 * @param responseObserver
-	 * @param methodName name of the method which we want to call remotely
 	 */
-
-	static void rpcHelper_Query(final AbstractStub stub,
-			final ManagedChannel channel,
+	static void forwardQuery(final String serviceName,
+			final String methodName,
+			final AccountID nodeAccountID,
 			final Query request,
-			final StreamObserver<Response> responseObserver,
-			final String methodName) {
-		try {
-			AccountID nodeAccountID = extractNodeAccountID(request);
-			Class blockingStubClass = stub.getClass();
-			Method method = blockingStubClass.getMethod(methodName, request.getClass());
-			// call rpc function and get TransactionResponse
-			Response response = (Response) method.invoke(stub, request);
-			// shutdown the ManagedChannel
-			channel.shutdown();
-			ServiceAgent.logInfo(request, nodeAccountID, response, methodName);
-			// return response to Clients
-			responseObserver.onNext(response);
-			responseObserver.onCompleted();
-		} catch (NoSuchMethodException ex) {
-			log.error("rpcHelper_Query : NoSuchMethodException", ex);
-		} catch (IllegalAccessException ex) {
-			log.error("rpcHelper_Query : IllegalAccessException", ex);
-		} catch (InvocationTargetException ex) {
-			log.error("rpcHelper_Query : InvocationTargetException", ex);
+			final StreamObserver<Response> responseObserver) {
+		QueryHeader queryHeader = extractQueryHeader(request);
+		QueryResponseCache.Policy policy = queryResponseCache != null
+				? queryResponseCache.policy(request, queryHeader) : null;
+		if (policy != null) {
+			Response cached = queryResponseCache.get(policy, request);
+			if (cached != null) {
+				log.debug("{} answered from the cache", methodName);
+				responseObserver.onNext(cached);
+				responseObserver.onCompleted();
+				return;
+			}
 		}
-	}
-
 
-	static Pair<CryptoServiceGrpc.CryptoServiceBlockingStub, ManagedChannel> getCryptoServiceStub(final AccountID nodeAccountID) {
-		final ManagedChannel channel = buildManagedChannel(nodeAccountID);
-		return Pair.of(CryptoServiceGrpc.newBlockingStub(channel), channel);
+		forward(serviceName, methodName, nodeAccountID, request, responseObserver, response -> {
+			logInfo(request, nodeAccountID, response, methodName);
+			if (policy != null) {
+				queryResponseCache.put(policy, request, response);
+			}
+		}, ConfigLoader.getProxyHedgeQueries() && queryHeader != null && !queryHeader.hasPayment());
 	}
 
-	static Pair<FileServiceGrpc.FileServiceBlockingStub, ManagedChannel> getFileServiceStub(final AccountID nodeAccountID) {
-		final ManagedChannel channel = buildManagedChannel(nodeAccountID);
-		return Pair.of(FileServiceGrpc.newBlockingStub(channel), channel);
+	public static void logStats() {
+		log.info("Node response times: {}", latencyTracker);
+		if (queryResponseCache != null) {
+			log.info("Query response cache: {}", queryResponseCache);
+		}
 	}
 
-	static Pair<SmartContractServiceGrpc.SmartContractServiceBlockingStub, ManagedChannel> getContractServiceStub(final AccountID nodeAccountID) {
-		final ManagedChannel channel = buildManagedChannel(nodeAccountID);
-		return Pair.of(SmartContractServiceGrpc.newBlockingStub(channel), channel);
+	@SuppressWarnings("unchecked")
+	private static <ReqT, RespT> void forward(final String serviceName,
+			final String methodName,
+			final AccountID nodeAccountID,
+			final ReqT request,
+			final StreamObserver<RespT> responseObserver,
+			final Consumer<RespT> responseLogger,
+			final boolean hedged) {
+		MethodDescriptor<ReqT, RespT> method = (MethodDescriptor<ReqT, RespT>) methods.get(
+				MethodDescriptor.generateFullMethodName(serviceName, methodName));
+		if (method == null) {
+			log.error("Unknown method {} of service {}", methodName, serviceName);
+			responseObserver.onError(Status.UNIMPLEMENTED.withDescription(methodName).asRuntimeException());
+			return;
+		}
+
+		new ProxiedCall<>(methodName, method, request, responseObserver, responseLogger, latencyTracker,
+				ServiceAgent::getManagedChannel, ConfigLoader.getProxyCallTimeout())
+				.start(nodeAccountID, hedged ? () -> selectNode(nodeAccountID) : null);
 	}
 
+	/**
+	 * Selects the node to send a query without payment to, among the healthy nodes of the address book the faster one
+	 * of two picked at random
+	 * @param excluded a node not to select, or null
+	 * @return the selected node, or null if there is none besides the excluded one
+	 */
+	static AccountID selectNode(final AccountID excluded) {
+		return latencyTracker.select(MirrorNodeProxy.getNodeAccountIDs(), excluded);
+	}
 }
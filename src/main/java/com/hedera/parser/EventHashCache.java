@@ -0,0 +1,144 @@
+package com.hedera.parser;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * t_events ids of recent events keyed on their hash, used to resolve the parents of the events being loaded without a
+ * database round trip.
+ *
+ * Parents are almost always a few generations below their children, so the cache keeps the events of the
+ * {@code generations} generations below the highest generation seen. Older events are evicted when an event file is
+ * committed, events of the current file are never evicted before then.
+ *
+ * Not thread safe.
+ */
+public class EventHashCache {
+
+	static final long NOT_FOUND = -1L;
+
+	private final long generations;
+	private final Map<ByteBuffer, Entry> entries = new HashMap<>();
+	// keys cached since the last commit, evicted on rollback as the events they point at may not exist anymore
+	private final List<ByteBuffer> uncommitted = new ArrayList<>();
+	private long maxGeneration = Long.MIN_VALUE;
+
+	private long hits = 0;
+	private long misses = 0;
+
+	/**
+	 * @param generations number of generations below the highest one that are kept
+	 */
+	public EventHashCache(long generations) {
+		if (generations < 0) {
+			throw new IllegalArgumentException("Generations must not be negative: " + generations);
+		}
+		this.generations = generations;
+	}
+
+	/**
+	 * @return the cached id, or {@link #NOT_FOUND}
+	 */
+	public long get(byte[] hash) {
+		Entry entry = entries.get(ByteBuffer.wrap(hash));
+		if (entry == null) {
+			misses++;
+			return NOT_FOUND;
+		}
+		hits++;
+		return entry.id;
+	}
+
+	/**
+	 * @param hash the event's hash, not copied so it must not be modified afterwards
+	 */
+	public void put(byte[] hash, long id, long generation) {
+		ByteBuffer key = ByteBuffer.wrap(hash);
+		if (entries.put(key, new Entry(id, generation)) == null) {
+			uncommitted.add(key);
+		}
+		maxGeneration = Math.max(maxGeneration, generation);
+	}
+
+	/**
+	 * To be called once the events cached since the last commit or rollback have been committed, evicts the events
+	 * that are too old
+	 */
+	public void commit() {
+		uncommitted.clear();
+		if (maxGeneration - generations > Long.MIN_VALUE) {
+			long oldest = maxGeneration - generations;
+			entries.values().removeIf(entry -> entry.generation < oldest);
+		}
+	}
+
+	/**
+	 * To be called when the events cached since the last commit or rollback have been rolled back
+	 */
+	public void rollback() {
+		for (ByteBuffer key : uncommitted) {
+			entries.remove(key);
+		}
+		uncommitted.clear();
+		maxGeneration = Long.MIN_VALUE;
+		for (Entry entry : entries.values()) {
+			maxGeneration = Math.max(maxGeneration, entry.generation);
+		}
+	}
+
+	public void clear() {
+		entries.clear();
+		uncommitted.clear();
+		maxGeneration = Long.MIN_VALUE;
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d entries, %d hits, %d misses", entries.size(), hits, misses);
+	}
+
+	private static class Entry {
+		private final long id;
+		private final long generation;
+
+		Entry(long id, long generation) {
+			this.id = id;
+			this.generation = generation;
+		}
+	}
+}
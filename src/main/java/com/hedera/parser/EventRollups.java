@@ -0,0 +1,310 @@
+package com.hedera.parser;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per minute and creator node rollups of events, the in memory counterpart of the event_rollups and
+ * event_latency_buckets tables.
+ *
+ * The event parser adds the events of a file and adds the rollups to the tables in the same transaction as the
+ * events. Latencies are kept in a histogram of {@link #BUCKETS} buckets, values below {@value #SUB_BUCKETS} have their
+ * own bucket and larger values are split in {@value #SUB_BUCKETS} buckets per power of two, so percentiles are
+ * estimated within 1/{@value #SUB_BUCKETS}th of their value.
+ *
+ * Not thread safe.
+ */
+public class EventRollups {
+
+	static final long MINUTE_NS = 60_000_000_000L;
+	static final int SUB_BUCKETS = 8;
+	static final int BUCKETS = latencyBucket(Long.MAX_VALUE) + 1;
+
+	private final Map<Key, Rollup> rollups = new HashMap<>();
+	// reused to look rollups up, a key is only allocated for a new rollup
+	private final Key probe = new Key(0, 0);
+
+	/**
+	 * Adds an event to the rollup of the minute it was created in and the rollup of the minute it reached consensus in
+	 */
+	public void add(long creatorNodeId, long createdNanos, long consensusNanos, int platformTxCount, int appTxCount,
+			long latencyNanos) {
+		get(minute(createdNanos), creatorNodeId).createdCount++;
+		Rollup consensus = get(minute(consensusNanos), creatorNodeId);
+		consensus.addConsensus(1, platformTxCount, appTxCount, latencyNanos, latencyNanos, latencyNanos);
+		consensus.addBucket(latencyBucket(latencyNanos), 1);
+	}
+
+	public boolean isEmpty() {
+		return rollups.isEmpty();
+	}
+
+	public int size() {
+		return rollups.size();
+	}
+
+	public void clear() {
+		rollups.clear();
+	}
+
+	/**
+	 * Adds the rollups to the ones in the database, and clears them
+	 * @throws SQLException
+	 */
+	public void write(Connection connect) throws SQLException {
+		if (rollups.isEmpty()) {
+			return;
+		}
+		try (PreparedStatement upsertRollup = connect.prepareStatement(
+				"insert into event_rollups (minute_timestamp, creator_node_id, created_count, consensus_count, " +
+						"platform_tx_count, app_tx_count, latency_sum_ns, latency_min_ns, latency_max_ns) " +
+						"values (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+						"on conflict (minute_timestamp, creator_node_id) do update set " +
+						"created_count = event_rollups.created_count + excluded.created_count, " +
+						"consensus_count = event_rollups.consensus_count + excluded.consensus_count, " +
+						"platform_tx_count = event_rollups.platform_tx_count + excluded.platform_tx_count, " +
+						"app_tx_count = event_rollups.app_tx_count + excluded.app_tx_count, " +
+						"latency_sum_ns = event_rollups.latency_sum_ns + excluded.latency_sum_ns, " +
+						"latency_min_ns = least(event_rollups.latency_min_ns, excluded.latency_min_ns), " +
+						"latency_max_ns = greatest(event_rollups.latency_max_ns, excluded.latency_max_ns)");
+			 PreparedStatement upsertBucket = connect.prepareStatement(
+					 "insert into event_latency_buckets (minute_timestamp, creator_node_id, bucket, event_count) " +
+							 "values (?, ?, ?, ?) " +
+							 "on conflict (minute_timestamp, creator_node_id, bucket) do update set " +
+							 "event_count = event_latency_buckets.event_count + excluded.event_count")) {
+			for (Map.Entry<Key, Rollup> entry : rollups.entrySet()) {
+				Key key = entry.getKey();
+				Rollup rollup = entry.getValue();
+				upsertRollup.setLong(1, key.minute);
+				upsertRollup.setLong(2, key.creatorNodeId);
+				upsertRollup.setLong(3, rollup.createdCount);
+				upsertRollup.setLong(4, rollup.consensusCount);
+				upsertRollup.setLong(5, rollup.platformTxCount);
+				upsertRollup.setLong(6, rollup.appTxCount);
+				upsertRollup.setLong(7, rollup.latencySum);
+				if (rollup.consensusCount > 0) {
+					upsertRollup.setLong(8, rollup.latencyMin);
+					upsertRollup.setLong(9, rollup.latencyMax);
+				} else {
+					upsertRollup.setNull(8, Types.BIGINT);
+					upsertRollup.setNull(9, Types.BIGINT);
+				}
+				upsertRollup.addBatch();
+
+				if (rollup.histogram != null) {
+					for (int bucket = 0; bucket < BUCKETS; bucket++) {
+						if (rollup.histogram[bucket] > 0) {
+							upsertBucket.setLong(1, key.minute);
+							upsertBucket.setLong(2, key.creatorNodeId);
+							upsertBucket.setInt(3, bucket);
+							upsertBucket.setLong(4, rollup.histogram[bucket]);
+							upsertBucket.addBatch();
+						}
+					}
+				}
+			}
+			upsertRollup.executeBatch();
+			upsertBucket.executeBatch();
+		}
+		rollups.clear();
+	}
+
+	private Rollup get(long minute, long creatorNodeId) {
+		probe.minute = minute;
+		probe.creatorNodeId = creatorNodeId;
+		Rollup rollup = rollups.get(probe);
+		if (rollup == null) {
+			rollup = new Rollup();
+			rollups.put(new Key(minute, creatorNodeId), rollup);
+		}
+		return rollup;
+	}
+
+	/**
+	 * @return the start of the minute the timestamp is in
+	 */
+	static long minute(long nanos) {
+		return Math.floorDiv(nanos, MINUTE_NS) * MINUTE_NS;
+	}
+
+	/**
+	 * Must match f_latency_bucket in the database
+	 * @return the histogram bucket of a latency, negative latencies are in the first bucket
+	 */
+	static int latencyBucket(long latencyNanos) {
+		if (latencyNanos < SUB_BUCKETS) {
+			return (int)Math.max(latencyNanos, 0);
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(latencyNanos);
+		return (exponent - 2) * SUB_BUCKETS + (int)((latencyNanos >>> (exponent - 3)) & (SUB_BUCKETS - 1));
+	}
+
+	/**
+	 * @return the smallest latency in the bucket
+	 */
+	static long bucketLowerBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = bucket / SUB_BUCKETS + 2;
+		return (long)(SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - 3);
+	}
+
+	/**
+	 * @return the largest latency in the bucket
+	 */
+	static long bucketUpperBound(int bucket) {
+		return bucket == BUCKETS - 1 ? Long.MAX_VALUE : bucketLowerBound(bucket + 1) - 1;
+	}
+
+	/**
+	 * Counts, latencies and latency histogram of the events of a minute, or of a longer period once rollups are
+	 * merged
+	 */
+	public static class Rollup {
+		private long createdCount;
+		private long consensusCount;
+		private long platformTxCount;
+		private long appTxCount;
+		private long latencySum;
+		private long latencyMin = Long.MAX_VALUE;
+		private long latencyMax = Long.MIN_VALUE;
+		private long[] histogram;
+
+		void addCreated(long count) {
+			createdCount += count;
+		}
+
+		void addConsensus(long count, long platformTxCount, long appTxCount, long latencySum, long latencyMin,
+				long latencyMax) {
+			if (count <= 0) {
+				return;
+			}
+			consensusCount += count;
+			this.platformTxCount += platformTxCount;
+			this.appTxCount += appTxCount;
+			this.latencySum += latencySum;
+			this.latencyMin = Math.min(this.latencyMin, latencyMin);
+			this.latencyMax = Math.max(this.latencyMax, latencyMax);
+		}
+
+		void addBucket(int bucket, long count) {
+			if (histogram == null) {
+				histogram = new long[BUCKETS];
+			}
+			histogram[bucket] += count;
+		}
+
+		public long getCreatedCount() {
+			return createdCount;
+		}
+
+		public long getConsensusCount() {
+			return consensusCount;
+		}
+
+		public long getPlatformTxCount() {
+			return platformTxCount;
+		}
+
+		public long getAppTxCount() {
+			return appTxCount;
+		}
+
+		/**
+		 * @return the smallest latency, or 0 if no event reached consensus
+		 */
+		public long getLatencyMin() {
+			return consensusCount > 0 ? latencyMin : 0;
+		}
+
+		/**
+		 * @return the largest latency, or 0 if no event reached consensus
+		 */
+		public long getLatencyMax() {
+			return consensusCount > 0 ? latencyMax : 0;
+		}
+
+		/**
+		 * @return the mean latency, or 0 if no event reached consensus
+		 */
+		public long getLatencyMean() {
+			return consensusCount > 0 ? latencySum / consensusCount : 0;
+		}
+
+		/**
+		 * Estimates the latency percentile from the histogram, as the middle of the bucket of the event of rank
+		 * ceil(percentile * count) bounded by the smallest and largest latency
+		 *
+		 * @param percentile between 0 and 1
+		 * @return the estimated latency, or 0 if no event reached consensus
+		 */
+		public long getLatencyPercentile(double percentile) {
+			if (consensusCount == 0 || histogram == null) {
+				return 0;
+			}
+			long rank = Math.max(1, (long)Math.ceil(percentile * consensusCount));
+			long seen = 0;
+			for (int bucket = 0; bucket < BUCKETS; bucket++) {
+				seen += histogram[bucket];
+				if (seen >= rank) {
+					long lower = bucketLowerBound(bucket);
+					long middle = lower + (bucketUpperBound(bucket) - lower) / 2;
+					return Math.max(getLatencyMin(), Math.min(getLatencyMax(), middle));
+				}
+			}
+			return getLatencyMax();
+		}
+	}
+
+	private static class Key {
+		private long minute;
+		private long creatorNodeId;
+
+		Key(long minute, long creatorNodeId) {
+			this.minute = minute;
+			this.creatorNodeId = creatorNodeId;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key key = (Key)o;
+			return minute == key.minute && creatorNodeId == key.creatorNodeId;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * Long.hashCode(minute) + Long.hashCode(creatorNodeId);
+		}
+	}
+}
@@ -28,6 +28,12 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
+/**
+ * Event statistics over periods of consensus or creation time.
+ *
+ * The whole minutes of a period are read from the event_rollups and event_latency_buckets tables maintained by the
+ * event parser, only the partial minutes at the start and the end of the period are aggregated from t_events.
+ */
 @Log4j2
 public class EventStreamAnalytics {
 
@@ -41,19 +47,7 @@ public class EventStreamAnalytics {
 	 * Count the number of Created Events during the period
 	 */
 	public long getCreatedEventsCount(long periodStartInNanos, long periodEndInNanos) throws SQLException {
-		PreparedStatement query = connect.prepareStatement(
-				"SELECT COUNT(*) FROM t_events WHERE created_timestamp_ns >= ? AND created_timestamp_ns <= ?");
-		query.setLong(1, periodStartInNanos);
-		query.setLong(2, periodEndInNanos);
-		query.execute();
-		ResultSet resultSet = query.getResultSet();
-		long count = 0;
-		if (resultSet.next()) {
-			count = resultSet.getLong(1);
-		}
-		resultSet.close();
-		query.close();
-		return count;
+		return getCreatedRollup(periodStartInNanos, periodEndInNanos, null).getCreatedCount();
 	}
 
 	/**
@@ -61,40 +55,14 @@ public class EventStreamAnalytics {
 	 */
 	public long getCreatedEventsCountForNode(long periodStartInNanos, long periodEndInNanos,
 			long nodeId) throws SQLException {
-		PreparedStatement query = connect.prepareStatement(
-				"SELECT COUNT(*) FROM t_events WHERE created_timestamp_ns >= ? AND created_timestamp_ns <= ? AND " +
-						"creator_node_id = ?");
-		query.setLong(1, periodStartInNanos);
-		query.setLong(2, periodEndInNanos);
-		query.setLong(3, nodeId);
-		query.execute();
-		ResultSet resultSet = query.getResultSet();
-		long count = 0;
-		if (resultSet.next()) {
-			count = resultSet.getLong(1);
-		}
-		resultSet.close();
-		query.close();
-		return count;
+		return getCreatedRollup(periodStartInNanos, periodEndInNanos, nodeId).getCreatedCount();
 	}
 
 	/**
 	 * Count the number of Events which reach consensus during the period
 	 */
 	public long getConsensusEventsCount(long periodStartInNanos, long periodEndInNanos) throws SQLException {
-		PreparedStatement query = connect.prepareStatement(
-				"SELECT COUNT(*) FROM t_events WHERE consensus_timestamp_ns >= ? AND consensus_timestamp_ns <= ?");
-		query.setLong(1, periodStartInNanos);
-		query.setLong(2, periodEndInNanos);
-		query.execute();
-		ResultSet resultSet = query.getResultSet();
-		long count = 0;
-		if (resultSet.next()) {
-			count = resultSet.getLong(1);
-		}
-		resultSet.close();
-		query.close();
-		return count;
+		return getConsensusRollup(periodStartInNanos, periodEndInNanos, null, false).getConsensusCount();
 	}
 
 	/**
@@ -102,21 +70,7 @@ public class EventStreamAnalytics {
 	 */
 	public long getConsensusEventsCountForNode(long periodStartInNanos, long periodEndInNanos,
 			long nodeId) throws SQLException {
-		PreparedStatement query = connect.prepareStatement(
-				"SELECT COUNT(*) FROM t_events WHERE consensus_timestamp_ns >= ? AND consensus_timestamp_ns <= ? AND " +
-						"creator_node_id = ?");
-		query.setLong(1, periodStartInNanos);
-		query.setLong(2, periodEndInNanos);
-		query.setLong(3, nodeId);
-		query.execute();
-		ResultSet resultSet = query.getResultSet();
-		long count = 0;
-		if (resultSet.next()) {
-			count = resultSet.getLong(1);
-		}
-		resultSet.close();
-		query.close();
-		return count;
+		return getConsensusRollup(periodStartInNanos, periodEndInNanos, nodeId, false).getConsensusCount();
 	}
 
 	/**
@@ -130,26 +84,13 @@ public class EventStreamAnalytics {
 	 */
 	public long[] getSysAppTxsCountInConsensusEventsForNode(long periodStartInNanos, long periodEndInNanos,
 			long nodeId) throws SQLException {
-		PreparedStatement query = connect.prepareStatement(
-				"SELECT SUM(platform_tx_count), SUM(app_tx_count) FROM t_events WHERE consensus_timestamp_ns >= ? AND " +
-						"consensus_timestamp_ns <= ? AND creator_node_id = ?");
-		query.setLong(1, periodStartInNanos);
-		query.setLong(2, periodEndInNanos);
-		query.setLong(3, nodeId);
-		query.execute();
-		ResultSet resultSet = query.getResultSet();
-		long[] count = new long[2];
-		if (resultSet.next()) {
-			count[0] = resultSet.getLong(1);
-			count[1] = resultSet.getLong(2);
-		}
-		resultSet.close();
-		query.close();
-		return count;
+		EventRollups.Rollup rollup = getConsensusRollup(periodStartInNanos, periodEndInNanos, nodeId, false);
+		return new long[] {rollup.getPlatformTxCount(), rollup.getAppTxCount()};
 	}
 
 	/**
 	 * get the min, max, median latency for all events that reached consensus in a given time window, per node
+	 * The median is estimated from the latency histogram, see {@link EventRollups}
 	 *
 	 * @param periodStartInNanos
 	 * @param periodEndInNanos
@@ -159,28 +100,12 @@ public class EventStreamAnalytics {
 	 */
 	public long[] getLatencyStatsForNode(long periodStartInNanos, long periodEndInNanos,
 			long nodeId) throws SQLException {
-		PreparedStatement query = connect.prepareStatement(
-				"SELECT MIN(latency_ns), MAX(latency_ns), percentile_disc(0.5) within GROUP (ORDER BY latency_ns) FROM " +
-						"t_events WHERE consensus_timestamp_ns >= ? AND " +
-						"consensus_timestamp_ns <= ? AND creator_node_id = ?");
-		query.setLong(1, periodStartInNanos);
-		query.setLong(2, periodEndInNanos);
-		query.setLong(3, nodeId);
-		query.execute();
-		ResultSet resultSet = query.getResultSet();
-		long[] latencies = new long[3];
-		if (resultSet.next()) {
-			latencies[0] = resultSet.getLong(1);
-			latencies[1] = resultSet.getLong(2);
-			latencies[2] = resultSet.getLong(3);
-		}
-		resultSet.close();
-		query.close();
-		return latencies;
+		return latencyStats(getConsensusRollup(periodStartInNanos, periodEndInNanos, nodeId, true));
 	}
 
 	/**
 	 * get the min, max, median latency for all events that reached consensus in a given time window
+	 * The median is estimated from the latency histogram, see {@link EventRollups}
 	 *
 	 * @param periodStartInNanos
 	 * @param periodEndInNanos
@@ -188,23 +113,149 @@ public class EventStreamAnalytics {
 	 * @throws SQLException
 	 */
 	public long[] getLatencyStats(long periodStartInNanos, long periodEndInNanos) throws SQLException {
-		PreparedStatement query = connect.prepareStatement(
-				"SELECT MIN(latency_ns), MAX(latency_ns), percentile_disc(0.5) within GROUP (ORDER BY latency_ns) FROM " +
-						"t_events WHERE consensus_timestamp_ns >= ? AND " +
-						"consensus_timestamp_ns <= ?");
-		query.setLong(1, periodStartInNanos);
-		query.setLong(2, periodEndInNanos);
-		query.execute();
-		ResultSet resultSet = query.getResultSet();
-		long[] latencies = new long[3];
+		return latencyStats(getConsensusRollup(periodStartInNanos, periodEndInNanos, null, true));
+	}
+
+	private static long[] latencyStats(EventRollups.Rollup rollup) {
+		return new long[] {rollup.getLatencyMin(), rollup.getLatencyMax(), rollup.getLatencyPercentile(0.5)};
+	}
+
+	/**
+	 * @param nodeId the creator node, or null for all nodes
+	 * @return the rollup of the events created during the period
+	 */
+	private EventRollups.Rollup getCreatedRollup(long periodStartInNanos, long periodEndInNanos, Long nodeId)
+			throws SQLException {
+		Period period = new Period(periodStartInNanos, periodEndInNanos);
+		EventRollups.Rollup rollup = new EventRollups.Rollup();
+		if (period.hasMinutes()) {
+			try (PreparedStatement query = period.prepareMinutes(
+					"SELECT SUM(created_count) FROM event_rollups WHERE ", nodeId, "");
+				 ResultSet resultSet = query.executeQuery()) {
+				if (resultSet.next()) {
+					rollup.addCreated(resultSet.getLong(1));
+				}
+			}
+		}
+		try (PreparedStatement query = period.prepareEdges("SELECT COUNT(*) FROM t_events WHERE ",
+				"created_timestamp_ns", nodeId, "");
+			 ResultSet resultSet = query.executeQuery()) {
+			if (resultSet.next()) {
+				rollup.addCreated(resultSet.getLong(1));
+			}
+		}
+		return rollup;
+	}
+
+	/**
+	 * @param nodeId the creator node, or null for all nodes
+	 * @param histogram whether the latency histogram is needed
+	 * @return the rollup of the events that reached consensus during the period
+	 */
+	private EventRollups.Rollup getConsensusRollup(long periodStartInNanos, long periodEndInNanos, Long nodeId,
+			boolean histogram) throws SQLException {
+		Period period = new Period(periodStartInNanos, periodEndInNanos);
+		EventRollups.Rollup rollup = new EventRollups.Rollup();
+		if (period.hasMinutes()) {
+			try (PreparedStatement query = period.prepareMinutes(
+					"SELECT SUM(consensus_count), SUM(platform_tx_count), SUM(app_tx_count), SUM(latency_sum_ns), " +
+							"MIN(latency_min_ns), MAX(latency_max_ns) FROM event_rollups WHERE ", nodeId, "");
+				 ResultSet resultSet = query.executeQuery()) {
+				addConsensus(rollup, resultSet);
+			}
+			if (histogram) {
+				try (PreparedStatement query = period.prepareMinutes(
+						"SELECT bucket, SUM(event_count) FROM event_latency_buckets WHERE ", nodeId, " GROUP BY bucket");
+					 ResultSet resultSet = query.executeQuery()) {
+					addBuckets(rollup, resultSet);
+				}
+			}
+		}
+		try (PreparedStatement query = period.prepareEdges(
+				"SELECT COUNT(*), SUM(platform_tx_count), SUM(app_tx_count), SUM(latency_ns), MIN(latency_ns), " +
+						"MAX(latency_ns) FROM t_events WHERE ", "consensus_timestamp_ns", nodeId, "");
+			 ResultSet resultSet = query.executeQuery()) {
+			addConsensus(rollup, resultSet);
+		}
+		if (histogram) {
+			try (PreparedStatement query = period.prepareEdges(
+					"SELECT f_latency_bucket(latency_ns), COUNT(*) FROM t_events WHERE ", "consensus_timestamp_ns",
+					nodeId, " GROUP BY 1");
+				 ResultSet resultSet = query.executeQuery()) {
+				addBuckets(rollup, resultSet);
+			}
+		}
+		return rollup;
+	}
+
+	private static void addConsensus(EventRollups.Rollup rollup, ResultSet resultSet) throws SQLException {
 		if (resultSet.next()) {
-			latencies[0] = resultSet.getLong(1);
-			latencies[1] = resultSet.getLong(2);
-			latencies[2] = resultSet.getLong(3);
+			rollup.addConsensus(resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3),
+					resultSet.getLong(4), resultSet.getLong(5), resultSet.getLong(6));
+		}
+	}
+
+	private static void addBuckets(EventRollups.Rollup rollup, ResultSet resultSet) throws SQLException {
+		while (resultSet.next()) {
+			rollup.addBucket(resultSet.getInt(1), resultSet.getLong(2));
+		}
+	}
+
+	/**
+	 * A period split into the whole minutes it covers, answered from the rollups, and the partial minutes at its
+	 * edges, answered from t_events. Bounds are inclusive, as in the public methods.
+	 */
+	private static class Period {
+		// [start, minutesStart) and [minutesEnd, end) are the edges, [minutesStart, minutesEnd) the whole minutes
+		private final long start;
+		private final long minutesStart;
+		private final long minutesEnd;
+		private final long end;
+
+		Period(long periodStartInNanos, long periodEndInNanos) {
+			start = periodStartInNanos;
+			end = periodEndInNanos == Long.MAX_VALUE ? periodEndInNanos : periodEndInNanos + 1;
+			long firstMinute = EventRollups.minute(start);
+			long wholeMinutesStart = firstMinute == start ? start : firstMinute + EventRollups.MINUTE_NS;
+			long wholeMinutesEnd = EventRollups.minute(end);
+			if (wholeMinutesStart < wholeMinutesEnd) {
+				minutesStart = wholeMinutesStart;
+				minutesEnd = wholeMinutesEnd;
+			} else {
+				minutesStart = end;
+				minutesEnd = end;
+			}
+		}
+
+		boolean hasMinutes() {
+			return minutesStart < minutesEnd;
+		}
+
+		PreparedStatement prepareMinutes(String select, Long nodeId, String suffix) throws SQLException {
+			PreparedStatement query = connect.prepareStatement(select +
+					"minute_timestamp >= ? AND minute_timestamp < ?" +
+					(nodeId != null ? " AND creator_node_id = ?" : "") + suffix);
+			query.setLong(1, minutesStart);
+			query.setLong(2, minutesEnd);
+			if (nodeId != null) {
+				query.setLong(3, nodeId);
+			}
+			return query;
+		}
+
+		PreparedStatement prepareEdges(String select, String column, Long nodeId, String suffix) throws SQLException {
+			PreparedStatement query = connect.prepareStatement(select +
+					"((" + column + " >= ? AND " + column + " < ?) OR (" + column + " >= ? AND " + column + " < ?))" +
+					(nodeId != null ? " AND creator_node_id = ?" : "") + suffix);
+			query.setLong(1, start);
+			query.setLong(2, minutesStart);
+			query.setLong(3, minutesEnd);
+			query.setLong(4, end);
+			if (nodeId != null) {
+				query.setLong(5, nodeId);
+			}
+			return query;
 		}
-		resultSet.close();
-		query.close();
-		return latencies;
 	}
 
 	public static void main(String[] args) throws SQLException {
@@ -25,24 +25,21 @@ import com.hedera.configLoader.ConfigLoader;
 import com.hedera.configLoader.ConfigLoader.OPERATION_TYPE;
 import com.hedera.databaseUtilities.ApplicationStatus;
 import com.hedera.databaseUtilities.DatabaseUtilities;
-import com.hedera.platform.Transaction;
+import com.hedera.databaseUtilities.SequenceBlockAllocator;
 import com.hedera.utilities.Utility;
 
 import lombok.extern.log4j.Log4j2;
 import org.apache.commons.codec.binary.Hex;
 
-import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.security.MessageDigest;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
-import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -50,21 +47,26 @@ import java.util.stream.Collectors;
 @Log4j2
 public class EventStreamFileParser {
 
-	private static final byte TYPE_PREV_HASH = 1;       // next 48 bytes are hash384 or previous files
-	private static final byte EVENT_STREAM_FILE_VERSION_CURRENT = 3;
+	static final byte TYPE_PREV_HASH = 1;       // next 48 bytes are hash384 or previous files
 	private static final byte EVENT_STREAM_FILE_VERSION_LEGACY = 2;
-	private static final byte STREAM_EVENT_VERSION = 2;
 	private static final byte STREAM_EVENT_START_NO_TRANS_WITH_VERSION = 0x5b;
 	private static final byte STREAM_EVENT_START_WITH_VERSION = 0x5a;
-	private static final byte commEventLast = 0x46;
 
 	private static Connection connect = null;
+	private static PreparedStatement insertEvent = null;
+	private static PreparedStatement selectEventId = null;
+	private static int insertEventBatchCount = 0;
+
+	private static final SequenceBlockAllocator eventIds =
+			new SequenceBlockAllocator("s_events_id_seq", ConfigLoader.getEventBatchSize());
+	// kept across parse runs, the events it points at are committed
+	private static final EventHashCache eventHashes = new EventHashCache(ConfigLoader.getEventCacheGenerations());
+	// rollups of the events of the file being loaded, added to event_rollups with its events
+	private static final EventRollups eventRollups = new EventRollups();
 
 	private static final Long PARENT_HASH_NULL = null;
 	private static final long PARENT_HASH_NOT_FOUND_MATCH = -2;
 
-	private static final String HASH_ALGORITHM = "SHA-384";
-
 	private enum LoadResult {
 		OK, STOP, ERROR
 	}
@@ -84,13 +86,23 @@ public class EventStreamFileParser {
 	 * @throws Exception 
 	 */
 	static public LoadResult loadEventStreamFile(String fileName, String previousFileHash) throws Exception {
+		LoadResult result = readEventStreamFile(fileName, previousFileHash);
+		if (result != LoadResult.OK) {
+			rollback();
+		}
+		return result;
+	}
+
+	/**
+	 * Reads the events of a file and stores them, the events are committed only if the file is loaded successfully
+	 */
+	private static LoadResult readEventStreamFile(String fileName, String previousFileHash) throws Exception {
 
 		File file = new File(fileName);
 		String readPrevFileHash;
-		// for >= version3, we need to calculate hash for content;
-		boolean calculateContentHash = false;
+		String thisFileHash;
 
-		// MessageDigest for getting the file Hash
+		// the reader hashes the file as it is read:
 		// suppose file[i] = p[i] || h[i] || c[i];
 		// p[i] denotes the bytes before previousFileHash;
 		// h[i] denotes the hash of file i - 1, i.e., previousFileHash;
@@ -98,11 +110,6 @@ public class EventStreamFileParser {
 		// '||' means concatenation
 		// for Version2, h[i + 1] = hash(p[i] || h[i] || c[i]);
 		// for Version3, h[i + 1] = hash(p[i] || h[i] || hash(c[i]))
-		MessageDigest md;
-
-		// is only used in Version3, for getting the Hash for content after prevFileHash in current file, i.e., hash
-		// (c[i])
-		MessageDigest mdForContent = null;
 
 		if (file.exists() == false) {
 			log.info("File does not exist {}", fileName);
@@ -111,30 +118,25 @@ public class EventStreamFileParser {
 
 		Stopwatch stopwatch = Stopwatch.createStarted();
 
-		try (DataInputStream dis = new DataInputStream(new FileInputStream(file))) {
-			md = MessageDigest.getInstance(HASH_ALGORITHM);
+		try {
+			EventStreamFileReader reader = new EventStreamFileReader(file);
+			// filled by every event of the file
+			EventStreamFileReader.Event event = new EventStreamFileReader.Event();
 
 			long counter = 0;
-			int eventStreamFileVersion = dis.readInt();
-			md.update(Utility.integerToBytes(eventStreamFileVersion));
+			int eventStreamFileVersion = reader.getVersion();
 
 			log.debug("Loading event file {} with version {}", fileName, eventStreamFileVersion);
 			if (eventStreamFileVersion < EVENT_STREAM_FILE_VERSION_LEGACY) {
 				log.error("EventStream file format version doesn't match.");
 				return LoadResult.ERROR;
-			} else if (eventStreamFileVersion >= EVENT_STREAM_FILE_VERSION_CURRENT) {
-				mdForContent = MessageDigest.getInstance(HASH_ALGORITHM);
-				calculateContentHash = true;
 			}
 
-			while (dis.available() != 0) {
-				byte typeDelimiter = dis.readByte();
+			while (reader.hasRemaining()) {
+				byte typeDelimiter = reader.nextType();
 				switch (typeDelimiter) {
 					case TYPE_PREV_HASH:
-						md.update(typeDelimiter);
-						byte[] readPrevFileHashBytes = new byte[48];
-						dis.readFully(readPrevFileHashBytes);
-						md.update(readPrevFileHashBytes);
+						byte[] readPrevFileHashBytes = reader.readPrevHash();
 						if (previousFileHash.isEmpty()) {
 							log.error("Previous file hash not available");
 							previousFileHash = Hex.encodeHexString(readPrevFileHashBytes);
@@ -152,30 +154,14 @@ public class EventStreamFileParser {
 						break;
 
 					case STREAM_EVENT_START_NO_TRANS_WITH_VERSION:
-						if (calculateContentHash) {
-							mdForContent.update(typeDelimiter);
-							if (!loadEvent(dis, mdForContent, true)) {
-								return LoadResult.STOP;
-							}
-						} else {
-							md.update(typeDelimiter);
-							if (!loadEvent(dis, md, true)) {
-								return LoadResult.STOP;
-							}
+						if (!loadEvent(reader, event, true)) {
+							return LoadResult.STOP;
 						}
 						counter++;
 						break;
 					case STREAM_EVENT_START_WITH_VERSION:
-						if (calculateContentHash) {
-							mdForContent.update(typeDelimiter);
-							if (!loadEvent(dis, mdForContent, false)) {
-								return LoadResult.STOP;
-							}
-						} else {
-							md.update(typeDelimiter);
-							if (!loadEvent(dis, md, false)) {
-								return LoadResult.STOP;
-							}
+						if (!loadEvent(reader, event, false)) {
+							return LoadResult.STOP;
 						}
 						counter++;
 						break;
@@ -183,174 +169,111 @@ public class EventStreamFileParser {
 						log.error("Unknown record file delimiter {} for file", typeDelimiter, file);
 				}
 			}
+			thisFileHash = Utility.bytesToHex(reader.getFileHash());
 			log.info("Loaded {} events successfully from {} in {}", counter, fileName, stopwatch);
 		} catch (Exception e) {
 			log.error("Error parsing event file {} after {}", fileName, stopwatch, e);
 			return LoadResult.ERROR;
 		}
 
-		if (calculateContentHash) {
-			byte[] contentHash = mdForContent.digest();
-			md.update(contentHash);
+		try {
+			flushEvents();
+			eventRollups.write(connect);
+			connect.commit();
+			eventHashes.commit();
+		} catch (SQLException e) {
+			log.error("Error committing events of file {}", fileName, e);
+			return LoadResult.ERROR;
 		}
-		String thisFileHash = Utility.bytesToHex(md.digest());
+		log.debug("Event hash cache: {}", eventHashes);
 
 		applicationStatus.updateLastProcessedEventHash(thisFileHash);
 		return LoadResult.OK;
 	}
 
-	static boolean loadEvent(DataInputStream dis, MessageDigest md, boolean noTxs) throws IOException {
-		if (dis.readInt() != STREAM_EVENT_VERSION) {
-			log.error("EventStream format version doesn't match.");
+	static boolean loadEvent(EventStreamFileReader reader, EventStreamFileReader.Event event, boolean noTxs) throws IOException {
+		if (!reader.readEvent(event, noTxs)) {
 			return false;
 		}
-		md.update(Utility.integerToBytes(STREAM_EVENT_VERSION));
-
-		long creatorId = dis.readLong();
-		md.update(Utility.longToBytes(creatorId));
-
-		long creatorSeq = dis.readLong();
-		md.update(Utility.longToBytes(creatorSeq));
-
-		long otherId = dis.readLong();
-		md.update(Utility.longToBytes(otherId));
-
-		long otherSeq = dis.readLong();
-		md.update(Utility.longToBytes(otherSeq));
-
-		long selfParentGen = dis.readLong();
-		md.update(Utility.longToBytes(selfParentGen));
-
-		long otherParentGen = dis.readLong();
-		md.update(Utility.longToBytes(otherParentGen));
-
-		byte[] selfParentHash = readNullableByteArray(dis, md);
-		byte[] otherParentHash = readNullableByteArray(dis, md);
-
-		//counts[0] denotes the number of bytes in the Transaction Array
-		//counts[1] denotes the number of system Transactions
-		//counts[2] denotes the number of application Transactions
-		int[] counts = new int[3];
-
-		Transaction[] transactions = new Transaction[0];
-		if (!noTxs) {
-			transactions = Transaction.readArray(dis, counts, md);
-		}
-
-		Instant timeCreated = readInstant(dis);
-		md.update(Utility.instantToBytes(timeCreated));
-
-		byte[] signature = readByteArray(dis, md);
-		if (dis.readByte() != commEventLast) {
-			log.warn("Event end marker incorrect");
-			return false;
-		}
-		md.update(commEventLast);
-
-		// event's hash
-		byte[] hash = readByteArray(dis, md);
-
-		Instant consensusTimeStamp = readInstant(dis);
-		md.update(Utility.instantToBytes(consensusTimeStamp));
-
-		long consensusOrder = dis.readLong();
-		md.update(Utility.longToBytes(consensusOrder));
 
 		if (log.isTraceEnabled()) {
 			log.trace("Loaded Event: creatorId: {}, creatorSeq: {}, otherId: {}, otherSeq: {}, selfParentGen: {}, " +
-							"otherParentGen: {}, selfParentHash: {}, otherParentHash: {}, transactions: {}, timeCreated: " +
-							"{}, signature: {}, hash: {}, consensusTimeStamp: {}, consensusOrder: {}",
-					creatorId, creatorSeq, otherId, otherSeq, selfParentGen, otherParentGen,
-					Utility.bytesToHex(selfParentHash), Utility.bytesToHex(otherParentHash), transactions, timeCreated,
-					Utility.bytesToHex(signature), Utility.bytesToHex(hash), consensusTimeStamp, consensusOrder);
+							"otherParentGen: {}, selfParentHash: {}, otherParentHash: {}, txsBytesCount: {}, " +
+							"platformTxCount: {}, appTxCount: {}, timeCreated: {}, signature: {}, hash: {}, " +
+							"consensusTimeStamp: {}, consensusOrder: {}",
+					event.getCreatorId(), event.getCreatorSeq(), event.getOtherId(), event.getOtherSeq(),
+					event.getSelfParentGen(), event.getOtherParentGen(), Utility.bytesToHex(event.getSelfParentHash()),
+					Utility.bytesToHex(event.getOtherParentHash()), event.getTxsBytesCount(),
+					event.getPlatformTxCount(), event.getAppTxCount(), event.getTimeCreatedNanos(),
+					Utility.bytesToHex(event.getSignature()), Utility.bytesToHex(event.getHash()),
+					event.getConsensusTimestampNanos(), event.getConsensusOrder());
 		}
 
-		if (storeEvent(creatorId, creatorSeq, otherId, otherSeq, selfParentGen, otherParentGen, selfParentHash,
-				otherParentHash, counts, timeCreated, signature, hash, consensusTimeStamp, consensusOrder)) {
-			return true;
-		} else {
-			return false;
-		}
+		return storeEvent(event);
 	}
 
 	/**
 	 * Store parsed Event information into database
 	 *
-	 * @param creatorId
-	 * @param creatorSeq
-	 * @param otherId
-	 * @param otherSeq
-	 * @param selfParentGen
-	 * @param otherParentGen
-	 * @param selfParentHash
-	 * @param otherParentHash
-	 * @param txCounts
-	 * @param timeCreated
-	 * @param signature
-	 * @param hash
-	 * @param consensusTimeStamp
-	 * @param consensusOrder
+	 * @param event
 	 * @return
 	 */
-	static boolean storeEvent(long creatorId, long creatorSeq, long otherId, long otherSeq, long selfParentGen,
-			long otherParentGen, byte[] selfParentHash, byte[] otherParentHash, int[] txCounts,
-			Instant timeCreated, byte[] signature, byte[] hash, Instant consensusTimeStamp, long consensusOrder) {
+	static boolean storeEvent(EventStreamFileReader.Event event) {
 		try {
-			long generation = Math.max(selfParentGen, otherParentGen) + 1;
+			long generation = event.getGeneration();
 			Long self_parent_id = null;
-			if (selfParentHash != null) {
-				self_parent_id = getIdForParent(selfParentHash, "selfParentHash");
+			if (event.getSelfParentHash() != null) {
+				self_parent_id = getIdForParent(event.getSelfParentHash(), event.getSelfParentGen(), "selfParentHash");
 			}
 			Long other_parent_id = null;
-			if (otherParentHash != null) {
-				other_parent_id = getIdForParent(otherParentHash, "otherParentHash");
+			if (event.getOtherParentHash() != null) {
+				other_parent_id = getIdForParent(event.getOtherParentHash(), event.getOtherParentGen(), "otherParentHash");
 			}
 
-			int txsBytesCount = txCounts[0];
-			int platformTxCount = txCounts[1];
-			int appTxCount = txCounts[2];
-
-			long timeCreatedInNanos = Utility.convertInstantToNanos(timeCreated);
-			long consensusTimestampInNanos = Utility.convertInstantToNanos(consensusTimeStamp);
-			PreparedStatement insertEvent = connect.prepareStatement(
-					"insert into t_events (consensus_order, creator_node_id, creator_seq, other_node_id, other_seq, " +
-							"self_parent_generation, other_parent_generation, generation, self_parent_id, " +
-							"other_parent_id, created_timestamp_ns, signature, consensus_timestamp_ns, " +
-							"txs_bytes_count, platform_tx_count, app_tx_count, latency_ns, hash, self_parent_hash, " +
-							"other_parent_hash) "
-							+ " values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ");
-
-			insertEvent.setLong(1, consensusOrder);
-			insertEvent.setLong(2, creatorId);
-			insertEvent.setLong(3, creatorSeq);
-			insertEvent.setLong(4, otherId);
-			insertEvent.setLong(5, otherSeq);
-			insertEvent.setLong(6, selfParentGen);
-			insertEvent.setLong(7, otherParentGen);
-			insertEvent.setLong(8, generation);
+			long timeCreatedInNanos = event.getTimeCreatedNanos();
+			long consensusTimestampInNanos = event.getConsensusTimestampNanos();
+			long consensusOrder = event.getConsensusOrder();
+			byte[] hash = event.getHash();
+			long id = eventIds.next(connect);
+
+			insertEvent.setLong(1, id);
+			insertEvent.setLong(2, consensusOrder);
+			insertEvent.setLong(3, event.getCreatorId());
+			insertEvent.setLong(4, event.getCreatorSeq());
+			insertEvent.setLong(5, event.getOtherId());
+			insertEvent.setLong(6, event.getOtherSeq());
+			insertEvent.setLong(7, event.getSelfParentGen());
+			insertEvent.setLong(8, event.getOtherParentGen());
+			insertEvent.setLong(9, generation);
 			if (self_parent_id != null && self_parent_id >= 0) {
-				insertEvent.setLong(9, self_parent_id);
+				insertEvent.setLong(10, self_parent_id);
 			} else {
-				insertEvent.setNull(9, Types.BIGINT);
+				insertEvent.setNull(10, Types.BIGINT);
 			}
 			if (other_parent_id != null && other_parent_id >= 0) {
-				insertEvent.setLong(10, other_parent_id);
+				insertEvent.setLong(11, other_parent_id);
 			} else {
-				insertEvent.setNull(10, Types.BIGINT);
+				insertEvent.setNull(11, Types.BIGINT);
 			}
-			insertEvent.setLong(11, timeCreatedInNanos);
-			insertEvent.setBytes(12, signature);
-			insertEvent.setLong(13, consensusTimestampInNanos);
-			insertEvent.setInt(14, txsBytesCount);
-			insertEvent.setInt(15, platformTxCount);
-			insertEvent.setInt(16, appTxCount);
-			insertEvent.setLong(17, consensusTimestampInNanos - timeCreatedInNanos);
-			insertEvent.setBytes(18, hash);
-			insertEvent.setBytes(19, selfParentHash);
-			insertEvent.setBytes(20, otherParentHash);
-			insertEvent.execute();
-			log.info("Successfully stored event with consensusOrder {}", consensusOrder);
-			insertEvent.close();
+			insertEvent.setLong(12, timeCreatedInNanos);
+			insertEvent.setBytes(13, event.getSignature());
+			insertEvent.setLong(14, consensusTimestampInNanos);
+			insertEvent.setInt(15, event.getTxsBytesCount());
+			insertEvent.setInt(16, event.getPlatformTxCount());
+			insertEvent.setInt(17, event.getAppTxCount());
+			insertEvent.setLong(18, consensusTimestampInNanos - timeCreatedInNanos);
+			insertEvent.setBytes(19, hash);
+			insertEvent.setBytes(20, event.getSelfParentHash());
+			insertEvent.setBytes(21, event.getOtherParentHash());
+			insertEvent.addBatch();
+			// children may reference this event before the batch is executed, rows of a batch are inserted in order
+			eventHashes.put(hash, id, generation);
+			eventRollups.add(event.getCreatorId(), timeCreatedInNanos, consensusTimestampInNanos,
+					event.getPlatformTxCount(), event.getAppTxCount(), consensusTimestampInNanos - timeCreatedInNanos);
+			if (++insertEventBatchCount >= ConfigLoader.getEventBatchSize()) {
+				flushEvents();
+			}
+			log.trace("Stored event {} with consensusOrder {}", id, consensusOrder);
 		} catch (Exception ex) {
 			log.error("Error storing event", ex);
 			return false;
@@ -358,82 +281,67 @@ public class EventStreamFileParser {
 		return true;
 	}
 
+	/**
+	 * Executes the batch of events not inserted yet
+	 * @throws SQLException
+	 */
+	private static void flushEvents() throws SQLException {
+		if (insertEventBatchCount > 0) {
+			insertEvent.executeBatch();
+			log.debug("Inserted batch of {} events", insertEventBatchCount);
+			insertEventBatchCount = 0;
+		}
+	}
+
+	/**
+	 * Discards the events of the file being loaded
+	 */
+	private static void rollback() {
+		eventHashes.rollback();
+		eventRollups.clear();
+		insertEventBatchCount = 0;
+		try {
+			insertEvent.clearBatch();
+			connect.rollback();
+		} catch (SQLException e) {
+			log.error("Error rolling back events", e);
+		}
+	}
+
 	/**
 	 * Find an event's id in t_events table which hash value matches the given byte array
 	 * return PARENT_HASH_NULL if the byte array is null;
 	 * return PARENT_HASH_NOT_FOUND_MATCH if didn't find a match;
+	 * Recent events are looked up in memory, only events older than the cached generations are queried
 	 *
 	 * @param hash
+	 * @param generation the parent's generation
 	 * @param name
 	 * @return
 	 * @throws SQLException
 	 */
-	static long getIdForParent(byte[] hash, String name) throws SQLException {
+	static long getIdForParent(byte[] hash, long generation, String name) throws SQLException {
 		if (hash == null) {
 			return PARENT_HASH_NULL;
-		} else {
-			PreparedStatement query = connect.prepareStatement(
-					"SELECT id FROM t_events WHERE hash = ?");
-			query.setBytes(1, hash);
-			query.execute();
-			ResultSet resultSet = query.getResultSet();
-			long id;
+		}
+		long id = eventHashes.get(hash);
+		if (id != EventHashCache.NOT_FOUND) {
+			return id;
+		}
+
+		// every event not committed yet is cached, so the batch doesn't need to be executed first
+		selectEventId.setBytes(1, hash);
+		try (ResultSet resultSet = selectEventId.executeQuery()) {
 			if (resultSet.next()) {
 				id = resultSet.getLong(1);
+				// the hash may be a scratch array of the reader, it is kept as a key so it must not change
+				eventHashes.put(hash.clone(), id, generation);
 			} else {
 				log.error("There isn't an event's hash in the database that matches {}: {}", hash, name);
 				id = PARENT_HASH_NOT_FOUND_MATCH;
 			}
-			resultSet.close();
-			query.close();
-			return id;
 		}
-	}
-
-	/** read an Instant from a data stream */
-	static Instant readInstant(DataInput dis)
-			throws IOException {
-		Instant time = Instant.ofEpochSecond(//
-				dis.readLong(), // from getEpochSecond()
-				dis.readLong()); // from getNano()
-		return time;
-	}
-
-	static byte[] readByteArray(DataInputStream dis, MessageDigest md)
-			throws IOException {
-		int len = dis.readInt();
-		md.update(Utility.integerToBytes(len));
-		return readByteArrayOfLength(dis, len, md);
-	}
-
-	static byte[] readNullableByteArray(DataInputStream dis, MessageDigest md) throws IOException {
-		int len = dis.readInt();
-		md.update(Utility.integerToBytes(len));
-		if (len < 0) {
-			return null;
-		} else {
-			return readByteArrayOfLength(dis, len, md);
-		}
-	}
-
-	private static byte[] readByteArrayOfLength(DataInputStream dis, int len, MessageDigest md) throws IOException {
-		int checksum = dis.readInt();
-		md.update(Utility.integerToBytes(checksum));
-
-		if (len < 0) {
-			throw new IOException(
-					"readByteArrayOfLength tried to create array of length "
-							+ len);
-		}
-		if (checksum != (101 - len)) { // must be at wrong place in the stream
-			throw new IOException(
-					"readByteArray tried to create array of length "
-							+ len + " with wrong checksum.");
-		}
-		byte[] data = new byte[len];
-		dis.readFully(data);
-		md.update(data);
-		return data;
+		return id;
 	}
 
 	/**
@@ -528,6 +436,20 @@ public class EventStreamFileParser {
 		}
 
 		connect = DatabaseUtilities.openDatabase(connect);
+		if (connect == null) {
+			log.error("Unable to connect to database");
+			return false;
+		}
+		// the events of a file are committed together, so that a file that fails to load can be loaded again
+		connect.setAutoCommit(false);
+		insertEvent = connect.prepareStatement(
+				"insert into t_events (id, consensus_order, creator_node_id, creator_seq, other_node_id, other_seq, " +
+						"self_parent_generation, other_parent_generation, generation, self_parent_id, " +
+						"other_parent_id, created_timestamp_ns, signature, consensus_timestamp_ns, " +
+						"txs_bytes_count, platform_tx_count, app_tx_count, latency_ns, hash, self_parent_hash, " +
+						"other_parent_hash) "
+						+ " values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ");
+		selectEventId = connect.prepareStatement("SELECT id FROM t_events WHERE hash = ?");
 
 		boolean result = true;
 		if (file.isFile()) {
@@ -555,6 +477,8 @@ public class EventStreamFileParser {
 		}
 
 		try {
+			insertEvent.close();
+			selectEventId.close();
 			connect = DatabaseUtilities.closeDatabase(connect);
 		} catch (SQLException e) {
 			log.error("Error closing database connection", e);
@@ -0,0 +1,305 @@
+package com.hedera.parser;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Reads an event stream file from a read only memory mapping of it.
+ *
+ * Events are decoded into a reused {@link Event}, and the file hash digests are fed the byte ranges of the mapping
+ * they cover, so reading an event does not allocate for its fields. Transactions are not decoded, only their sizes and
+ * counts are kept, and the signatures of transactions are skipped as they are not part of the file hash.
+ *
+ * Usage: call {@link #nextType()} and the read method of the type while {@link #hasRemaining()}, and get the hash of
+ * the file with {@link #getFileHash()} once all of it was read.
+ *
+ * Not thread safe.
+ */
+@Log4j2
+public class EventStreamFileReader {
+
+	private static final int HASH_LENGTH = 48;
+	private static final int STREAM_EVENT_VERSION = 2;
+	private static final byte COMM_EVENT_LAST = 0x46;
+	private static final int EVENT_STREAM_FILE_VERSION_CURRENT = 3;
+
+	private final MappedByteBuffer buffer;
+	// reused view of the mapping to digest byte ranges
+	private final ByteBuffer range;
+	private final int version;
+	private final MessageDigest md;
+	private final MessageDigest mdForContent;
+	// position of the type delimiter of the item being read
+	private int itemStart;
+
+	public EventStreamFileReader(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			// the mapping stays valid once the channel is closed
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		range = buffer.duplicate();
+		try {
+			md = MessageDigest.getInstance("SHA-384");
+			// for >= version3, events are hashed separately and their hash is part of the file hash
+			mdForContent = MessageDigest.getInstance("SHA-384");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-384 digest is not available", e);
+		}
+
+		version = buffer.getInt();
+		digest(md, 0, buffer.position());
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	public boolean hasRemaining() {
+		return buffer.hasRemaining();
+	}
+
+	/**
+	 * @return the type delimiter of the next item in the file
+	 */
+	public byte nextType() {
+		itemStart = buffer.position();
+		return buffer.get();
+	}
+
+	/**
+	 * Reads the hash of the previous file following a {@link EventStreamFileParser#TYPE_PREV_HASH} delimiter
+	 */
+	public byte[] readPrevHash() {
+		byte[] prevHash = new byte[HASH_LENGTH];
+		buffer.get(prevHash);
+		digest(md, itemStart, buffer.position());
+		return prevHash;
+	}
+
+	/**
+	 * Reads the event following an event delimiter into the given event, replacing its previous content
+	 *
+	 * @param noTxs whether the delimiter denotes an event without transactions
+	 * @return false if the event format version or its end marker doesn't match
+	 * @throws IOException if a length or checksum in the event is invalid
+	 */
+	public boolean readEvent(Event event, boolean noTxs) throws IOException {
+		MessageDigest digest = version >= EVENT_STREAM_FILE_VERSION_CURRENT ? mdForContent : md;
+		int hashStart = itemStart;
+
+		if (buffer.getInt() != STREAM_EVENT_VERSION) {
+			log.error("EventStream format version doesn't match.");
+			return false;
+		}
+		event.creatorId = buffer.getLong();
+		event.creatorSeq = buffer.getLong();
+		event.otherId = buffer.getLong();
+		event.otherSeq = buffer.getLong();
+		event.selfParentGen = buffer.getLong();
+		event.otherParentGen = buffer.getLong();
+		event.selfParentHash = readNullableByteArray(event.selfParentHashScratch);
+		if (event.selfParentHash != null) {
+			event.selfParentHashScratch = event.selfParentHash;
+		}
+		event.otherParentHash = readNullableByteArray(event.otherParentHashScratch);
+		if (event.otherParentHash != null) {
+			event.otherParentHashScratch = event.otherParentHash;
+		}
+
+		event.txsBytesCount = 0;
+		event.platformTxCount = 0;
+		event.appTxCount = 0;
+		if (!noTxs) {
+			int txCount = buffer.getInt();
+			int txChecksum = buffer.getInt();
+			if (txCount < 0 || txChecksum != (1873 - txCount)) {
+				throw new IOException("Transaction array of length " + txCount + " with wrong checksum");
+			}
+			for (int i = 0; i < txCount; i++) {
+				hashStart = skipTransaction(event, digest, hashStart);
+			}
+		}
+
+		event.timeCreatedNanos = readInstantNanos();
+		event.signature = readByteArray(event.signature);
+		if (buffer.get() != COMM_EVENT_LAST) {
+			log.warn("Event end marker incorrect");
+			return false;
+		}
+		// the hash of an event is kept by the parser, so it is never reused
+		event.hash = readByteArray(null);
+		event.consensusTimestampNanos = readInstantNanos();
+		event.consensusOrder = buffer.getLong();
+		digest(digest, hashStart, buffer.position());
+		return true;
+	}
+
+	/**
+	 * @return the hash of the file, once all of it was read
+	 */
+	public byte[] getFileHash() {
+		if (version >= EVENT_STREAM_FILE_VERSION_CURRENT) {
+			md.update(mdForContent.digest());
+		}
+		return md.digest();
+	}
+
+	/**
+	 * Skips a transaction, adding it to the transaction counts of the event. Its signatures are not part of the file
+	 * hash, so the bytes before them are digested and hashing resumes after them.
+	 *
+	 * @return the position from which the event's bytes are to be digested
+	 */
+	private int skipTransaction(Event event, MessageDigest digest, int hashStart) throws IOException {
+		int txLen = buffer.getInt();
+		int txChecksum = buffer.getInt();
+		if (txLen < 0 || txChecksum != (277 - txLen)) {
+			throw new IOException("Transaction contents of length " + txLen + " with wrong checksum");
+		}
+		boolean system = buffer.get() != 0;
+		skip(txLen);
+		int bytes = (4 * Integer.BYTES) + Byte.BYTES + txLen;
+
+		int sigCount = buffer.getInt();
+		int sigChecksum = buffer.getInt();
+		if (sigCount < 0 || sigChecksum != (353 - sigCount)) {
+			throw new IOException("Transaction signature array of length " + sigCount + " with wrong checksum");
+		}
+		digest(digest, hashStart, buffer.position());
+		for (int i = 0; i < sigCount; i++) {
+			bytes += 7 * Integer.BYTES;
+			int sigLen = buffer.getInt();
+			if (sigLen < 0 || buffer.getInt() != (439 - sigLen)) {
+				throw new IOException("Signature of length " + sigLen + " with wrong checksum");
+			}
+			buffer.getInt(); // signature type
+			skip(sigLen);
+			int pkLen = buffer.getInt();
+			if (pkLen < 0 || buffer.getInt() != (541 - pkLen)) {
+				throw new IOException("Public key of length " + pkLen + " with wrong checksum");
+			}
+			skip(pkLen);
+			int msgLen = buffer.getInt();
+			if (msgLen < 0 || buffer.getInt() != (647 - msgLen)) {
+				throw new IOException("Signature message of length " + msgLen + " with wrong checksum");
+			}
+			skip(msgLen);
+			bytes += sigLen + pkLen + msgLen;
+		}
+
+		event.txsBytesCount += bytes;
+		if (system) {
+			event.platformTxCount++;
+		} else {
+			event.appTxCount++;
+		}
+		return buffer.position();
+	}
+
+	private long readInstantNanos() {
+		long seconds = buffer.getLong();
+		long nanos = buffer.getLong();
+		return seconds * 1_000_000_000L + nanos;
+	}
+
+	private byte[] readNullableByteArray(byte[] scratch) throws IOException {
+		int len = buffer.getInt();
+		if (len < 0) {
+			return null;
+		}
+		return readByteArrayOfLength(len, scratch);
+	}
+
+	private byte[] readByteArray(byte[] scratch) throws IOException {
+		return readByteArrayOfLength(buffer.getInt(), scratch);
+	}
+
+	/**
+	 * @param scratch array to read into if it has the right length, or null to always allocate
+	 */
+	private byte[] readByteArrayOfLength(int len, byte[] scratch) throws IOException {
+		int checksum = buffer.getInt();
+		if (len < 0 || checksum != (101 - len)) {
+			throw new IOException("Byte array of length " + len + " with wrong checksum");
+		}
+		byte[] data = scratch != null && scratch.length == len ? scratch : new byte[len];
+		buffer.get(data);
+		return data;
+	}
+
+	private void skip(int length) throws IOException {
+		if (length > buffer.remaining()) {
+			throw new IOException("Length " + length + " exceeds the " + buffer.remaining() + " remaining bytes");
+		}
+		buffer.position(buffer.position() + length);
+	}
+
+	private void digest(MessageDigest digest, int from, int to) {
+		range.limit(to).position(from);
+		digest.update(range);
+	}
+
+	/**
+	 * An event as read from an event stream file. The same instance is filled by every read, and its parent hashes and
+	 * signature arrays are reused across reads, only its hash may be kept once the next event is read.
+	 */
+	@Getter
+	public static class Event {
+		private long creatorId;
+		private long creatorSeq;
+		private long otherId;
+		private long otherSeq;
+		private long selfParentGen;
+		private long otherParentGen;
+		private byte[] selfParentHash;
+		private byte[] otherParentHash;
+		private int txsBytesCount;
+		private int platformTxCount;
+		private int appTxCount;
+		private long timeCreatedNanos;
+		private byte[] signature;
+		private byte[] hash;
+		private long consensusTimestampNanos;
+		private long consensusOrder;
+
+		// arrays kept while the parent hashes are null
+		@Getter(AccessLevel.NONE)
+		private byte[] selfParentHashScratch;
+		@Getter(AccessLevel.NONE)
+		private byte[] otherParentHashScratch;
+
+		public long getGeneration() {
+			return Math.max(selfParentGen, otherParentGen) + 1;
+		}
+	}
+}
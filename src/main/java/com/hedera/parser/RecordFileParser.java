@@ -24,14 +24,20 @@ package com.hedera.parser;
 import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.protobuf.TextFormat;
 import com.hedera.configLoader.ConfigLoader;
@@ -39,8 +45,8 @@ import com.hedera.configLoader.ConfigLoader.OPERATION_TYPE;
 import com.hedera.databaseUtilities.ApplicationStatus;
 import com.hedera.recordFileLogger.RecordFileLogger;
 import com.hedera.recordFileLogger.RecordFileLogger.INIT_RESULT;
+import com.hedera.recordFileLogger.RecordItem;
 import com.hedera.utilities.Utility;
-import com.hederahashgraph.api.proto.java.Transaction;
 import com.hederahashgraph.api.proto.java.TransactionRecord;
 import lombok.extern.log4j.Log4j2;
 import org.apache.commons.codec.binary.Hex;
@@ -58,6 +64,10 @@ public class RecordFileParser {
 
 	private static String thisFileHash = "";
 	private static ApplicationStatus applicationStatus;
+	private static final ExecutorService decodeExecutor = ConfigLoader.getRecordDecodeThreads() > 0
+			? Executors.newFixedThreadPool(ConfigLoader.getRecordDecodeThreads(),
+					new ThreadFactoryBuilder().setNameFormat("record-decode-%d").setDaemon(true).build())
+			: null;
 
 	public RecordFileParser() throws Exception {
 		applicationStatus = new ApplicationStatus();
@@ -80,33 +90,26 @@ public class RecordFileParser {
 			return false;
 		}
 		long counter = 0;
-		byte[] readFileHash = new byte[48];
+		List<Future<RecordItem>> decodedItems = new ArrayList<>();
+		List<RecordItem> recordItems = new ArrayList<RecordItem>();
 		INIT_RESULT initFileResult = RecordFileLogger.initFile(fileName);
 		Stopwatch stopwatch = Stopwatch.createStarted();
 
 		if ((initFileResult == INIT_RESULT.OK) || (initFileResult == INIT_RESULT.SKIP)) {
-			try (DataInputStream dis = new DataInputStream(new FileInputStream(file))) {
-				MessageDigest md = MessageDigest.getInstance("SHA-384");
-				MessageDigest mdForContent = MessageDigest.getInstance("SHA-384");
-
-				int record_format_version = dis.readInt();
-				int version = dis.readInt();
-
-				md.update(Utility.integerToBytes(record_format_version));
-				md.update(Utility.integerToBytes(version));
+			try {
+				RecordFileReader reader = new RecordFileReader(file);
+				int record_format_version = reader.getRecordFormatVersion();
 
 				log.info("Loading version {} record file: {}", record_format_version, file.getName());
 
-				while (dis.available() != 0) {
+				while (reader.hasRemaining()) {
 
 					try {
-						byte typeDelimiter = dis.readByte();
+						byte typeDelimiter = reader.nextType();
 
 						switch (typeDelimiter) {
 							case TYPE_PREV_HASH:
-								md.update(typeDelimiter);
-								dis.read(readFileHash);
-								md.update(readFileHash);
+								byte[] readFileHash = reader.readPrevHash();
 
 								if (Utility.hashIsEmpty(previousFileHash)) {
 									log.error("Previous file hash not available");
@@ -129,54 +132,20 @@ public class RecordFileParser {
 							case TYPE_RECORD:
 								counter++;
 
-								int byteLength = dis.readInt();
-								byte[] rawBytes = new byte[byteLength];
-								dis.readFully(rawBytes);
-								if (record_format_version >= RECORD_FORMAT_VERSION) {
-									mdForContent.update(typeDelimiter);
-									mdForContent.update(Utility.integerToBytes(byteLength));
-									mdForContent.update(rawBytes);
-
-								} else {
-									md.update(typeDelimiter);
-									md.update(Utility.integerToBytes(byteLength));
-									md.update(rawBytes);
+								// hashing stays sequential, decoding may happen on the decode threads
+								RecordFileReader.RawRecord rawRecord = reader.readRawRecord();
+								if (initFileResult == INIT_RESULT.SKIP) {
+									// already stored, only the file hash is needed
+									break;
 								}
-								Transaction transaction = Transaction.parseFrom(rawBytes);
-
-								byteLength = dis.readInt();
-								rawBytes = new byte[byteLength];
-								dis.readFully(rawBytes);
-
-								if (record_format_version >= RECORD_FORMAT_VERSION) {
-									mdForContent.update(Utility.integerToBytes(byteLength));
-									mdForContent.update(rawBytes);
-
+								if (decodeExecutor != null) {
+									decodedItems.add(decodeExecutor.submit(rawRecord::decode));
 								} else {
-									md.update(Utility.integerToBytes(byteLength));
-									md.update(rawBytes);
-								}
-
-								TransactionRecord txRecord = TransactionRecord.parseFrom(rawBytes);
-
-								if (initFileResult != INIT_RESULT.SKIP) {
-									boolean bStored = RecordFileLogger.storeRecord(counter, Utility.convertToInstant(txRecord.getConsensusTimestamp()), transaction, txRecord);
-									if (bStored) {
-										if (log.isTraceEnabled()) {
-											log.trace("Transaction = {}, Record = {}", Utility.printTransaction(transaction), TextFormat.shortDebugString(txRecord));
-										} else {
-											log.debug("Stored transaction with consensus timestamp {}", txRecord.getConsensusTimestamp());
-										}
-									} else {
-										RecordFileLogger.rollback();
-										return false;
-									}
+									decodedItems.add(CompletableFuture.completedFuture(rawRecord.decode()));
 								}
 								break;
 							case TYPE_SIGNATURE:
-								int sigLength = dis.readInt();
-								byte[] sigBytes = new byte[sigLength];
-								dis.readFully(sigBytes);
+								byte[] sigBytes = reader.readSignature();
 								log.trace("File {} has signature {}", fileName, Hex.encodeHexString(sigBytes));
 								if (RecordFileLogger.storeSignature(Hex.encodeHexString(sigBytes))) {
 									break;
@@ -189,15 +158,57 @@ public class RecordFileParser {
 
 					} catch (Exception e) {
 						log.error("Exception {}", e);
+						cancel(decodedItems);
 						RecordFileLogger.rollback();
 						return false;
 					}
 				}
 
-				if (record_format_version >= RECORD_FORMAT_VERSION) {
-					md.update(mdForContent.digest());
+				try {
+					// reassembled in file order
+					for (Future<RecordItem> decodedItem : decodedItems) {
+						// stored once the entities referenced by the whole file have been resolved
+						recordItems.add(decodedItem.get());
+					}
+				} catch (ExecutionException e) {
+					log.error("Exception {}", e.getCause());
+					cancel(decodedItems);
+					RecordFileLogger.rollback();
+					return false;
+				} catch (InterruptedException e) {
+					log.error("Interrupted while decoding record file {}", file);
+					cancel(decodedItems);
+					RecordFileLogger.rollback();
+					Thread.currentThread().interrupt();
+					return false;
 				}
-				byte[] fileHash = md.digest();
+
+				if (!recordItems.isEmpty()) {
+					try {
+						RecordFileLogger.resolveEntities(recordItems);
+						for (int i = 0; i < recordItems.size(); i++) {
+							RecordItem recordItem = recordItems.get(i);
+							TransactionRecord txRecord = recordItem.getRecord();
+							boolean bStored = RecordFileLogger.storeRecord(i + 1, Utility.convertToInstant(txRecord.getConsensusTimestamp()), recordItem);
+							if (bStored) {
+								if (log.isTraceEnabled()) {
+									log.trace("Transaction = {}, Record = {}", Utility.printTransaction(recordItem.getTransaction()), TextFormat.shortDebugString(txRecord));
+								} else {
+									log.debug("Stored transaction with consensus timestamp {}", txRecord.getConsensusTimestamp());
+								}
+							} else {
+								RecordFileLogger.rollback();
+								return false;
+							}
+						}
+					} catch (Exception e) {
+						log.error("Exception {}", e);
+						RecordFileLogger.rollback();
+						return false;
+					}
+				}
+
+				byte[] fileHash = reader.getFileHash();
 				thisFileHash = Utility.bytesToHex(fileHash);
 
 				log.trace("Calculated file hash for the current file {}", thisFileHash);
@@ -218,28 +229,56 @@ public class RecordFileParser {
 		}
 	}
 
+	private static void cancel(List<Future<RecordItem>> decodedItems) {
+		for (Future<RecordItem> decodedItem : decodedItems) {
+			decodedItem.cancel(false);
+		}
+	}
+
 	/**
 	 * read and parse a list of record files
+	 * @return the number of files parsed, parsing stops at the first file that fails
 	 * @throws Exception 
 	 */
-	static public void loadRecordFiles(List<String> fileNames) throws Exception {
+	static public int loadRecordFiles(List<String> fileNames) throws Exception {
 		String prevFileHash = applicationStatus.getLastProcessedRcdHash();
 
 		Collections.sort(fileNames);
 		
+		int parsed = 0;
 		for (String name : fileNames) {
 			if (Utility.checkStopFile()) {
 				log.info("Stop file found, stopping");
-				return;
+				break;
 			}
 
 			if (loadRecordFile(name, prevFileHash)) {
 				prevFileHash = thisFileHash;
 				Utility.moveFileToParsedDir(name, "/parsedRecordFiles/");
+				parsed++;
 			} else {
-				return;
+				break;
+			}
+		}
+		return parsed;
+	}
+
+	/**
+	 * parse the given record files in a single database session
+	 * @param fileNames
+	 * @return the number of files parsed, parsing stops at the first file that fails
+	 * @throws Exception
+	 */
+	public static int parseFiles(List<String> fileNames) throws Exception {
+		int parsed = 0;
+		if (RecordFileLogger.start()) {
+			try {
+				parsed = loadRecordFiles(fileNames);
+			} finally {
+				RecordFileLogger.finish();
 			}
 		}
+		return parsed;
 	}
 
 	public static void parseNewFiles(String pathName) throws Exception {
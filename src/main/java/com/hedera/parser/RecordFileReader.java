@@ -0,0 +1,210 @@
+package com.hedera.parser;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.hedera.recordFileLogger.RecordItem;
+import com.hederahashgraph.api.proto.java.Transaction;
+import com.hederahashgraph.api.proto.java.TransactionRecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Reads a record file from a read only memory mapping of it.
+ *
+ * Transactions and records are parsed straight from slices of the mapping, and the file hash digests are fed the
+ * byte ranges of the mapping they cover, so reading a file does not copy it into the heap.
+ *
+ * Usage: read the header getters, then call {@link #nextType()} and the read method of the type while
+ * {@link #hasRemaining()}, and get the hash of the file with {@link #getFileHash()} once all of it was read.
+ *
+ * The mapping is only released once the reader and the records read from it are garbage collected, so on Windows
+ * the file can't be moved out of the valid directory until then. It isn't unmapped explicitly because records may
+ * still be decoded from it on other threads, and reading an unmapped buffer crashes the JVM.
+ *
+ * Not thread safe.
+ */
+public class RecordFileReader {
+
+	private static final int HASH_LENGTH = 48;
+
+	private final MappedByteBuffer buffer;
+	private final int recordFormatVersion;
+	private final int version;
+	private final MessageDigest md;
+	private final MessageDigest mdForContent;
+	// position of the type delimiter of the item being read
+	private int itemStart;
+
+	private Transaction transaction;
+	private TransactionRecord record;
+
+	public RecordFileReader(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			// the mapping stays valid once the channel is closed
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		try {
+			md = MessageDigest.getInstance("SHA-384");
+			mdForContent = MessageDigest.getInstance("SHA-384");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-384 digest is not available", e);
+		}
+
+		recordFormatVersion = buffer.getInt();
+		version = buffer.getInt();
+		digest(md, 0, buffer.position());
+	}
+
+	public int getRecordFormatVersion() {
+		return recordFormatVersion;
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	public boolean hasRemaining() {
+		return buffer.hasRemaining();
+	}
+
+	/**
+	 * @return the type delimiter of the next item in the file
+	 */
+	public byte nextType() {
+		itemStart = buffer.position();
+		return buffer.get();
+	}
+
+	/**
+	 * Reads the hash of the previous file following a {@link RecordFileParser#TYPE_PREV_HASH} delimiter
+	 */
+	public byte[] readPrevHash() {
+		byte[] prevHash = new byte[HASH_LENGTH];
+		buffer.get(prevHash);
+		digest(md, itemStart, buffer.position());
+		return prevHash;
+	}
+
+	/**
+	 * Reads and parses the transaction and its record following a {@link RecordFileParser#TYPE_RECORD} delimiter,
+	 * they are available from {@link #getTransaction()} and {@link #getRecord()} until the next record is read
+	 */
+	public void readRecord() throws IOException {
+		RawRecord rawRecord = readRawRecord();
+		transaction = rawRecord.decodeTransaction();
+		record = rawRecord.decodeRecord();
+	}
+
+	/**
+	 * Reads the transaction and its record following a {@link RecordFileParser#TYPE_RECORD} delimiter without parsing
+	 * them, the returned slices of the mapping can be decoded on another thread
+	 */
+	public RawRecord readRawRecord() {
+		RawRecord rawRecord = new RawRecord(slice(), slice());
+		if (recordFormatVersion >= RecordFileParser.RECORD_FORMAT_VERSION) {
+			digest(mdForContent, itemStart, buffer.position());
+		} else {
+			digest(md, itemStart, buffer.position());
+		}
+		return rawRecord;
+	}
+
+	public Transaction getTransaction() {
+		return transaction;
+	}
+
+	public TransactionRecord getRecord() {
+		return record;
+	}
+
+	/**
+	 * Reads the signature following a {@link RecordFileParser#TYPE_SIGNATURE} delimiter, it is not part of the file hash
+	 */
+	public byte[] readSignature() {
+		byte[] signature = new byte[buffer.getInt()];
+		buffer.get(signature);
+		return signature;
+	}
+
+	/**
+	 * @return the hash of the file, once all of it was read
+	 */
+	public byte[] getFileHash() {
+		if (recordFormatVersion >= RecordFileParser.RECORD_FORMAT_VERSION) {
+			md.update(mdForContent.digest());
+		}
+		return md.digest();
+	}
+
+	/**
+	 * @return the length prefixed bytes at the current position, the position moves past them
+	 */
+	private ByteBuffer slice() {
+		int length = buffer.getInt();
+		ByteBuffer slice = buffer.slice();
+		slice.limit(length);
+		buffer.position(buffer.position() + length);
+		return slice;
+	}
+
+	private void digest(MessageDigest digest, int from, int to) {
+		ByteBuffer range = buffer.duplicate();
+		range.limit(to).position(from);
+		digest.update(range);
+	}
+
+	/**
+	 * The undecoded bytes of a transaction and its record
+	 */
+	public static class RawRecord {
+		private final ByteBuffer transaction;
+		private final ByteBuffer record;
+
+		RawRecord(ByteBuffer transaction, ByteBuffer record) {
+			this.transaction = transaction;
+			this.record = record;
+		}
+
+		public Transaction decodeTransaction() throws InvalidProtocolBufferException {
+			return Transaction.parseFrom(CodedInputStream.newInstance(transaction.duplicate()));
+		}
+
+		public TransactionRecord decodeRecord() throws InvalidProtocolBufferException {
+			return TransactionRecord.parseFrom(CodedInputStream.newInstance(record.duplicate()));
+		}
+
+		/**
+		 * Decodes the transaction, its body and its record, safe to call from any thread
+		 */
+		public RecordItem decode() throws InvalidProtocolBufferException {
+			return RecordItem.of(decodeTransaction(), decodeRecord());
+		}
+	}
+}
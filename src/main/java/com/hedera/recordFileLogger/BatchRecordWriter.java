@@ -0,0 +1,213 @@
+package com.hedera.recordFileLogger;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Writes rows with batched inserts, executing the batches every BATCH_SIZE records
+ */
+public class BatchRecordWriter implements RecordWriter {
+
+	private static final long BATCH_SIZE = 100;
+	private long batch_count = 0;
+
+	private final PreparedStatement sqlInsertTransaction;
+	private final PreparedStatement sqlInsertTransferList;
+	private final PreparedStatement sqlInsertFileData;
+	private final PreparedStatement sqlInsertContractCall;
+	private final PreparedStatement sqlInsertClaimData;
+
+    enum F_TRANSACTION {
+        ZERO // column indices start at 1, this creates the necessary offset
+        ,ID
+        ,FK_NODE_ACCOUNT_ID
+        ,MEMO
+        ,VALID_START_NS
+        ,FK_TRANS_TYPE_ID
+        ,FK_PAYER_ACCOUNT_ID
+        ,FK_RESULT
+        ,CONSENSUS_SECONDS
+        ,CONSENSUS_NANOS
+        ,CONSENSUS_NS
+        ,CUD_ENTITY_ID
+        ,CHARGED_TX_FEE
+        ,INITIAL_BALANCE
+        ,FK_REC_FILE_ID
+    }
+
+    enum F_TRANSFERLIST {
+        ZERO // column indices start at 1, this creates the necessary offset
+        ,TXID
+        ,ACCOUNT_ID
+        ,AMOUNT
+        ,TYPE_ID
+    }
+
+    enum F_FILE_DATA {
+    	ZERO
+    	,FK_TRANS_ID
+    	,FILE_DATA
+    }
+
+    enum F_CONTRACT_CALL {
+    	ZERO
+    	,FK_TRANS_ID
+    	,FUNCTION_PARAMS
+    	,GAS_SUPPLIED
+    	,CALL_RESULT
+    	,GAS_USED
+    }
+
+    enum F_LIVEHASH_DATA {
+    	ZERO
+    	,FK_TRANS_ID
+    	,LIVEHASH
+    }
+
+	public BatchRecordWriter(Connection connect) throws SQLException {
+		sqlInsertTransaction = connect.prepareStatement("INSERT INTO t_transactions"
+				+ " (id, fk_node_acc_id, memo, valid_start_ns, fk_trans_type_id, fk_payer_acc_id"
+				+ ", fk_result_id, consensus_seconds, consensus_nanos, consensus_ns, fk_cud_entity_id, charged_tx_fee"
+				+ ", initial_balance, fk_rec_file_id)"
+				+ " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"
+				+ " RETURNING id");
+		sqlInsertTransferList = connect.prepareStatement("INSERT INTO t_cryptotransferlists"
+				+ " (fk_trans_id, account_id, amount)"
+				+ " VALUES (?, ?, ?)");
+
+		sqlInsertFileData = connect.prepareStatement("INSERT INTO t_file_data"
+				+ " (fk_trans_id, file_data)"
+				+ " VALUES (?, ?)");
+
+		sqlInsertContractCall = connect.prepareStatement("INSERT INTO t_contract_result"
+				+ " (fk_trans_id, function_params, gas_supplied, call_result, gas_used)"
+				+ " VALUES (?, ?, ?, ?, ?)");
+
+		sqlInsertClaimData = connect.prepareStatement("INSERT INTO t_livehashes"
+				+ " (fk_trans_id, livehash)"
+				+ " VALUES (?, ?)");
+	}
+
+	@Override
+	public void addTransaction(long id, long nodeAccountId, byte[] memo, long validStartNs, int transactionTypeId, long payerAccountId
+			, long resultId, long consensusSeconds, long consensusNanos, long consensusNs, long cudEntityId
+			, long chargedTxFee, long initialBalance, long recordFileId) throws SQLException {
+		sqlInsertTransaction.setLong(F_TRANSACTION.ID.ordinal(), id);
+		sqlInsertTransaction.setLong(F_TRANSACTION.FK_NODE_ACCOUNT_ID.ordinal(), nodeAccountId);
+		sqlInsertTransaction.setBytes(F_TRANSACTION.MEMO.ordinal(), memo);
+		sqlInsertTransaction.setLong(F_TRANSACTION.VALID_START_NS.ordinal(), validStartNs);
+		sqlInsertTransaction.setInt(F_TRANSACTION.FK_TRANS_TYPE_ID.ordinal(), transactionTypeId);
+		sqlInsertTransaction.setLong(F_TRANSACTION.FK_PAYER_ACCOUNT_ID.ordinal(), payerAccountId);
+		sqlInsertTransaction.setLong(F_TRANSACTION.FK_RESULT.ordinal(), resultId);
+		sqlInsertTransaction.setLong(F_TRANSACTION.CONSENSUS_SECONDS.ordinal(), consensusSeconds);
+		sqlInsertTransaction.setLong(F_TRANSACTION.CONSENSUS_NANOS.ordinal(), consensusNanos);
+		sqlInsertTransaction.setLong(F_TRANSACTION.CONSENSUS_NS.ordinal(), consensusNs);
+		if (cudEntityId == 0) {
+			// insert null
+			sqlInsertTransaction.setObject(F_TRANSACTION.CUD_ENTITY_ID.ordinal(), null);
+		} else {
+			sqlInsertTransaction.setLong(F_TRANSACTION.CUD_ENTITY_ID.ordinal(), cudEntityId);
+		}
+		sqlInsertTransaction.setLong(F_TRANSACTION.CHARGED_TX_FEE.ordinal(), chargedTxFee);
+		sqlInsertTransaction.setLong(F_TRANSACTION.INITIAL_BALANCE.ordinal(), initialBalance);
+		sqlInsertTransaction.setLong(F_TRANSACTION.FK_REC_FILE_ID.ordinal(), recordFileId);
+
+		sqlInsertTransaction.addBatch();
+	}
+
+	@Override
+	public void addTransfer(long transactionId, long accountId, long amount) throws SQLException {
+		sqlInsertTransferList.setLong(F_TRANSFERLIST.TXID.ordinal(), transactionId);
+		sqlInsertTransferList.setLong(F_TRANSFERLIST.ACCOUNT_ID.ordinal(), accountId);
+		sqlInsertTransferList.setLong(F_TRANSFERLIST.AMOUNT.ordinal(), amount);
+
+		sqlInsertTransferList.addBatch();
+	}
+
+	@Override
+	public void addFileData(long transactionId, byte[] fileData) throws SQLException {
+		sqlInsertFileData.setLong(F_FILE_DATA.FK_TRANS_ID.ordinal(), transactionId);
+		sqlInsertFileData.setBytes(F_FILE_DATA.FILE_DATA.ordinal(), fileData);
+
+		sqlInsertFileData.addBatch();
+	}
+
+	@Override
+	public void addContractResult(long transactionId, byte[] functionParams, long gasSupplied, byte[] callResult, long gasUsed) throws SQLException {
+		sqlInsertContractCall.setLong(F_CONTRACT_CALL.FK_TRANS_ID.ordinal(), transactionId);
+		sqlInsertContractCall.setBytes(F_CONTRACT_CALL.FUNCTION_PARAMS.ordinal(), functionParams);
+		sqlInsertContractCall.setLong(F_CONTRACT_CALL.GAS_SUPPLIED.ordinal(), gasSupplied);
+		sqlInsertContractCall.setBytes(F_CONTRACT_CALL.CALL_RESULT.ordinal(), callResult);
+		sqlInsertContractCall.setLong(F_CONTRACT_CALL.GAS_USED.ordinal(), gasUsed);
+
+		sqlInsertContractCall.addBatch();
+	}
+
+	@Override
+	public void addLiveHash(long transactionId, byte[] liveHash) throws SQLException {
+		sqlInsertClaimData.setLong(F_LIVEHASH_DATA.FK_TRANS_ID.ordinal(), transactionId);
+		sqlInsertClaimData.setBytes(F_LIVEHASH_DATA.LIVEHASH.ordinal(), liveHash);
+
+		sqlInsertClaimData.addBatch();
+	}
+
+	@Override
+	public void endRecord() throws SQLException {
+		if (batch_count == BATCH_SIZE - 1) {
+			// execute any remaining batches
+			flush();
+		} else {
+			batch_count += 1;
+		}
+	}
+
+	@Override
+	public void flush() throws SQLException {
+		sqlInsertTransaction.executeBatch();
+		sqlInsertTransferList.executeBatch();
+		sqlInsertFileData.executeBatch();
+		sqlInsertContractCall.executeBatch();
+		sqlInsertClaimData.executeBatch();
+		batch_count = 0;
+	}
+
+	@Override
+	public void clear() throws SQLException {
+		sqlInsertTransaction.clearBatch();
+		sqlInsertTransferList.clearBatch();
+		sqlInsertFileData.clearBatch();
+		sqlInsertContractCall.clearBatch();
+		sqlInsertClaimData.clearBatch();
+		batch_count = 0;
+	}
+
+	@Override
+	public void close() throws SQLException {
+		sqlInsertFileData.close();
+		sqlInsertTransferList.close();
+		sqlInsertTransaction.close();
+		sqlInsertContractCall.close();
+		sqlInsertClaimData.close();
+	}
+}
@@ -0,0 +1,250 @@
+package com.hedera.recordFileLogger;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Writes rows with PostgreSQL's COPY text protocol. Rows are buffered per table and copied once the buffers
+ * reach bufferSize bytes at the end of a record, or when flushed at the end of a record file.
+ * The COPY runs in the connection's current transaction, so rolling it back discards the copied rows too.
+ */
+@Log4j2
+public class CopyRecordWriter implements RecordWriter {
+
+	private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+	private final CopyManager copyManager;
+	private final int bufferSize;
+
+	private final CopyTable transactions = new CopyTable("t_transactions", "id, fk_node_acc_id, memo, valid_start_ns"
+			+ ", fk_trans_type_id, fk_payer_acc_id, fk_result_id, consensus_seconds, consensus_nanos, consensus_ns"
+			+ ", fk_cud_entity_id, charged_tx_fee, initial_balance, fk_rec_file_id");
+	private final CopyTable transfers = new CopyTable("t_cryptotransferlists", "fk_trans_id, account_id, amount");
+	private final CopyTable fileData = new CopyTable("t_file_data", "fk_trans_id, file_data");
+	private final CopyTable contractResults = new CopyTable("t_contract_result"
+			, "fk_trans_id, function_params, gas_supplied, call_result, gas_used");
+	private final CopyTable liveHashes = new CopyTable("t_livehashes", "fk_trans_id, livehash");
+
+	// copy order, the other tables reference t_transactions
+	private final CopyTable[] tables = {transactions, transfers, fileData, contractResults, liveHashes};
+
+	public CopyRecordWriter(Connection connect, int bufferSize) throws SQLException {
+		this.copyManager = connect.unwrap(PGConnection.class).getCopyAPI();
+		this.bufferSize = bufferSize;
+	}
+
+	@Override
+	public void addTransaction(long id, long nodeAccountId, byte[] memo, long validStartNs, int transactionTypeId, long payerAccountId
+			, long resultId, long consensusSeconds, long consensusNanos, long consensusNs, long cudEntityId
+			, long chargedTxFee, long initialBalance, long recordFileId) {
+		transactions.value(id).value(nodeAccountId).value(memo).value(validStartNs)
+				.value(transactionTypeId).value(payerAccountId).value(resultId)
+				.value(consensusSeconds).value(consensusNanos).value(consensusNs);
+		if (cudEntityId == 0) {
+			transactions.nullValue();
+		} else {
+			transactions.value(cudEntityId);
+		}
+		transactions.value(chargedTxFee).value(initialBalance).value(recordFileId).endRow();
+	}
+
+	@Override
+	public void addTransfer(long transactionId, long accountId, long amount) {
+		transfers.value(transactionId).value(accountId).value(amount).endRow();
+	}
+
+	@Override
+	public void addFileData(long transactionId, byte[] data) {
+		fileData.value(transactionId).value(data).endRow();
+	}
+
+	@Override
+	public void addContractResult(long transactionId, byte[] functionParams, long gasSupplied, byte[] callResult, long gasUsed) {
+		contractResults.value(transactionId).value(functionParams).value(gasSupplied).value(callResult).value(gasUsed).endRow();
+	}
+
+	@Override
+	public void addLiveHash(long transactionId, byte[] liveHash) {
+		liveHashes.value(transactionId).value(liveHash).endRow();
+	}
+
+	@Override
+	public void endRecord() throws SQLException {
+		long buffered = 0;
+		for (CopyTable table : tables) {
+			buffered += table.size();
+		}
+		if (buffered >= bufferSize) {
+			flush();
+		}
+	}
+
+	@Override
+	public void flush() throws SQLException {
+		for (CopyTable table : tables) {
+			table.copy(copyManager);
+		}
+	}
+
+	@Override
+	public void clear() {
+		for (CopyTable table : tables) {
+			table.clear();
+		}
+	}
+
+	@Override
+	public void close() {
+		clear();
+	}
+
+	/**
+	 * Rows of a table in COPY text format, tab separated columns with \N for null and bytea in hex
+	 */
+	static class CopyTable {
+		private final String sql;
+		private byte[] buffer = new byte[8192];
+		private int size = 0;
+		private int rows = 0;
+		private boolean rowStarted = false;
+
+		CopyTable(String table, String columns) {
+			sql = "COPY " + table + " (" + columns + ") FROM STDIN";
+		}
+
+		CopyTable value(long value) {
+			separator();
+			if (value == Long.MIN_VALUE) {
+				String digits = Long.toString(value);
+				ensureCapacity(digits.length());
+				for (int i = 0; i < digits.length(); i++) {
+					buffer[size++] = (byte) digits.charAt(i);
+				}
+				return this;
+			}
+			ensureCapacity(20);
+			if (value < 0) {
+				buffer[size++] = '-';
+				value = -value;
+			}
+			int digits = 1;
+			for (long rest = value / 10; rest != 0; rest /= 10) {
+				digits++;
+			}
+			for (int i = size + digits - 1; i >= size; i--) {
+				buffer[i] = (byte) ('0' + value % 10);
+				value /= 10;
+			}
+			size += digits;
+			return this;
+		}
+
+		CopyTable value(byte[] value) {
+			if (value == null) {
+				return nullValue();
+			}
+			separator();
+			ensureCapacity(3 + value.length * 2);
+			// the backslash of bytea's \x prefix is escaped in COPY text format
+			buffer[size++] = '\\';
+			buffer[size++] = '\\';
+			buffer[size++] = 'x';
+			for (byte b : value) {
+				buffer[size++] = HEX[(b >> 4) & 0xf];
+				buffer[size++] = HEX[b & 0xf];
+			}
+			return this;
+		}
+
+		CopyTable nullValue() {
+			separator();
+			ensureCapacity(2);
+			buffer[size++] = '\\';
+			buffer[size++] = 'N';
+			return this;
+		}
+
+		void endRow() {
+			ensureCapacity(1);
+			buffer[size++] = '\n';
+			rows++;
+			rowStarted = false;
+		}
+
+		int rows() {
+			return rows;
+		}
+
+		int size() {
+			return size;
+		}
+
+		byte[] bytes() {
+			return Arrays.copyOf(buffer, size);
+		}
+
+		void copy(CopyManager copyManager) throws SQLException {
+			if (rows == 0) {
+				return;
+			}
+			CopyIn copyIn = copyManager.copyIn(sql);
+			try {
+				copyIn.writeToCopy(buffer, 0, size);
+				long copied = copyIn.endCopy();
+				log.trace("Copied {} rows with {}", copied, sql);
+			} finally {
+				if (copyIn.isActive()) {
+					copyIn.cancelCopy();
+				}
+			}
+			clear();
+		}
+
+		void clear() {
+			size = 0;
+			rows = 0;
+			rowStarted = false;
+		}
+
+		private void separator() {
+			if (rowStarted) {
+				ensureCapacity(1);
+				buffer[size++] = '\t';
+			}
+			rowStarted = true;
+		}
+
+		private void ensureCapacity(int length) {
+			if (size + length > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+			}
+		}
+	}
+}
@@ -27,8 +27,11 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.HashMap;
 
+import com.google.common.base.Stopwatch;
+import com.hedera.configLoader.ConfigLoader;
 import com.hedera.utilities.Utility;
 import com.hederahashgraph.api.proto.java.AccountID;
 import com.hederahashgraph.api.proto.java.ContractID;
@@ -40,8 +43,28 @@ public class Entities {
 	private static int FK_ACCOUNT = 0;
 	private static int FK_CONTRACT = 0;
 	private static int FK_FILE = 0;
-	HashMap<String, Long> entities = new HashMap<String, Long>();
-	
+
+	// survives across connections, so entity ids are not looked up again for every parsed batch of files
+	private static final EntityIdCache entityIds = new EntityIdCache(ConfigLoader.getEntityCacheSize());
+	private static boolean warmLoaded = false;
+
+	// keys cached since the last commit, evicted on rollback as the entities they point at may not exist anymore
+	private static long[] uncommittedKeys = new long[64];
+	private static int uncommittedCount = 0;
+
+	// entities referenced by a record file, resolved in one statement before its transactions are stored
+	private long[] pendingKeys = new long[256];
+	private int pendingCount = 0;
+	// entities created by a record file, left to createEntity so they are created with their attributes
+	private long[] excludedKeys = new long[16];
+	private int excludedCount = 0;
+
+	// statements are prepared once per connection, update statements are keyed by the SQL for the columns they set
+	private PreparedStatement upsertEntities = null;
+	private CallableStatement entityCreate = null;
+	private PreparedStatement setDeleted = null;
+	private final HashMap<String, PreparedStatement> updateEntities = new HashMap<String, PreparedStatement>();
+
     enum F_ENTITIES {
     	ZERO
     	,SHARD
@@ -76,9 +99,214 @@ public class Entities {
 	            }       
 	            resultSet.close();      
 			}
+	        if (!warmLoaded && ConfigLoader.getEntityCacheWarmLoad()) {
+	        	warmLoad();
+	        }
+	        warmLoaded = true;
 		}
     }       
 
+	/**
+	 * Fills the cache with the most recently created entities
+	 * @throws SQLException
+	 */
+	private static void warmLoad() throws SQLException {
+		Stopwatch stopwatch = Stopwatch.createStarted();
+		int count = 0;
+		try (PreparedStatement select = connect.prepareStatement("SELECT id, entity_shard, entity_realm, entity_num, fk_entity_type_id"
+				+ " FROM t_entities ORDER BY id DESC LIMIT ?")) {
+			select.setInt(1, entityIds.capacity());
+			try (ResultSet resultSet = select.executeQuery()) {
+				while (resultSet.next()) {
+					long key = EntityIdCache.key(resultSet.getLong(2), resultSet.getLong(3), resultSet.getLong(4), resultSet.getInt(5));
+					entityIds.put(key, resultSet.getLong(1));
+					count++;
+				}
+			}
+		}
+		log.info("Loaded {} entities into the entity cache in {}", count, stopwatch);
+	}
+
+	/**
+	 * @return the entity id cache, for its size and hit, miss and eviction counters
+	 */
+	public static EntityIdCache getCache() {
+		return entityIds;
+	}
+
+	/**
+	 * To be called once the entities created since the last commit or rollback have been committed
+	 */
+	public void commit() {
+		uncommittedCount = 0;
+	}
+
+	/**
+	 * To be called when the entities created since the last commit or rollback have been rolled back
+	 */
+	public void rollback() {
+		for (int i = 0; i < uncommittedCount; i++) {
+			entityIds.remove(uncommittedKeys[i]);
+		}
+		uncommittedCount = 0;
+	}
+
+	private static void cache(long key, long entityId) {
+		if (key == EntityIdCache.NO_KEY) {
+			return;
+		}
+		entityIds.put(key, entityId);
+		if (uncommittedCount == uncommittedKeys.length) {
+			uncommittedKeys = Arrays.copyOf(uncommittedKeys, uncommittedCount * 2);
+		}
+		uncommittedKeys[uncommittedCount++] = key;
+	}
+
+	/**
+	 * Closes the statements prepared on the current connection
+	 * @throws SQLException
+	 */
+	public void close() throws SQLException {
+		if (upsertEntities != null) {
+			upsertEntities.close();
+			upsertEntities = null;
+		}
+		if (entityCreate != null) {
+			entityCreate.close();
+			entityCreate = null;
+		}
+		if (setDeleted != null) {
+			setDeleted.close();
+			setDeleted = null;
+		}
+		for (PreparedStatement updateEntity : updateEntities.values()) {
+			updateEntity.close();
+		}
+		updateEntities.clear();
+		pendingCount = 0;
+		excludedCount = 0;
+	}
+
+	private void addPending(long shard, long realm, long num, int fk_entity_type) {
+	    if (shard + realm + num == 0 ) {
+	        return;
+	    }
+		long key = EntityIdCache.key(shard, realm, num, fk_entity_type);
+		if (key == EntityIdCache.NO_KEY) {
+			return;
+		}
+		if (pendingCount == pendingKeys.length) {
+			pendingKeys = Arrays.copyOf(pendingKeys, pendingCount * 2);
+		}
+		pendingKeys[pendingCount++] = key;
+	}
+
+	public void addPending(FileID fileId) {
+		addPending(fileId.getShardNum(), fileId.getRealmNum(), fileId.getFileNum(), FK_FILE);
+	}
+	public void addPending(ContractID contractId) {
+		addPending(contractId.getShardNum(), contractId.getRealmNum(), contractId.getContractNum(), FK_CONTRACT);
+	}
+	public void addPending(AccountID accountId) {
+		addPending(accountId.getShardNum(), accountId.getRealmNum(), accountId.getAccountNum(), FK_ACCOUNT);
+	}
+
+	private void excludePending(long shard, long realm, long num, int fk_entity_type) {
+		long key = EntityIdCache.key(shard, realm, num, fk_entity_type);
+		if (key == EntityIdCache.NO_KEY) {
+			return;
+		}
+		if (excludedCount == excludedKeys.length) {
+			excludedKeys = Arrays.copyOf(excludedKeys, excludedCount * 2);
+		}
+		excludedKeys[excludedCount++] = key;
+	}
+
+	public void excludePending(FileID fileId) {
+		excludePending(fileId.getShardNum(), fileId.getRealmNum(), fileId.getFileNum(), FK_FILE);
+	}
+	public void excludePending(ContractID contractId) {
+		excludePending(contractId.getShardNum(), contractId.getRealmNum(), contractId.getContractNum(), FK_CONTRACT);
+	}
+	public void excludePending(AccountID accountId) {
+		excludePending(accountId.getShardNum(), accountId.getRealmNum(), accountId.getAccountNum(), FK_ACCOUNT);
+	}
+
+	/**
+	 * Creates or looks up all pending entities that are not cached yet with a single statement and caches their ids,
+	 * so that storing the transactions referencing them doesn't need a round trip per entity.
+	 * Entities which may not be found here (cache evictions, concurrent inserts) are still resolved one at a time
+	 * by createOrGetEntity.
+	 * @return the number of entities which were not cached
+	 * @throws SQLException
+	 */
+	public int resolvePending() throws SQLException {
+		Arrays.sort(pendingKeys, 0, pendingCount);
+		Arrays.sort(excludedKeys, 0, excludedCount);
+
+		int missing = 0;
+		long previous = EntityIdCache.NO_KEY;
+		for (int i = 0; i < pendingCount; i++) {
+			long key = pendingKeys[i];
+			if (key == previous) {
+				continue;
+			}
+			previous = key;
+			if (Arrays.binarySearch(excludedKeys, 0, excludedCount, key) >= 0) {
+				continue;
+			}
+			if (entityIds.get(key) == EntityIdCache.NOT_FOUND) {
+				pendingKeys[missing++] = key;
+			}
+		}
+		pendingCount = 0;
+		excludedCount = 0;
+		if (missing == 0) {
+			return 0;
+		}
+
+		Long[] shards = new Long[missing];
+		Long[] realms = new Long[missing];
+		Long[] nums = new Long[missing];
+		Integer[] types = new Integer[missing];
+		for (int i = 0; i < missing; i++) {
+			long key = pendingKeys[i];
+			shards[i] = EntityIdCache.shard(key);
+			realms[i] = EntityIdCache.realm(key);
+			nums[i] = EntityIdCache.num(key);
+			types[i] = EntityIdCache.type(key);
+		}
+
+		if (upsertEntities == null) {
+			// the select runs against the snapshot taken before the insert, so existing and new entities are returned once each
+			upsertEntities = connect.prepareStatement("WITH pending AS ("
+					+ " SELECT * FROM unnest(?::bigint[], ?::bigint[], ?::bigint[], ?::int[])"
+					+ " AS p (entity_shard, entity_realm, entity_num, fk_entity_type_id)"
+					+ "), inserted AS ("
+					+ " INSERT INTO t_entities (entity_shard, entity_realm, entity_num, fk_entity_type_id)"
+					+ " SELECT entity_shard, entity_realm, entity_num, fk_entity_type_id FROM pending"
+					+ " ON CONFLICT (entity_shard, entity_realm, entity_num, fk_entity_type_id) DO NOTHING"
+					+ " RETURNING id, entity_shard, entity_realm, entity_num, fk_entity_type_id"
+					+ ")"
+					+ " SELECT id, entity_shard, entity_realm, entity_num, fk_entity_type_id FROM inserted"
+					+ " UNION ALL"
+					+ " SELECT e.id, e.entity_shard, e.entity_realm, e.entity_num, e.fk_entity_type_id"
+					+ " FROM t_entities e JOIN pending p USING (entity_shard, entity_realm, entity_num, fk_entity_type_id)");
+		}
+		upsertEntities.setArray(1, connect.createArrayOf("bigint", shards));
+		upsertEntities.setArray(2, connect.createArrayOf("bigint", realms));
+		upsertEntities.setArray(3, connect.createArrayOf("bigint", nums));
+		upsertEntities.setArray(4, connect.createArrayOf("int", types));
+
+		try (ResultSet resultSet = upsertEntities.executeQuery()) {
+			while (resultSet.next()) {
+				long key = EntityIdCache.key(resultSet.getLong(2), resultSet.getLong(3), resultSet.getLong(4), resultSet.getInt(5));
+				cache(key, resultSet.getLong(1));
+			}
+		}
+		return missing;
+	}
+
 	private long updateEntity(int fk_entity_type, long shard, long realm, long num, long exp_time_seconds, long exp_time_nanos, long auto_renew_period, byte[] admin_key, byte[] key, long fk_proxy_account_id) throws SQLException {
 		
 		long entityId = 0;
@@ -136,8 +364,11 @@ public class Entities {
 	    sqlUpdate += " AND fk_entity_type_id = ?";
 	    sqlUpdate += " RETURNING id";
 	    
-	    // inserts or returns an existing entity
-        PreparedStatement updateEntity = Entities.connect.prepareStatement(sqlUpdate);
+	    PreparedStatement updateEntity = updateEntities.get(sqlUpdate);
+	    if (updateEntity == null) {
+	        updateEntity = Entities.connect.prepareStatement(sqlUpdate);
+	        updateEntities.put(sqlUpdate, updateEntity);
+	    }
 
 	    if ((exp_time_seconds != 0) || (exp_time_nanos != 0)) {
         	updateEntity.setLong(1, exp_time_seconds);        	
@@ -182,10 +413,9 @@ public class Entities {
         if (newId.next()) {
         	entityId = newId.getLong(1);
         	newId.close();
-        	updateEntity.close();
         } else {
         	// expected entity not found
-        	updateEntity.close();
+        	newId.close();
         	throw new IllegalStateException("Expected entity not found, shard " + shard + ", realm " + realm + ", num " + num);
         }
         
@@ -203,7 +433,7 @@ public class Entities {
 		return updateEntity(FK_ACCOUNT, accountId.getShardNum(),accountId.getRealmNum(), accountId.getAccountNum(), exp_time_seconds, exp_time_nanos, auto_renew_period, admin_key, key, fk_proxy_account_id);
 	}
 
-	private long deleteEntity(int fk_entity_type, long shard, long realm, long num) throws SQLException {
+	private long setDeleted(int fk_entity_type, long shard, long realm, long num, boolean deleted) throws SQLException {
 	    
 		long entityId = 0;
 		
@@ -213,32 +443,33 @@ public class Entities {
 
 	    entityId = createOrGetEntity(shard, realm, num, fk_entity_type);
 
-	    // build the SQL to prepare a statement
-	    String sqlDelete = "UPDATE t_entities SET deleted = true";
-	    sqlDelete += " WHERE entity_shard = ?";
-	    sqlDelete += " AND entity_realm = ?";
-	    sqlDelete += " AND entity_num = ?";
-	    sqlDelete += " AND fk_entity_type_id = ?";
-	    sqlDelete += " RETURNING id";
-
-	    // inserts or returns an existing entity
-        PreparedStatement deleteEntity = Entities.connect.prepareStatement(sqlDelete);
-
-	    deleteEntity.setLong(1, shard);
-        deleteEntity.setLong(2, realm);
-        deleteEntity.setLong(3, num);
-        deleteEntity.setLong(4, fk_entity_type);
-
-        deleteEntity.execute();
+	    if (setDeleted == null) {
+		    // build the SQL to prepare a statement
+		    String sqlDelete = "UPDATE t_entities SET deleted = ?";
+		    sqlDelete += " WHERE entity_shard = ?";
+		    sqlDelete += " AND entity_realm = ?";
+		    sqlDelete += " AND entity_num = ?";
+		    sqlDelete += " AND fk_entity_type_id = ?";
+		    sqlDelete += " RETURNING id";
+
+	        setDeleted = Entities.connect.prepareStatement(sqlDelete);
+	    }
+
+	    setDeleted.setBoolean(1, deleted);
+	    setDeleted.setLong(2, shard);
+        setDeleted.setLong(3, realm);
+        setDeleted.setLong(4, num);
+        setDeleted.setLong(5, fk_entity_type);
+
+        setDeleted.execute();
         
-        ResultSet newId = deleteEntity.getResultSet();
+        ResultSet newId = setDeleted.getResultSet();
         if (newId.next()) {
             entityId = newId.getLong(1);
             newId.close();
-            deleteEntity.close();
         } else {
         	// expected entity not found
-            deleteEntity.close();
+            newId.close();
         	throw new IllegalStateException("Expected entity not found, shard " + shard + ", realm " + realm + ", num " + num);
         }
         
@@ -246,6 +477,10 @@ public class Entities {
 	    
 	}
 
+	private long deleteEntity(int fk_entity_type, long shard, long realm, long num) throws SQLException {
+		return setDeleted(fk_entity_type, shard, realm, num, true);
+	}
+
 	public long deleteEntity(FileID fileId) throws SQLException {
 		return deleteEntity(FK_FILE, fileId.getShardNum(),fileId.getRealmNum(), fileId.getFileNum());
 	}
@@ -257,45 +492,7 @@ public class Entities {
 	}
 	
 	private long unDeleteEntity(int fk_entity_type, long shard, long realm, long num) throws SQLException {
-	    
-		long entityId = 0;
-		
-	    if (shard + realm + num == 0 ) {
-	        return 0;
-	    }
-
-	    entityId = createOrGetEntity(shard, realm, num, fk_entity_type);
-
-	    // build the SQL to prepare a statement
-	    String sqlDelete = "UPDATE t_entities SET deleted = false";
-	    sqlDelete += " WHERE entity_shard = ?";
-	    sqlDelete += " AND entity_realm = ?";
-	    sqlDelete += " AND entity_num = ?";
-	    sqlDelete += " AND fk_entity_type_id = ?";
-	    sqlDelete += " RETURNING id";
-
-	    // inserts or returns an existing entity
-        PreparedStatement deleteEntity = Entities.connect.prepareStatement(sqlDelete);
-
-	    deleteEntity.setLong(1, shard);
-        deleteEntity.setLong(2, realm);
-        deleteEntity.setLong(3, num);
-        deleteEntity.setLong(4, fk_entity_type);
-
-        deleteEntity.execute();
-        
-        ResultSet newId = deleteEntity.getResultSet();
-        if (newId.next()) {
-            entityId = newId.getLong(1);
-            newId.close();
-            deleteEntity.close();
-        } else {
-        	// expected entity not found
-            deleteEntity.close();
-        	throw new IllegalStateException("Expected entity not found, shard " + shard + ", realm " + realm + ", num " + num);
-        }
-        
-        return entityId;
+		return setDeleted(fk_entity_type, shard, realm, num, false);
 	}
 
 	public long unDeleteEntity(FileID fileId) throws SQLException {
@@ -310,12 +507,18 @@ public class Entities {
 
 	private long createEntity(long shard, long realm, long num, long exp_time_seconds, long exp_time_nanos, long auto_renew_period, byte[] admin_key, byte[] key, long fk_proxy_account_id, int fk_entity_type) throws SQLException {
 
-		long entityId = getCachedEntityId(shard, realm, num, fk_entity_type);
-		if (entityId != -1) {
+	    if (shard + realm + num == 0 ) {
+	        return 0;
+	    }
+		long cacheKey = EntityIdCache.key(shard, realm, num, fk_entity_type);
+		long entityId = entityIds.get(cacheKey);
+		if (entityId != EntityIdCache.NOT_FOUND) {
 			return entityId;
 		}
 	    
-		CallableStatement entityCreate = connect.prepareCall("{? = call f_entity_create ( ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ? ) }");
+		if (entityCreate == null) {
+			entityCreate = connect.prepareCall("{? = call f_entity_create ( ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ? ) }");
+		}
 		entityCreate.registerOutParameter(1, Types.BIGINT);
 		entityCreate.setLong(2, shard);
 		entityCreate.setLong(3, realm);
@@ -346,8 +549,8 @@ public class Entities {
 		
 		entityCreate.execute();
 		entityId = entityCreate.getLong(1);
-		entityCreate.close();
 
+		cache(cacheKey, entityId);
         return entityId;
 	    
 	}
@@ -363,12 +566,18 @@ public class Entities {
 	}
 	private long createOrGetEntity(long shard, long realm, long num, int fk_entity_type) throws SQLException {
 		
-		long entityId = getCachedEntityId(shard, realm, num, fk_entity_type);
-		if (entityId != -1) {
+	    if (shard + realm + num == 0 ) {
+	        return 0;
+	    }
+		long cacheKey = EntityIdCache.key(shard, realm, num, fk_entity_type);
+		long entityId = entityIds.get(cacheKey);
+		if (entityId != EntityIdCache.NOT_FOUND) {
 			return entityId;
 		}
 
-		CallableStatement entityCreate = connect.prepareCall("{? = call f_entity_create ( ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ? ) }");
+		if (entityCreate == null) {
+			entityCreate = connect.prepareCall("{? = call f_entity_create ( ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ? ) }");
+		}
 		entityCreate.registerOutParameter(1, Types.BIGINT);
 		entityCreate.setLong(2, shard);
 		entityCreate.setLong(3, realm);
@@ -384,10 +593,8 @@ public class Entities {
 		
 		entityCreate.execute();
 		entityId = entityCreate.getLong(1);
-		entityCreate.close();
 
-        String entity = shard + "-" + realm + "-" + num + "-" + fk_entity_type;
-        entities.put(entity, entityId);
+		cache(cacheKey, entityId);
         return entityId;
 	}
 
@@ -400,16 +607,4 @@ public class Entities {
     public long createOrGetEntity(AccountID accountId) throws SQLException {
         return createOrGetEntity(accountId.getShardNum(), accountId.getRealmNum(), accountId.getAccountNum(), FK_ACCOUNT);
     }
-
-    private long getCachedEntityId(long shard, long realm, long num, int fk_entity_type) {
-        String entity = shard + "-" + realm + "-" + num + "-" + fk_entity_type;
-    	
-        if (shard + realm + num == 0 ) {
-            return 0;
-        } else if (entities.containsKey(entity)) {
-    		return entities.get(entity);
-    	} else {
-    		return -1;
-    	}
-    }
 }
@@ -0,0 +1,212 @@
+package com.hedera.recordFileLogger;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.util.Arrays;
+
+/**
+ * Bounded cache of t_entities ids keyed on shard, realm, num and entity type packed into a single long.
+ *
+ * The cache is a set associative table held in primitive arrays: every key maps to a set of {@value #WAYS} slots and
+ * a full set evicts one of its entries using the clock algorithm, so entries that were hit since the last eviction
+ * pass get a second chance. Lookups and inserts do not allocate.
+ *
+ * Not thread safe.
+ */
+public class EntityIdCache {
+
+	static final long NO_KEY = -1L;
+	static final long NOT_FOUND = -1L;
+
+	private static final int WAYS = 4;
+	private static final int TYPE_BITS = 4;
+	private static final int SHARD_BITS = 11;
+	private static final int REALM_BITS = 16;
+	private static final int NUM_BITS = 32;
+
+	private final long[] keys;
+	private final long[] ids;
+	private final boolean[] referenced;
+	private final byte[] hands;
+	private final int setMask;
+	private int size = 0;
+
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	/**
+	 * @param capacity maximum number of entries, rounded up to a power of two
+	 */
+	public EntityIdCache(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		int sets = Integer.highestOneBit(Math.max(1, (capacity + WAYS - 1) / WAYS));
+		if (sets * WAYS < capacity) {
+			sets <<= 1;
+		}
+		setMask = sets - 1;
+		keys = new long[sets * WAYS];
+		ids = new long[sets * WAYS];
+		referenced = new boolean[sets * WAYS];
+		hands = new byte[sets];
+		Arrays.fill(keys, NO_KEY);
+	}
+
+	/**
+	 * Packs an entity into a cache key
+	 * @return the key, or {@link #NO_KEY} if a component does not fit, such entities are not cached
+	 */
+	public static long key(long shard, long realm, long num, int type) {
+		if (shard < 0 || shard >= 1L << SHARD_BITS || realm < 0 || realm >= 1L << REALM_BITS
+				|| num < 0 || num >= 1L << NUM_BITS || type < 0 || type >= 1 << TYPE_BITS) {
+			return NO_KEY;
+		}
+		return ((long)type << (SHARD_BITS + REALM_BITS + NUM_BITS)) | (shard << (REALM_BITS + NUM_BITS))
+				| (realm << NUM_BITS) | num;
+	}
+
+	public static long shard(long key) {
+		return (key >>> (REALM_BITS + NUM_BITS)) & ((1L << SHARD_BITS) - 1);
+	}
+
+	public static long realm(long key) {
+		return (key >>> NUM_BITS) & ((1L << REALM_BITS) - 1);
+	}
+
+	public static long num(long key) {
+		return key & ((1L << NUM_BITS) - 1);
+	}
+
+	public static int type(long key) {
+		return (int)(key >>> (SHARD_BITS + REALM_BITS + NUM_BITS));
+	}
+
+	/**
+	 * @return the cached id, or {@link #NOT_FOUND}
+	 */
+	public long get(long key) {
+		if (key != NO_KEY) {
+			int base = setOf(key) * WAYS;
+			for (int i = base; i < base + WAYS; i++) {
+				if (keys[i] == key) {
+					referenced[i] = true;
+					hits++;
+					return ids[i];
+				}
+			}
+		}
+		misses++;
+		return NOT_FOUND;
+	}
+
+	public void put(long key, long id) {
+		if (key == NO_KEY) {
+			return;
+		}
+		int set = setOf(key);
+		int base = set * WAYS;
+		int free = -1;
+		for (int i = base; i < base + WAYS; i++) {
+			if (keys[i] == key) {
+				ids[i] = id;
+				return;
+			} else if (free == -1 && keys[i] == NO_KEY) {
+				free = i;
+			}
+		}
+
+		if (free == -1) {
+			// clock: skip and clear referenced slots, at most one full turn before a slot is free to evict
+			int hand = hands[set];
+			while (referenced[base + hand]) {
+				referenced[base + hand] = false;
+				hand = (hand + 1) % WAYS;
+			}
+			free = base + hand;
+			hands[set] = (byte)((hand + 1) % WAYS);
+			evictions++;
+		} else {
+			size++;
+		}
+		keys[free] = key;
+		ids[free] = id;
+		referenced[free] = false;
+	}
+
+	public void remove(long key) {
+		if (key == NO_KEY) {
+			return;
+		}
+		int base = setOf(key) * WAYS;
+		for (int i = base; i < base + WAYS; i++) {
+			if (keys[i] == key) {
+				keys[i] = NO_KEY;
+				referenced[i] = false;
+				size--;
+				return;
+			}
+		}
+	}
+
+	public void clear() {
+		Arrays.fill(keys, NO_KEY);
+		Arrays.fill(referenced, false);
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return keys.length;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d/%d entries, %d hits, %d misses, %d evictions", size, capacity(), hits, misses, evictions);
+	}
+
+	private int setOf(long key) {
+		// murmur3 finalizer to spread sequential entity numbers over all sets
+		long h = key;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return (int)h & setMask;
+	}
+}
@@ -22,20 +22,24 @@ package com.hedera.recordFileLogger;
 
 import java.sql.CallableStatement;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.time.Instant;
 import java.util.HashMap;
+import java.util.List;
 
 import lombok.extern.log4j.Log4j2;
 
+import com.google.common.base.Stopwatch;
 import com.hedera.addressBook.NetworkAddressBook;
 import com.hedera.configLoader.ConfigLoader;
+import com.hedera.configLoader.ConfigLoader.RECORD_WRITER;
 import com.hedera.databaseUtilities.DatabaseUtilities;
+import com.hedera.databaseUtilities.SequenceBlockAllocator;
 import com.hedera.hashgraph.sdk.proto.ResponseCodeEnum;
 import com.hedera.utilities.Utility;
+import com.hederahashgraph.api.proto.java.AccountAmount;
 import com.hederahashgraph.api.proto.java.ContractCreateTransactionBody;
 import com.hederahashgraph.api.proto.java.ContractUpdateTransactionBody;
 import com.hederahashgraph.api.proto.java.CryptoCreateTransactionBody;
@@ -43,7 +47,6 @@ import com.hederahashgraph.api.proto.java.CryptoUpdateTransactionBody;
 import com.hederahashgraph.api.proto.java.FileCreateTransactionBody;
 import com.hederahashgraph.api.proto.java.FileID;
 import com.hederahashgraph.api.proto.java.FileUpdateTransactionBody;
-import com.hederahashgraph.api.proto.java.Transaction;
 import com.hederahashgraph.api.proto.java.TransactionBody;
 import com.hederahashgraph.api.proto.java.TransactionID;
 import com.hederahashgraph.api.proto.java.TransactionRecord;
@@ -58,73 +61,22 @@ public class RecordFileLogger {
 	private static HashMap<String, Integer> transactionResults = null;
 	private static HashMap<String, Integer> transactionTypes = null;
 
+	private static final SequenceBlockAllocator transactionIds =
+			new SequenceBlockAllocator("s_transactions_seq", ConfigLoader.getTransactionIdBlockSize());
+
 	private static long fileId = 0;
-	private static long BATCH_SIZE = 100;
-	private static long batch_count = 0;
-
-	private static PreparedStatement sqlInsertTransaction;
-	private static PreparedStatement sqlInsertTransferList;
-	private static PreparedStatement sqlInsertFileData;
-	private static PreparedStatement sqlInsertContractCall;
-	private static PreparedStatement sqlInsertClaimData;
+
+	private static RecordWriter recordWriter = null;
 	
 	public enum INIT_RESULT {
 		OK
 		,FAIL
 		,SKIP
 	}
-    enum F_TRANSACTION {
-        ZERO // column indices start at 1, this creates the necessary offset
-        ,ID
-        ,FK_NODE_ACCOUNT_ID
-        ,MEMO
-        ,VALID_START_NS
-        ,FK_TRANS_TYPE_ID
-        ,FK_PAYER_ACCOUNT_ID
-        ,FK_RESULT
-        ,CONSENSUS_SECONDS
-        ,CONSENSUS_NANOS
-        ,CONSENSUS_NS
-        ,CUD_ENTITY_ID
-        ,CHARGED_TX_FEE
-        ,INITIAL_BALANCE
-        ,FK_REC_FILE_ID
-    }
-
-    enum F_TRANSFERLIST {
-        ZERO // column indices start at 1, this creates the necessary offset
-        ,TXID
-        ,ACCOUNT_ID
-        ,AMOUNT
-        ,TYPE_ID
-    }
-
-    enum F_FILE_DATA {
-    	ZERO
-    	,FK_TRANS_ID
-    	,FILE_DATA
-    }
-
-    enum F_CONTRACT_CALL {
-    	ZERO
-    	,FK_TRANS_ID
-    	,FUNCTION_PARAMS
-    	,GAS_SUPPLIED
-    	,CALL_RESULT
-    	,GAS_USED
-    }
-
-    enum F_LIVEHASH_DATA {
-    	ZERO
-    	,FK_TRANS_ID
-    	,LIVEHASH
-    }
-    
+
     private static boolean bSkip = false;
 
 	public static boolean start() {
-		batch_count = 0;
-		
         connect = DatabaseUtilities.openDatabase(connect);
 
         if (connect == null) {
@@ -174,28 +126,11 @@ public class RecordFileLogger {
 			}
         }
 		try {
-			sqlInsertTransaction = connect.prepareStatement("INSERT INTO t_transactions"
-					+ " (id, fk_node_acc_id, memo, valid_start_ns, fk_trans_type_id, fk_payer_acc_id"
-					+ ", fk_result_id, consensus_seconds, consensus_nanos, consensus_ns, fk_cud_entity_id, charged_tx_fee"
-					+ ", initial_balance, fk_rec_file_id)"
-					+ " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"
-					+ " RETURNING id");
-			sqlInsertTransferList = connect.prepareStatement("INSERT INTO t_cryptotransferlists"
-					+ " (fk_trans_id, account_id, amount)"
-					+ " VALUES (?, ?, ?)");
-		
-			sqlInsertFileData = connect.prepareStatement("INSERT INTO t_file_data"
-					+ " (fk_trans_id, file_data)"
-					+ " VALUES (?, ?)");
-		
-			sqlInsertContractCall = connect.prepareStatement("INSERT INTO t_contract_result"
-					+ " (fk_trans_id, function_params, gas_supplied, call_result, gas_used)"
-					+ " VALUES (?, ?, ?, ?, ?)");
-
-			sqlInsertClaimData = connect.prepareStatement("INSERT INTO t_livehash_data"
-					+ " (fk_trans_id, livehash)"
-					+ " VALUES (?, ?)");
-			
+			if (ConfigLoader.getRecordWriter() == RECORD_WRITER.COPY) {
+				recordWriter = new CopyRecordWriter(connect, ConfigLoader.getRecordCopyBufferSize());
+			} else {
+				recordWriter = new BatchRecordWriter(connect);
+			}
 		} catch (SQLException e) {
             log.error("Unable to prepare SQL statements", e);
 			return false;
@@ -205,11 +140,11 @@ public class RecordFileLogger {
 	}
 	public static boolean finish() {
         try {
-            sqlInsertFileData.close();
-            sqlInsertTransferList.close();
-            sqlInsertTransaction.close();
-            sqlInsertContractCall.close();
-            sqlInsertClaimData.close();
+            recordWriter.close();
+            entities.close();
+            // anything not committed by now is rolled back when the connection closes
+            entities.rollback();
+            log.debug("Entity cache: {}", Entities.getCache());
         	
             connect = DatabaseUtilities.closeDatabase(connect);
         	return false;
@@ -248,8 +183,8 @@ public class RecordFileLogger {
 		if (bSkip) { return true;}
 
 		try {
-			// execute any remaining batches
-	    	executeBatches();
+			// write any remaining rows
+	    	recordWriter.flush();
 
 			// update the file to processed
 	    	CallableStatement fileClose = connect.prepareCall("{call f_file_complete( ?, ?, ? ) }");
@@ -272,6 +207,7 @@ public class RecordFileLogger {
 			fileClose.close();
 			// commit the changes to the database
 			connect.commit();
+			entities.commit();
 		} catch (SQLException e) {
 			log.error("Error completing file in database", e);
 			rollback();
@@ -283,50 +219,129 @@ public class RecordFileLogger {
 		if (bSkip) { return;}
 		try {
 			connect.rollback();
+			recordWriter.clear();
 		} catch (SQLException e) {
 			log.error("Exception while rolling transaction back", e);
+		} finally {
+			entities.rollback();
+		}
+	}
+	/**
+	 * Creates or looks up the entities referenced by the transactions of a record file in one round trip,
+	 * before the transactions are stored. Entities created by these transactions are left to storeRecord,
+	 * which creates them with their attributes.
+	 * @throws SQLException
+	 */
+	public static void resolveEntities(List<RecordItem> recordItems) throws SQLException {
+		if (bSkip) { return;}
+
+		Stopwatch stopwatch = Stopwatch.createStarted();
+		for (RecordItem recordItem : recordItems) {
+			TransactionBody body = recordItem.getTransactionBody();
+			TransactionRecord txRecord = recordItem.getRecord();
+
+			entities.addPending(body.getNodeAccountID());
+			entities.addPending(body.getTransactionID().getAccountID());
+
+            if (body.hasContractCall()) {
+                if (body.getContractCall().hasContractID()) {
+                    entities.addPending(body.getContractCall().getContractID());
+                }
+            } else if (body.hasContractCreateInstance()) {
+            	if (txRecord.getReceipt().hasContractID()) {
+            		entities.addPending(body.getContractCreateInstance().getProxyAccountID());
+            		entities.excludePending(txRecord.getReceipt().getContractID());
+            	}
+            } else if (body.hasContractDeleteInstance()) {
+                if (body.getContractDeleteInstance().hasContractID()) {
+                    entities.addPending(body.getContractDeleteInstance().getContractID());
+                }
+            } else if (body.hasContractUpdateInstance()) {
+            	entities.addPending(body.getContractUpdateInstance().getProxyAccountID());
+            	entities.addPending(body.getContractUpdateInstance().getContractID());
+            } else if (body.hasCryptoAddClaim()) {
+                if (body.getCryptoAddClaim().hasClaim()) {
+                    if (body.getCryptoAddClaim().getClaim().hasAccountID()) {
+                        entities.addPending(body.getCryptoAddClaim().getClaim().getAccountID());
+                    }
+                }
+            } else if (body.hasCryptoCreateAccount()) {
+            	if (txRecord.getReceipt().hasAccountID()) {
+            		entities.addPending(body.getCryptoCreateAccount().getProxyAccountID());
+            		entities.excludePending(txRecord.getReceipt().getAccountID());
+            	}
+            } else if (body.hasCryptoDelete()) {
+                if (body.getCryptoDelete().hasDeleteAccountID()) {
+                    entities.addPending(body.getCryptoDelete().getDeleteAccountID());
+                }
+            } else if (body.hasCryptoDeleteClaim()) {
+                if (body.getCryptoDeleteClaim().hasAccountIDToDeleteFrom()) {
+                    entities.addPending(body.getCryptoDeleteClaim().getAccountIDToDeleteFrom());
+                }
+            } else if (body.hasCryptoUpdateAccount()) {
+            	entities.addPending(body.getCryptoUpdateAccount().getProxyAccountID());
+            	entities.addPending(body.getCryptoUpdateAccount().getAccountIDToUpdate());
+            } else if (body.hasFileCreate()) {
+            	if (txRecord.getReceipt().hasFileID()) {
+            		entities.excludePending(txRecord.getReceipt().getFileID());
+            	}
+            } else if (body.hasFileAppend()) {
+                if (body.getFileAppend().hasFileID()) {
+                    entities.addPending(body.getFileAppend().getFileID());
+                }
+            } else if (body.hasFileDelete()) {
+                if (body.getFileDelete().hasFileID()) {
+                    entities.addPending(body.getFileDelete().getFileID());
+                }
+            } else if (body.hasFileUpdate()) {
+            	entities.addPending(body.getFileUpdate().getFileID());
+			} else if (body.hasSystemDelete()) {
+				if (body.getSystemDelete().hasContractID()) {
+					entities.addPending(body.getSystemDelete().getContractID());
+				} else if (body.getSystemDelete().hasFileID()) {
+					entities.addPending(body.getSystemDelete().getFileID());
+				}
+			} else if (body.hasSystemUndelete()) {
+				if (body.getSystemUndelete().hasContractID()) {
+					entities.addPending(body.getSystemUndelete().getContractID());
+				} else if (body.getSystemUndelete().hasFileID()) {
+					entities.addPending(body.getSystemUndelete().getFileID());
+				}
+			}
+
+			if (txRecord.hasTransferList() && ConfigLoader.getPersistCryptoTransferAmounts()) {
+				for (AccountAmount accountAmount : txRecord.getTransferList().getAccountAmountsList()) {
+					entities.addPending(accountAmount.getAccountID());
+				}
+			}
 		}
+		int resolved = entities.resolvePending();
+		log.debug("Resolved {} entities for {} transactions in {}", resolved, recordItems.size(), stopwatch);
 	}
-	public static boolean storeRecord(long counter, Instant consensusTimeStamp, Transaction transaction, TransactionRecord txRecord) throws Exception {
+
+	public static boolean storeRecord(long counter, Instant consensusTimeStamp, RecordItem recordItem) throws Exception {
 
 		try {
+			TransactionRecord txRecord = recordItem.getRecord();
 
 			long fkTransactionId = 0;
 			
-            ResultSet resultSet;
 			try {
-				resultSet = connect.createStatement().executeQuery("SELECT nextval('s_transactions_seq')");
-				resultSet.next();
-            	fkTransactionId = resultSet.getLong(1);
-	            resultSet.close();
+				fkTransactionId = transactionIds.next(connect);
 			} catch (SQLException e) {
 	            log.error("Unable to fetch new transaction id", e);
 				return false;
 			}
 			
-			TransactionBody body = null;
-			if (transaction.hasBody()) {
-				body = transaction.getBody();
-			} else {
-				body = TransactionBody.parseFrom(transaction.getBodyBytes());
-			}
+			TransactionBody body = recordItem.getTransactionBody();
 			long fkNodeAccountId = entities.createOrGetEntity(body.getNodeAccountID());
 			TransactionID transactionID = body.getTransactionID();
 			long seconds = transactionID.getTransactionValidStart().getSeconds();
 			long nanos = transactionID.getTransactionValidStart().getNanos();
 			long validStartNs = Utility.convertInstantToNanos(Instant.ofEpochSecond(seconds, nanos));
 
-			sqlInsertTransaction.setLong(F_TRANSACTION.ID.ordinal(), fkTransactionId);
-			sqlInsertTransaction.setLong(F_TRANSACTION.FK_NODE_ACCOUNT_ID.ordinal(), fkNodeAccountId);
-			sqlInsertTransaction.setBytes(F_TRANSACTION.MEMO.ordinal(), body.getMemo().getBytes());
-			sqlInsertTransaction.setLong(F_TRANSACTION.VALID_START_NS.ordinal(), validStartNs);
-			sqlInsertTransaction.setInt(F_TRANSACTION.FK_TRANS_TYPE_ID.ordinal(), getTransactionTypeId(body));
-			sqlInsertTransaction.setLong(F_TRANSACTION.FK_REC_FILE_ID.ordinal(), fileId);
-
 	        long fkPayerAccountId = entities.createOrGetEntity(transactionID.getAccountID());
 
-			sqlInsertTransaction.setLong(F_TRANSACTION.FK_PAYER_ACCOUNT_ID.ordinal(), fkPayerAccountId);
-
 			long fk_result_id = -1;
 			String responseCode = ResponseCodeEnum.forNumber(txRecord.getReceipt().getStatus().getNumber()).getValueDescriptor().getName();
 
@@ -336,12 +351,6 @@ public class RecordFileLogger {
 			nanos = txRecord.getConsensusTimestamp().getNanos();
 			long consensusNs = Utility.convertInstantToNanos(Instant.ofEpochSecond(seconds, nanos));
 			
-			sqlInsertTransaction.setLong(F_TRANSACTION.FK_RESULT.ordinal(), fk_result_id);
-			sqlInsertTransaction.setLong(F_TRANSACTION.CONSENSUS_SECONDS.ordinal(), seconds);
-			sqlInsertTransaction.setLong(F_TRANSACTION.CONSENSUS_NANOS.ordinal(), nanos);
-			sqlInsertTransaction.setLong(F_TRANSACTION.CONSENSUS_NS.ordinal(), consensusNs);
-			sqlInsertTransaction.setLong(F_TRANSACTION.CHARGED_TX_FEE.ordinal(), txRecord.getTransactionFee());
-			
             long entityId = 0;
             long initialBalance = 0;
 
@@ -522,18 +531,10 @@ public class RecordFileLogger {
 				}
 			}
 
-            if (entityId == 0) {
-                // insert null
-                sqlInsertTransaction.setObject(F_TRANSACTION.CUD_ENTITY_ID.ordinal(), null);
-            } else {
-                sqlInsertTransaction.setLong(F_TRANSACTION.CUD_ENTITY_ID.ordinal(), entityId);
-
-            }
-            sqlInsertTransaction.setLong(F_TRANSACTION.INITIAL_BALANCE.ordinal(), initialBalance);
-
 			try {
-//                fkTransactionId = insertTransaction(sqlInsertTransaction);
-				sqlInsertTransaction.addBatch();
+				recordWriter.addTransaction(fkTransactionId, fkNodeAccountId, body.getMemo().getBytes(), validStartNs
+						, getTransactionTypeId(body), fkPayerAccountId, fk_result_id, seconds, nanos, consensusNs
+						, entityId, txRecord.getTransactionFee(), initialBalance, fileId);
 			} catch (SQLException e) {
 			    if (e.getSQLState().contentEquals("23505")) {
                     // duplicate transaction id, rollback and exit
@@ -552,12 +553,8 @@ public class RecordFileLogger {
                     if (ConfigLoader.getPersistCryptoTransferAmounts()) {
 	                    for (int i = 0; i < pTransfer.getAccountAmountsCount(); i++) {
 	                        // insert
-	                        sqlInsertTransferList.setLong(F_TRANSFERLIST.TXID.ordinal(), fkTransactionId);
 	                        long xferAccountId = entities.createOrGetEntity(pTransfer.getAccountAmounts(i).getAccountID());
-	                        sqlInsertTransferList.setLong(F_TRANSFERLIST.ACCOUNT_ID.ordinal(), xferAccountId);
-	                        sqlInsertTransferList.setLong(F_TRANSFERLIST.AMOUNT.ordinal(), pTransfer.getAccountAmounts(i).getAmount());
-
-	                        sqlInsertTransferList.addBatch();
+	                        recordWriter.addTransfer(fkTransactionId, xferAccountId, pTransfer.getAccountAmounts(i).getAmount());
 	                    }
 //	                    if ( ! bSkip) {
 //	                    	sqlInsertTransferList.executeBatch();
@@ -590,7 +587,7 @@ public class RecordFileLogger {
 	            		gasUsed = txRecord.getContractCallResult().getGasUsed();
 	            	}
 
-	            	insertContractResults(sqlInsertContractCall, fkTransactionId, functionParams, gasSupplied, callResult, gasUsed);
+	            	insertContractResults(fkTransactionId, functionParams, gasSupplied, callResult, gasUsed);
             	}
             } else if (body.hasContractCreateInstance()) {
             	if (ConfigLoader.getPersistContracts()) {
@@ -603,7 +600,7 @@ public class RecordFileLogger {
 	            		gasUsed = txRecord.getContractCreateResult().getGasUsed();
 	            	}
 
-	            	insertContractResults(sqlInsertContractCall, fkTransactionId, functionParams, gasSupplied, callResult, gasUsed);
+	            	insertContractResults(fkTransactionId, functionParams, gasSupplied, callResult, gasUsed);
             	}
             } else if (body.hasContractDeleteInstance()) {
             	// Do nothing
@@ -613,10 +610,8 @@ public class RecordFileLogger {
             	if (ConfigLoader.getPersistClaims()) {
 	            	byte[] claim = body.getCryptoAddClaim().getClaim().getHash().toByteArray();
 
-	    			sqlInsertClaimData.setLong(F_LIVEHASH_DATA.FK_TRANS_ID.ordinal(), fkTransactionId);
-	            	sqlInsertClaimData.setBytes(F_LIVEHASH_DATA.LIVEHASH.ordinal(), claim);
                     if ( ! bSkip) {
-                    	sqlInsertClaimData.addBatch();
+                    	recordWriter.addLiveHash(fkTransactionId, claim);
                     }
             	}
             } else if (body.hasCryptoDeleteClaim()) {
@@ -632,19 +627,15 @@ public class RecordFileLogger {
             } else if (body.hasFileAppend()) {
             	if (ConfigLoader.getPersistFiles().contentEquals("ALL") || (ConfigLoader.getPersistFiles().contentEquals("SYSTEM") && body.getFileAppend().getFileID().getFileNum() < 1000)) {
 	            	byte[] contents = body.getFileAppend().getContents().toByteArray();
-	            	sqlInsertFileData.setLong(F_FILE_DATA.FK_TRANS_ID.ordinal(), fkTransactionId);
-	            	sqlInsertFileData.setBytes(F_FILE_DATA.FILE_DATA.ordinal(), contents);
                     if ( ! bSkip) {
-                    	sqlInsertFileData.addBatch();
+                    	recordWriter.addFileData(fkTransactionId, contents);
                     }
             	}
             } else if (body.hasFileCreate()) {
             	if (ConfigLoader.getPersistFiles().contentEquals("ALL") || (ConfigLoader.getPersistFiles().contentEquals("SYSTEM") && txRecord.getReceipt().getFileID().getFileNum() < 1000)) {
 	            	byte[] contents = body.getFileCreate().getContents().toByteArray();
-	            	sqlInsertFileData.setLong(F_FILE_DATA.FK_TRANS_ID.ordinal(), fkTransactionId);
-	            	sqlInsertFileData.setBytes(F_FILE_DATA.FILE_DATA.ordinal(), contents);
                     if ( ! bSkip) {
-                    	sqlInsertFileData.addBatch();
+                    	recordWriter.addFileData(fkTransactionId, contents);
                     }
             	}
             	//TODO:Address book + proxy amounts for nodes
@@ -653,10 +644,8 @@ public class RecordFileLogger {
             } else if (body.hasFileUpdate()) {
             	if (ConfigLoader.getPersistFiles().contentEquals("ALL") || (ConfigLoader.getPersistFiles().contentEquals("SYSTEM") && body.getFileUpdate().getFileID().getFileNum() < 1000)) {
 	            	byte[] contents = body.getFileUpdate().getContents().toByteArray();
-	            	sqlInsertFileData.setLong(F_FILE_DATA.FK_TRANS_ID.ordinal(), fkTransactionId);
-	            	sqlInsertFileData.setBytes(F_FILE_DATA.FILE_DATA.ordinal(), contents);
                     if ( ! bSkip) {
-                    	sqlInsertFileData.addBatch();
+                    	recordWriter.addFileData(fkTransactionId, contents);
                     }
             	}
 
@@ -682,13 +671,8 @@ public class RecordFileLogger {
 			return false;
 		}
 		
-		if (batch_count == BATCH_SIZE - 1) {
-        	// execute any remaining batches
-        	executeBatches();
-			batch_count = 0;
-		} else {
-			batch_count += 1 ;
-		}
+		// the writer may send what it buffered so far
+		recordWriter.endRecord();
 
 		return true;
 	}
@@ -729,24 +713,9 @@ public class RecordFileLogger {
 //        return txId;
 //	}
 
-	public static void insertContractResults(PreparedStatement insert, long fkTxId, byte[] functionParams, long gasSupplied, byte[] callResult, long gasUsed) throws SQLException {
+	public static void insertContractResults(long fkTxId, byte[] functionParams, long gasSupplied, byte[] callResult, long gasUsed) throws SQLException {
         if ( bSkip) { return;}
 
-		insert.setLong(F_CONTRACT_CALL.FK_TRANS_ID.ordinal(), fkTxId);
-		insert.setBytes(F_CONTRACT_CALL.FUNCTION_PARAMS.ordinal(), functionParams);
-		insert.setLong(F_CONTRACT_CALL.GAS_SUPPLIED.ordinal(), gasSupplied);
-		insert.setBytes(F_CONTRACT_CALL.CALL_RESULT.ordinal(), callResult);
-		insert.setLong(F_CONTRACT_CALL.GAS_USED.ordinal(), gasUsed);
-
-		insert.addBatch();
-
-	}
-	
-	private static void executeBatches() throws SQLException {
-		sqlInsertTransaction.executeBatch();
-		sqlInsertTransferList.executeBatch();
-		sqlInsertFileData.executeBatch();
-		sqlInsertContractCall.executeBatch();
-		sqlInsertClaimData.executeBatch();
+		recordWriter.addContractResult(fkTxId, functionParams, gasSupplied, callResult, gasUsed);
 	}
 }
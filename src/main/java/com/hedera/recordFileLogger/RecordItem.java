@@ -0,0 +1,48 @@
+package com.hedera.recordFileLogger;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.hederahashgraph.api.proto.java.Transaction;
+import com.hederahashgraph.api.proto.java.TransactionBody;
+import com.hederahashgraph.api.proto.java.TransactionRecord;
+
+import lombok.Value;
+
+/**
+ * A transaction and its record as read from a record file, with the transaction body already parsed
+ */
+@Value
+public class RecordItem {
+	Transaction transaction;
+	TransactionBody transactionBody;
+	TransactionRecord record;
+
+	public static RecordItem of(Transaction transaction, TransactionRecord record) throws InvalidProtocolBufferException {
+		TransactionBody body = null;
+		if (transaction.hasBody()) {
+			body = transaction.getBody();
+		} else {
+			body = TransactionBody.parseFrom(transaction.getBodyBytes());
+		}
+		return new RecordItem(transaction, body, record);
+	}
+}
@@ -0,0 +1,65 @@
+package com.hedera.recordFileLogger;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.sql.SQLException;
+
+/**
+ * Writes the rows stored for the transactions of record files, within the database transaction of the connection
+ * it was created for. Rows may be buffered until endRecord or flush is called.
+ */
+public interface RecordWriter {
+
+	/**
+	 * Adds a t_transactions row, a cudEntityId of 0 is stored as null
+	 */
+	void addTransaction(long id, long nodeAccountId, byte[] memo, long validStartNs, int transactionTypeId, long payerAccountId
+			, long resultId, long consensusSeconds, long consensusNanos, long consensusNs, long cudEntityId
+			, long chargedTxFee, long initialBalance, long recordFileId) throws SQLException;
+
+	void addTransfer(long transactionId, long accountId, long amount) throws SQLException;
+
+	void addFileData(long transactionId, byte[] fileData) throws SQLException;
+
+	void addContractResult(long transactionId, byte[] functionParams, long gasSupplied, byte[] callResult, long gasUsed) throws SQLException;
+
+	void addLiveHash(long transactionId, byte[] liveHash) throws SQLException;
+
+	/**
+	 * Called once all rows of a record have been added, the writer may send buffered rows to the database
+	 */
+	void endRecord() throws SQLException;
+
+	/**
+	 * Sends all buffered rows to the database
+	 */
+	void flush() throws SQLException;
+
+	/**
+	 * Discards the buffered rows, to be called when the database transaction is rolled back
+	 */
+	void clear() throws SQLException;
+
+	/**
+	 * Releases the writer's statements, buffered rows which were not flushed are discarded
+	 */
+	void close() throws SQLException;
+}
@@ -20,6 +20,7 @@ package com.hedera.signatureVerifier;
  * ‍
  */
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.hedera.configLoader.ConfigLoader;
 import com.hedera.utilities.Utility;
@@ -31,6 +32,7 @@ import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.io.File;
+import java.security.GeneralSecurityException;
 import java.security.KeyFactory;
 import java.security.PublicKey;
 import java.security.Signature;
@@ -38,17 +40,38 @@ import java.security.spec.EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Log4j2
 public class NodeSignatureVerifier {
 
 	private static String nodeAddressBookLocation;
 
+	// shared by all verifiers, a verifier is created every time the address book is reloaded
+	private static final ExecutorService verifyExecutor = Executors.newFixedThreadPool(ConfigLoader.getSigVerifyThreads(),
+			new ThreadFactoryBuilder().setNameFormat("sig-verify-%d").setDaemon(true).build());
+
+	// Signature instances are not thread safe, but can be reused once initialized with another key
+	private static final ThreadLocal<Signature> signatures = ThreadLocal.withInitial(() -> {
+		try {
+			return Signature.getInstance("SHA384withRSA", "SunRsaSign");
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("SHA384withRSA signatures are not available", e);
+		}
+	});
+
+	// outcomes are kept across verifiers, sig files of a failed round are verified again in the next one
+	private static final SignatureVerificationCache verificationCache = new SignatureVerificationCache(ConfigLoader.getSigVerifyCacheSize());
+
 	Map<String, PublicKey> nodeIDPubKeyMap;
 
 	public NodeSignatureVerifier() {
@@ -118,7 +141,14 @@ public class NodeSignatureVerifier {
 	}
 
 	public boolean verifySignatureFile(File sigFile) {
-		Pair<byte[], byte[]> hashAndSig = Utility.extractHashAndSigFromFile(sigFile);
+		return verifySignatureFile(sigFile, Utility.extractHashAndSigFromFile(sigFile));
+	}
+
+	private boolean verifySignatureFile(File sigFile, Pair<byte[], byte[]> hashAndSig) {
+		if (hashAndSig == null) {
+			log.error("Unable to read signature file {}", sigFile.getPath());
+			return false;
+		}
 
 		//Signed Data is the Hash of unsigned File
 		byte[] signedData = hashAndSig.getLeft();
@@ -139,31 +169,74 @@ public class NodeSignatureVerifier {
 	 * 1. Verify that the signature files are signed by corresponding node's PublicKey;
 	 * For invalid signature files, we will log them;
 	 * 2. For valid signature files, we compare their Hashes to see if more than 2/3 Hashes matches. If more than 2/3 Hashes matches, we return a List of Files which contains this Hash
+	 * The files are verified concurrently, and verification stops as soon as a Hash is agreed by super-majority nodes,
+	 * or as soon as no Hash can reach a super-majority anymore. Files not verified by then are not part of the returned List.
 	 * @param sigFiles
 	 * @return
 	 */
 	public List<File> verifySignatureFiles(List<File> sigFiles) {
-		// If a signature is valid, we put the Hash in its content and its File to the map, to see if more than 2/3 valid signatures have the same Hash
-		Map<String, Set<File>> hashToSigFiles = new HashMap<>();
-		for (File sigFile : sigFiles) {
-			if (verifySignatureFile(sigFile)) {
-				byte[] hash = Utility.extractHashAndSigFromFile(sigFile).getLeft();
-				String hashString = Hex.encodeHexString(hash);
-				Set<File> files = hashToSigFiles.getOrDefault(hashString, new HashSet<>());
-				files.add(sigFile);
-				hashToSigFiles.put(hashString, files);
-			}
+		CompletionService<VerifiedSigFile> completionService = new ExecutorCompletionService<>(verifyExecutor);
+		List<Future<VerifiedSigFile>> futures = new ArrayList<>(sigFiles.size());
+		for (int i = 0; i < sigFiles.size(); i++) {
+			File sigFile = sigFiles.get(i);
+			int index = i;
+			futures.add(completionService.submit(() -> verify(index, sigFile)));
 		}
 
-		for (String key : hashToSigFiles.keySet()) {
-			if (Utility.greaterThanSuperMajorityNum(hashToSigFiles.get(key).size(),
-					nodeIDPubKeyMap.size())){
-				return new ArrayList<>(hashToSigFiles.get(key));
+		// If a signature is valid, we put the Hash in its content and its File to the map, to see if more than 2/3 valid signatures have the same Hash
+		Map<String, List<VerifiedSigFile>> hashToSigFiles = new HashMap<>();
+		int largestAgreement = 0;
+		try {
+			for (int remaining = sigFiles.size(); remaining > 0; remaining--) {
+				VerifiedSigFile verified;
+				try {
+					verified = completionService.take().get();
+				} catch (ExecutionException e) {
+					log.error("Failed to verify signature file", e.getCause());
+					continue;
+				}
+				if (verified.hash != null) {
+					List<VerifiedSigFile> files = hashToSigFiles.computeIfAbsent(verified.hash, k -> new ArrayList<>());
+					files.add(verified);
+					largestAgreement = Math.max(largestAgreement, files.size());
+					if (Utility.greaterThanSuperMajorityNum(files.size(), nodeIDPubKeyMap.size())) {
+						log.debug("{} of {} signature files agree on hash {}", files.size(), sigFiles.size(), verified.hash);
+						files.sort(Comparator.comparingInt(f -> f.index));
+						List<File> validSigFiles = new ArrayList<>(files.size());
+						for (VerifiedSigFile file : files) {
+							validSigFiles.add(file.file);
+						}
+						return validSigFiles;
+					}
+				}
+				if (!Utility.greaterThanSuperMajorityNum(largestAgreement + remaining - 1, nodeIDPubKeyMap.size())) {
+					// even if all remaining files agree with the largest group, there won't be a super-majority
+					break;
+				}
+			}
+		} catch (InterruptedException e) {
+			log.warn("Interrupted while verifying signature files");
+			Thread.currentThread().interrupt();
+		} finally {
+			for (Future<VerifiedSigFile> future : futures) {
+				future.cancel(true);
 			}
 		}
 		return new ArrayList<>();
 	}
 
+	/**
+	 * Reads the signature file once, and verifies its signature
+	 * @return the sig file with its Hash, or a null Hash if the signature is not valid
+	 */
+	private VerifiedSigFile verify(int index, File sigFile) {
+		Pair<byte[], byte[]> hashAndSig = Utility.extractHashAndSigFromFile(sigFile);
+		if (!verifySignatureFile(sigFile, hashAndSig)) {
+			return new VerifiedSigFile(index, sigFile, null);
+		}
+		return new VerifiedSigFile(index, sigFile, Hex.encodeHexString(hashAndSig.getLeft()));
+	}
+
 	/**
 	 * check whether the given signature is valid
 	 *
@@ -188,12 +261,20 @@ public class NodeSignatureVerifier {
 			return false;
 		}
 
+		Boolean cached = verificationCache.get(nodeAccountID, data, publicKey, signature);
+		if (cached != null) {
+			log.trace("Using cached signature verification of file {} for node {}", filePath, nodeAccountID);
+			return cached;
+		}
+
 		try {
 			log.trace("Verifying signature of file {} with public key of node {}", filePath, nodeAccountID);
-			Signature sig = Signature.getInstance("SHA384withRSA", "SunRsaSign");
+			Signature sig = signatures.get();
 			sig.initVerify(publicKey);
 			sig.update(data);
-			return sig.verify(signature);
+			boolean isValid = sig.verify(signature);
+			verificationCache.put(nodeAccountID, data, publicKey, signature, isValid);
+			return isValid;
 		} catch (Exception e) {
 			log.error("Failed to verify Signature: {}, PublicKey: {}, NodeID: {}, File: {}", signature, publicKey, nodeAccountID, filePath, e);
 		}
@@ -205,4 +286,16 @@ public class NodeSignatureVerifier {
 		Collections.sort(list);
 		return list;
 	}
+
+	private static class VerifiedSigFile {
+		private final int index;
+		private final File file;
+		private final String hash;
+
+		VerifiedSigFile(int index, File file, String hash) {
+			this.index = index;
+			this.file = file;
+			this.hash = hash;
+		}
+	}
 }
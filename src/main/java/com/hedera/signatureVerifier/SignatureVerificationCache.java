@@ -0,0 +1,119 @@
+package com.hedera.signatureVerifier;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import org.apache.commons.codec.binary.Hex;
+
+import java.security.PublicKey;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, least recently used cache of signature verification outcomes keyed on node account ID and signed file hash.
+ *
+ * An entry also holds the public key and the signature it was verified with, and is only used when both still match:
+ * a rotated node key in a new address book, or a different signature for the same hash, is verified again.
+ *
+ * Thread safe.
+ */
+public class SignatureVerificationCache {
+
+	private final int capacity;
+	private final Map<String, Outcome> outcomes;
+
+	private long hits = 0;
+	private long misses = 0;
+
+	/**
+	 * @param capacity maximum number of entries
+	 */
+	public SignatureVerificationCache(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+		outcomes = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Outcome> eldest) {
+				return size() > SignatureVerificationCache.this.capacity;
+			}
+		};
+	}
+
+	/**
+	 * @return the cached outcome of verifying the signature of the hash with the public key of the node, or null if unknown
+	 */
+	public synchronized Boolean get(String nodeAccountID, byte[] hash, PublicKey publicKey, byte[] signature) {
+		Outcome outcome = outcomes.get(key(nodeAccountID, hash));
+		if (outcome != null && outcome.publicKey.equals(publicKey) && Arrays.equals(outcome.signature, signature)) {
+			hits++;
+			return outcome.valid;
+		}
+		misses++;
+		return null;
+	}
+
+	public synchronized void put(String nodeAccountID, byte[] hash, PublicKey publicKey, byte[] signature, boolean valid) {
+		outcomes.put(key(nodeAccountID, hash), new Outcome(publicKey, signature.clone(), valid));
+	}
+
+	public synchronized void clear() {
+		outcomes.clear();
+	}
+
+	public synchronized int size() {
+		return outcomes.size();
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%d/%d entries, %d hits, %d misses", outcomes.size(), capacity, hits, misses);
+	}
+
+	private static String key(String nodeAccountID, byte[] hash) {
+		return nodeAccountID + '/' + Hex.encodeHexString(hash);
+	}
+
+	private static class Outcome {
+		private final PublicKey publicKey;
+		private final byte[] signature;
+		private final boolean valid;
+
+		Outcome(PublicKey publicKey, byte[] signature, boolean valid) {
+			this.publicKey = publicKey;
+			this.signature = signature;
+			this.valid = valid;
+		}
+	}
+}
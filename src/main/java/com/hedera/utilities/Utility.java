@@ -45,6 +45,7 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -64,6 +65,19 @@ public class Utility {
 	private static final byte TYPE_SIGNATURE = 3;       // the file content signature, should not be hashed
 	private static final byte TYPE_FILE_HASH = 4;       // next 48 bytes are hash384 of content of corresponding RecordFile
 
+	// getFileHash reads files in chunks of this size into a direct buffer, both the buffer and the digest are reused
+	// by the thread
+	private static final int FILE_HASH_BUFFER_SIZE = 64 * 1024;
+	private static final ThreadLocal<ByteBuffer> fileHashBuffers =
+			ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(FILE_HASH_BUFFER_SIZE));
+	private static final ThreadLocal<MessageDigest> fileHashDigests = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-384");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-384 is not available", e);
+		}
+	});
+
 
 	public static boolean checkStopFile() {
 		File stopFile = new File("./stop");
@@ -74,8 +88,16 @@ public class Utility {
 	 * @return
 	 */
 	public static boolean hashMatch(File sigFile, File rcdFile) {
-		byte[] fileHash = Utility.getFileHash(rcdFile.getPath());
-		return Arrays.equals(fileHash, extractHashAndSigFromFile(sigFile).getLeft());
+		return hashMatch(sigFile, Utility.getFileHash(rcdFile.getPath()));
+	}
+
+	/**
+	 * Verify if the hash of a file, computed as it was downloaded, is equal to the hash contained in its signature file
+	 * @return
+	 */
+	public static boolean hashMatch(File sigFile, byte[] fileHash) {
+		Pair<byte[], byte[]> hashAndSig = extractHashAndSigFromFile(sigFile);
+		return hashAndSig != null && Arrays.equals(fileHash, hashAndSig.getLeft());
 	}
 	/**
 	 * 1. Extract the Hash of the content of corresponding RecordStream file. This Hash is the signed Content of this signature
@@ -122,28 +144,26 @@ public class Utility {
 	}
 
 	/**
-	 * Calculate SHA384 hash of a binary file
+	 * Calculate SHA384 hash of a binary file, reading it in chunks so that memory use doesn't grow with the file size
 	 *
 	 * @param fileName
 	 * 		file name
-	 * @return byte array of hash value
+	 * @return byte array of hash value, or null if the file can't be read
 	 */
 	public static byte[] getFileHash(String fileName) {
-		MessageDigest md;
-		try {
-			md = MessageDigest.getInstance("SHA-384");
-
-			byte[] array = new byte[0];
-			try {
-				array = Files.readAllBytes(Paths.get(fileName));
-			} catch (IOException e) {
-				log.error("Exception {}", e);
+		MessageDigest md = fileHashDigests.get();
+		ByteBuffer buffer = fileHashBuffers.get();
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			buffer.clear();
+			while (channel.read(buffer) >= 0) {
+				buffer.flip();
+				md.update(buffer);
+				buffer.clear();
 			}
-			byte[] fileHash = md.digest(array);
-			return fileHash;
-
-		} catch (NoSuchAlgorithmException e) {
-			log.error("Exception {}", e);
+			return md.digest();
+		} catch (IOException e) {
+			log.error("Failed to read file {} to hash it", fileName, e);
+			md.reset();
 			return null;
 		}
 	}
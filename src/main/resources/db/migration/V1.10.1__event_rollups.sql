@@ -0,0 +1,79 @@
+--
+-- Per minute and creator node rollups of t_events, maintained by the event parser as events are stored so that
+-- analytics over long periods don't aggregate t_events.
+--
+
+-- Bucket of a latency in event_latency_buckets: values below 8 have their own bucket, larger values are split in 8
+-- buckets per power of two, so a bucket is at most 1/8th of its lower bound wide. Must match EventRollups.latencyBucket.
+create function f_latency_bucket(latency_ns bigint)
+    returns smallint as
+$$
+declare
+    exponent integer;
+begin
+    if latency_ns < 8 then
+        return greatest(latency_ns, 0);
+    end if;
+    exponent := length(ltrim(latency_ns::bit(64)::text, '0')) - 1;
+    return (exponent - 2) * 8 + ((latency_ns >> (exponent - 3)) & 7);
+end;
+$$ language plpgsql immutable;
+
+grant all on function f_latency_bucket(bigint) to ${db-user};
+
+-- Events created and events that reached consensus during a minute, by creator node. Created events are counted in
+-- the minute they were created in, all other columns are about the events that reached consensus in the minute.
+create table event_rollups (
+    minute_timestamp nanos_timestamp not null
+    ,creator_node_id bigint not null
+
+    ,created_count bigint not null default 0
+    ,consensus_count bigint not null default 0
+    ,platform_tx_count bigint not null default 0
+    ,app_tx_count bigint not null default 0
+    ,latency_sum_ns bigint not null default 0
+    ,latency_min_ns bigint null
+    ,latency_max_ns bigint null
+
+    ,constraint pk__event_rollups primary key (minute_timestamp, creator_node_id)
+);
+comment on table event_rollups is 'per minute and creator node counts and latencies of t_events';
+
+-- Latency histogram of the events that reached consensus during a minute, by creator node. Only non empty buckets
+-- are stored.
+create table event_latency_buckets (
+    minute_timestamp nanos_timestamp not null
+    ,creator_node_id bigint not null
+    ,bucket smallint not null
+
+    ,event_count bigint not null
+
+    ,constraint pk__event_latency_buckets primary key (minute_timestamp, creator_node_id, bucket)
+);
+comment on table event_latency_buckets is 'per minute and creator node latency histograms of t_events, see f_latency_bucket';
+
+-- Partial minutes at the edges of a period are aggregated from t_events.
+create index if not exists idx__t_events__consensus_timestamp on t_events (consensus_timestamp_ns);
+create index if not exists idx__t_events__created_timestamp on t_events (created_timestamp_ns);
+
+--
+-- Backfill from the events loaded so far.
+--
+insert into event_rollups (minute_timestamp, creator_node_id, consensus_count, platform_tx_count, app_tx_count,
+        latency_sum_ns, latency_min_ns, latency_max_ns)
+    select (consensus_timestamp_ns / 60000000000) * 60000000000, creator_node_id, count(*), sum(platform_tx_count),
+        sum(app_tx_count), sum(latency_ns), min(latency_ns), max(latency_ns)
+    from t_events
+    group by 1, 2;
+
+insert into event_rollups (minute_timestamp, creator_node_id, created_count)
+    select (created_timestamp_ns / 60000000000) * 60000000000, creator_node_id, count(*)
+    from t_events
+    group by 1, 2
+    on conflict (minute_timestamp, creator_node_id) do update
+        set created_count = excluded.created_count;
+
+insert into event_latency_buckets (minute_timestamp, creator_node_id, bucket, event_count)
+    select (consensus_timestamp_ns / 60000000000) * 60000000000, creator_node_id, f_latency_bucket(latency_ns), count(*)
+    from t_events
+    group by 1, 2, 3;
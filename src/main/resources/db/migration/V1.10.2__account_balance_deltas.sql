@@ -0,0 +1,65 @@
+--
+-- Account balance sets stored as deltas: when accountBalancesFullSnapshotInterval is above 1, only every so many sets
+-- have the balances of all accounts, the sets in between only have the balances that changed since the previous set.
+--
+
+-- Full set the delta sets are based on, null for full sets. The delta sets of a full set are the complete sets with
+-- its consensus timestamp as base.
+alter table account_balance_sets
+    add column base_consensus_timestamp nanos_timestamp null;
+comment on column account_balance_sets.base_consensus_timestamp is 'full set this set is a delta of, null if this set is full';
+create index idx__account_balance_sets__base
+    on account_balance_sets (base_consensus_timestamp, consensus_timestamp desc)
+    where is_complete;
+
+-- Complete sets needed to reconstruct the balances of the latest complete set at or before at_timestamp: that set's
+-- full set, and the delta sets of that full set up to that set.
+create function f_account_balance_sets_at(at_timestamp nanos_timestamp)
+    returns table (consensus_timestamp nanos_timestamp, snapshot_timestamp nanos_timestamp) as
+$$
+    with snapshot as (
+        select s.consensus_timestamp, coalesce(s.base_consensus_timestamp, s.consensus_timestamp) as base_timestamp
+        from account_balance_sets s
+        where s.is_complete and s.consensus_timestamp <= at_timestamp
+        order by s.consensus_timestamp desc
+        limit 1
+    )
+    select s.consensus_timestamp, snapshot.consensus_timestamp
+    from snapshot
+    join account_balance_sets s
+        on s.is_complete
+        and s.consensus_timestamp <= snapshot.consensus_timestamp
+        and (s.consensus_timestamp = snapshot.base_timestamp or s.base_consensus_timestamp = snapshot.base_timestamp);
+$$ language sql stable;
+
+grant all on function f_account_balance_sets_at(nanos_timestamp) to ${db-user};
+
+-- Balances of all accounts as of the latest complete set at or before at_timestamp, with that set's consensus
+-- timestamp. Works for full and delta sets alike: an account's balance is its latest row in the sets of
+-- f_account_balance_sets_at.
+create function f_account_balances_at(at_timestamp nanos_timestamp)
+    returns table (consensus_timestamp nanos_timestamp, account_id entity_id, balance hbar_tinybars) as
+$$
+    select distinct on (ab.account_id) sets.snapshot_timestamp, ab.account_id, ab.balance
+    from f_account_balance_sets_at(at_timestamp) sets
+    join account_balances ab
+        on ab.consensus_timestamp = sets.consensus_timestamp
+    order by ab.account_id, ab.consensus_timestamp desc;
+$$ language sql stable;
+
+grant all on function f_account_balances_at(nanos_timestamp) to ${db-user};
+
+-- Balance of one account as of the latest complete set at or before at_timestamp, using
+-- idx__account_balances__account_then_timestamp.
+create function f_account_balance_at(account entity_id, at_timestamp nanos_timestamp)
+    returns hbar_tinybars as
+$$
+    select ab.balance
+    from account_balances ab
+    where ab.account_id = account
+        and ab.consensus_timestamp in (select sets.consensus_timestamp from f_account_balance_sets_at(at_timestamp) sets)
+    order by ab.consensus_timestamp desc
+    limit 1;
+$$ language sql stable;
+
+grant all on function f_account_balance_at(entity_id, nanos_timestamp) to ${db-user};
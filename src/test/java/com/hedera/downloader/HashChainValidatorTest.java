@@ -0,0 +1,144 @@
+package com.hedera.downloader;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.hedera.utilities.Utility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashChainValidatorTest {
+    private static final String ZERO_HASH = Utility.bytesToHex(new byte[48]);
+
+    private Path directory;
+    private ExecutorService executor;
+    // previous file hash of each file, read by the validator instead of a file header
+    private final Map<String, String> prevFileHashes = new HashMap<>();
+    private final List<String> files = new ArrayList<>();
+
+    @BeforeEach
+    void before() throws IOException {
+        directory = Files.createTempDirectory("HashChainValidatorTest");
+        directory.toFile().deleteOnExit();
+        executor = Executors.newFixedThreadPool(3);
+    }
+
+    @AfterEach
+    void after() {
+        executor.shutdownNow();
+    }
+
+    // writes file i linked to prevFileHash and returns its hash
+    private String addFile(final int i, final String prevFileHash) throws IOException {
+        final var path = directory.resolve(String.format("2019-08-20T21_30_%02d.000000000Z.rcd", i));
+        path.toFile().deleteOnExit();
+        Files.write(path, ("record file " + i).getBytes());
+        prevFileHashes.put(path.toString(), prevFileHash);
+        files.add(path.toString());
+        return Utility.bytesToHex(Utility.getFileHash(path.toString()));
+    }
+
+    private String findFirstBrokenLink(final String previousFileHash) throws Exception {
+        // the files are listed in any order
+        Collections.reverse(files);
+        return HashChainValidator.findFirstBrokenLink(files, previousFileHash, prevFileHashes::get, executor);
+    }
+
+    private String addChain(final int count, final String firstPrevFileHash) throws IOException {
+        var hash = firstPrevFileHash;
+        for (int i = 1; i <= count; i++) {
+            hash = addFile(i, hash);
+        }
+        return hash;
+    }
+
+    @Test
+    void validChain() throws Exception {
+        addChain(10, "aa");
+        assertNull(findFirstBrokenLink("aa"));
+    }
+
+    @Test
+    void anyPreviousFileHashForTheFirstFileWhenNotGiven() throws Exception {
+        addChain(3, "aa");
+        assertNull(findFirstBrokenLink(""));
+    }
+
+    @Test
+    void firstFileNotLinkedToTheGivenHash() throws Exception {
+        addChain(3, "aa");
+        assertEquals(files.get(0), findFirstBrokenLink("bb"));
+    }
+
+    @Test
+    void brokenLinkInTheMiddle() throws Exception {
+        final var hash = addChain(4, "aa");
+        addFile(5, "bb");
+        final var broken = files.get(4);
+        addFile(6, hash);
+        assertEquals(broken, findFirstBrokenLink("aa"));
+    }
+
+    @Test
+    void unreadableFile() throws Exception {
+        final var hash = addChain(3, "aa");
+        addFile(4, null);
+        final var unreadable = files.get(3);
+        addFile(5, hash);
+        assertEquals(unreadable, findFirstBrokenLink("aa"));
+    }
+
+    @Test
+    void missingFile() throws Exception {
+        final var hash = addChain(3, "aa");
+        addFile(4, hash);
+        final var missing = files.get(3);
+        Files.delete(Paths.get(missing));
+        assertEquals(missing, findFirstBrokenLink("aa"));
+    }
+
+    @Test
+    void zeroHashRestartsTheChain() throws Exception {
+        addChain(3, "aa");
+        final var hash = addFile(4, ZERO_HASH);
+        addFile(5, hash);
+        assertNull(findFirstBrokenLink("aa"));
+    }
+
+    @Test
+    void noFiles() throws Exception {
+        assertNull(findFirstBrokenLink("aa"));
+    }
+}
@@ -0,0 +1,243 @@
+package com.hedera.downloader;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.hedera.databaseUtilities.ApplicationStatus;
+import com.hedera.utilities.Utility;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecordFileChainVerifierTest {
+    private static final byte TYPE_PREV_HASH = 1;
+
+    private Path validDir;
+    private String lastName;
+    private String lastHash;
+    private String bypassUntilAfter;
+    private int updates;
+
+    private final ApplicationStatus applicationStatus = new ApplicationStatus() {
+        @Override
+        public String getLastValidDownloadedRecordFileName() {
+            return lastName;
+        }
+
+        @Override
+        public String getLastValidDownloadedRecordFileHash() {
+            return lastHash;
+        }
+
+        @Override
+        public String getBypassRecordHashMismatchUntilAfter() {
+            return bypassUntilAfter;
+        }
+
+        @Override
+        public void updateLastValidDownloadedRecordFile(final String name, final String hash) {
+            lastName = name;
+            lastHash = hash;
+            ++updates;
+        }
+    };
+
+    @BeforeEach
+    void before() throws IOException {
+        validDir = Files.createTempDirectory("RecordFileChainVerifierTest");
+        validDir.toFile().deleteOnExit();
+        lastName = "";
+        lastHash = "";
+        bypassUntilAfter = "";
+        updates = 0;
+    }
+
+    private static String name(final int i) {
+        return String.format("2019-08-20T21_30_%02d.000000000Z.rcd", i);
+    }
+
+    private String path(final int i) {
+        return validDir.resolve(name(i)).toString();
+    }
+
+    // writes record file i chained to prevHash, followed by some bytes standing for its records, and returns its hash
+    private byte[] writeFile(final int i, final byte[] prevHash) throws IOException {
+        final var file = validDir.resolve(name(i)).toFile();
+        file.deleteOnExit();
+        final var records = new byte[100];
+        new Random(i).nextBytes(records);
+        try (var dos = new DataOutputStream(new FileOutputStream(file))) {
+            dos.writeInt(2);
+            dos.writeInt(3);
+            dos.writeByte(TYPE_PREV_HASH);
+            dos.write(prevHash);
+            dos.write(records);
+        }
+        return Utility.getFileHash(file.getPath());
+    }
+
+    private static byte[] otherHash() {
+        final var hash = new byte[48];
+        hash[47] = 1;
+        return hash;
+    }
+
+    private void setTip(final int i, final byte[] hash) {
+        lastName = name(i);
+        lastHash = Utility.bytesToHex(hash);
+    }
+
+    @Test
+    void verifiesPendingFilesInOrderFromTheTip() throws Exception {
+        final var hash1 = writeFile(1, otherHash());
+        setTip(1, hash1);
+        final var hash2 = writeFile(2, hash1);
+        final var hash3 = writeFile(3, hash2);
+        final var cut = new RecordFileChainVerifier(applicationStatus, validDir.toString());
+
+        assertEquals(List.of(path(2), path(3)), cut.verify());
+        assertAll(
+                () -> assertEquals(name(3), lastName)
+                ,() -> assertEquals(Utility.bytesToHex(hash3), lastHash)
+                ,() -> assertEquals(1, updates)
+        );
+
+        // file 5 is added before file 4, it is only verified once file 4 extends the chain to it
+        final var hash4 = writeFile(4, hash3);
+        final var hash5 = writeFile(5, hash4);
+        cut.add(path(5), hash5);
+        assertEquals(List.of(), cut.verify());
+        assertEquals(1, updates);
+        cut.add(path(4), hash4);
+        assertEquals(List.of(path(4), path(5)), cut.verify());
+        assertAll(
+                () -> assertEquals(name(5), lastName)
+                ,() -> assertEquals(Utility.bytesToHex(hash5), lastHash)
+                ,() -> assertEquals(2, updates)
+        );
+
+        assertEquals(List.of(), cut.verify());
+        assertEquals(2, updates);
+    }
+
+    @Test
+    void usesTheHashAddedWithAFile() throws Exception {
+        final var hash1 = writeFile(1, otherHash());
+        setTip(1, hash1);
+        final var cut = new RecordFileChainVerifier(applicationStatus, validDir.toString());
+        writeFile(2, hash1);
+        cut.add(path(2), otherHash());
+        assertEquals(List.of(path(2)), cut.verify());
+        assertEquals(Utility.bytesToHex(otherHash()), lastHash);
+    }
+
+    @Test
+    void startsFromTheFirstFileWithoutATip() throws Exception {
+        final var hash1 = writeFile(1, otherHash());
+        final var hash2 = writeFile(2, hash1);
+        final var cut = new RecordFileChainVerifier(applicationStatus, validDir.toString());
+        assertEquals(List.of(path(1), path(2)), cut.verify());
+        assertEquals(Utility.bytesToHex(hash2), lastHash);
+    }
+
+    @Test
+    void stopsAtTheFirstMismatch() throws Exception {
+        final var hash1 = writeFile(1, otherHash());
+        setTip(1, hash1);
+        final var hash2 = writeFile(2, hash1);
+        final var hash3 = writeFile(3, otherHash());
+        writeFile(4, hash3);
+        final var cut = new RecordFileChainVerifier(applicationStatus, validDir.toString());
+
+        assertEquals(List.of(path(2)), cut.verify());
+        assertAll(
+                () -> assertEquals(name(2), lastName)
+                ,() -> assertEquals(Utility.bytesToHex(hash2), lastHash)
+        );
+        assertEquals(List.of(), cut.verify());
+        assertEquals(1, updates);
+    }
+
+    @Test
+    void zeroPrevHashRestartsTheChain() throws Exception {
+        final var hash1 = writeFile(1, otherHash());
+        setTip(1, hash1);
+        final var hash2 = writeFile(2, new byte[48]);
+        final var cut = new RecordFileChainVerifier(applicationStatus, validDir.toString());
+
+        assertEquals(List.of(path(2)), cut.verify());
+        assertEquals(Utility.bytesToHex(hash2), lastHash);
+    }
+
+    @Test
+    void bypassesMismatchesOfFilesBeforeTheBypassName() throws Exception {
+        final var hash1 = writeFile(1, otherHash());
+        setTip(1, hash1);
+        writeFile(2, otherHash());
+        writeFile(3, otherHash());
+        bypassUntilAfter = name(3);
+        final var cut = new RecordFileChainVerifier(applicationStatus, validDir.toString());
+
+        assertEquals(List.of(path(2)), cut.verify());
+        assertEquals(name(2), lastName);
+    }
+
+    @Test
+    void skipsPendingFilesThatWereRemoved() throws Exception {
+        final var hash1 = writeFile(1, otherHash());
+        setTip(1, hash1);
+        final var hash2 = writeFile(2, hash1);
+        writeFile(3, hash2);
+        final var hash4 = writeFile(4, hash2);
+        final var cut = new RecordFileChainVerifier(applicationStatus, validDir.toString());
+        Files.delete(validDir.resolve(name(3)));
+
+        assertEquals(List.of(path(2), path(4)), cut.verify());
+        assertEquals(Utility.bytesToHex(hash4), lastHash);
+    }
+
+    @Test
+    void ignoresFilesNotNewerThanTheTip() throws Exception {
+        writeFile(1, otherHash());
+        writeFile(2, otherHash());
+        final var hash3 = writeFile(3, otherHash());
+        setTip(3, hash3);
+        writeFile(4, hash3);
+        final var cut = new RecordFileChainVerifier(applicationStatus, validDir.toString());
+
+        assertEquals(List.of(path(4)), cut.verify());
+        cut.add(path(2), null);
+        cut.add(path(4), null);
+        assertEquals(List.of(), cut.verify());
+        assertAll(
+                () -> assertEquals(name(4), lastName)
+                ,() -> assertEquals(1, updates)
+        );
+    }
+}
@@ -0,0 +1,44 @@
+package com.hedera.mirror.dataset;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccountBalancesCopyWriterTest {
+    @Test
+    public void copyTextRows() {
+        final var cut = new AccountBalancesCopyWriter(1566336600147998006L, 16);
+        cut.addBalance(0, 1, 0);
+        cut.addBalance(2, 3, 4999970459167843402L);
+        assertAll(
+                () -> assertEquals(2, cut.getRows())
+                ,() -> assertEquals("1566336600147998006\t(a,0,1)\t0\n" +
+                        "1566336600147998006\t(a,2,3)\t4999970459167843402\n", cut.contents())
+        );
+        cut.clear();
+        assertAll(
+                () -> assertEquals(0, cut.getRows())
+                ,() -> assertEquals("", cut.contents())
+        );
+    }
+}
@@ -0,0 +1,88 @@
+package com.hedera.mirror.dataset;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.hedera.mirror.exception.InvalidDatasetException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccountBalancesCsvReaderTest {
+    private AccountBalancesCsvReader getCut(final String contents, final int bufferSize) {
+        return new AccountBalancesCsvReader("test.csv",
+                new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8)), bufferSize);
+    }
+
+    @Test
+    public void headerThenBalances() throws IOException {
+        // buffer smaller than the lines, so that they span several reads
+        final var cut = getCut("TimeStamp:2019-08-20T21:30:00.147998006Z\r\nshardNum,realmNum,accountNum,balance\n" +
+                "0,0,1,0\n\n0,2,3,4999970459167843402\r\n0,32767,2147483647,+5", 8);
+        assertEquals("TimeStamp:2019-08-20T21:30:00.147998006Z", cut.readLine());
+        assertEquals("shardNum,realmNum,accountNum,balance", cut.readLine());
+
+        assertTrue(cut.next());
+        assertAll(
+                () -> assertEquals(3, cut.getLineNumber())
+                ,() -> assertEquals(0, cut.getShardNum())
+                ,() -> assertEquals(0, cut.getRealmNum())
+                ,() -> assertEquals(1, cut.getAccountNum())
+                ,() -> assertEquals(0, cut.getBalance())
+        );
+        assertTrue(cut.next());
+        assertAll(
+                () -> assertEquals(5, cut.getLineNumber())
+                ,() -> assertEquals(2, cut.getRealmNum())
+                ,() -> assertEquals(3, cut.getAccountNum())
+                ,() -> assertEquals(4999970459167843402L, cut.getBalance())
+        );
+        assertTrue(cut.next());
+        assertAll(
+                () -> assertEquals(6, cut.getLineNumber())
+                ,() -> assertEquals(32767, cut.getRealmNum())
+                ,() -> assertEquals(2147483647, cut.getAccountNum())
+                ,() -> assertEquals(5, cut.getBalance())
+        );
+        assertFalse(cut.next());
+        assertNull(cut.readLine());
+    }
+
+    @ParameterizedTest(name="invalidLine({0})")
+    @ValueSource(strings = {"0,0,1", "0,0,1,2,3", "0,,1,2", "0,0,1,2,", "0,0,a,2", "0,0,1,9223372036854775808",
+            "0,32768,1,2", "0,0,2147483648,2", " 0,0,1,2"})
+    public void invalidLine(final String line) throws IOException {
+        final var cut = getCut(line + "\n0,0,5,6\n", 64);
+        assertThrows(InvalidDatasetException.class, cut::next);
+        // reading continues after an invalid line
+        assertTrue(cut.next());
+        assertAll(
+                () -> assertEquals(2, cut.getLineNumber())
+                ,() -> assertEquals(5, cut.getAccountNum())
+                ,() -> assertEquals(6, cut.getBalance())
+        );
+    }
+}
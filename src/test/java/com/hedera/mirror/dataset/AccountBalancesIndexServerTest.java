@@ -0,0 +1,82 @@
+package com.hedera.mirror.dataset;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccountBalancesIndexServerTest {
+    private AccountBalancesIndexServer cut;
+
+    @BeforeEach
+    void before() throws IOException {
+        final var balances = new AccountBalancesSnapshot(1566336600147998006L, 0);
+        balances.put(AccountBalancesSnapshot.account(0, 2), 4999970459167843402L);
+        balances.put(AccountBalancesSnapshot.account(1, 3), 0L);
+        AccountBalancesIndex.publish(balances);
+        cut = new AccountBalancesIndexServer(0);
+    }
+
+    @AfterEach
+    void after() {
+        cut.close();
+    }
+
+    private HttpURLConnection get(final String accountId) throws IOException {
+        return (HttpURLConnection)new URL("http://localhost:" + cut.getPort() + AccountBalancesIndexServer.PATH +
+                accountId).openConnection();
+    }
+
+    @Test
+    public void latestBalance() throws IOException {
+        final var connection = get("0.0.2");
+        assertEquals(200, connection.getResponseCode());
+        try (var in = connection.getInputStream()) {
+            assertEquals("{\"timestamp\":\"1566336600.147998006\",\"balances\":" +
+                            "[{\"account\":\"0.0.2\",\"balance\":4999970459167843402}]}",
+                    new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void accountNum() throws IOException {
+        assertEquals(200, get("2").getResponseCode());
+    }
+
+    @Test
+    public void notFound() throws IOException {
+        assertAll(
+                () -> assertEquals(404, get("0.0.3").getResponseCode())
+                ,() -> assertEquals(200, get("0.1.3").getResponseCode())
+                ,() -> assertEquals(404, get("1.1.3").getResponseCode())
+                ,() -> assertEquals(404, get("0.1").getResponseCode())
+                ,() -> assertEquals(404, get("0.0.x").getResponseCode())
+        );
+    }
+}
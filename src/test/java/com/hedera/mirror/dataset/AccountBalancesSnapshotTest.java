@@ -0,0 +1,79 @@
+package com.hedera.mirror.dataset;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccountBalancesSnapshotTest {
+    @Test
+    public void putAndFind() {
+        final var cut = new AccountBalancesSnapshot(1L, 0);
+        for (int i = 0; i < 1000; i++) {
+            cut.put(AccountBalancesSnapshot.account(i % 3, i), i * 10L);
+        }
+        cut.put(AccountBalancesSnapshot.account(1, 1), 5L);
+        final int slot = cut.find(AccountBalancesSnapshot.account(2, 998));
+        assertAll(
+                () -> assertEquals(1000, cut.getSize())
+                ,() -> assertEquals(9980L, cut.balanceAt(slot))
+                ,() -> assertEquals(5L, cut.balanceAt(cut.find(AccountBalancesSnapshot.account(1, 1))))
+                ,() -> assertEquals(-1, cut.find(AccountBalancesSnapshot.account(0, 1)))
+                ,() -> assertEquals(2L, AccountBalancesSnapshot.realmNum(cut.accountAt(slot)))
+                ,() -> assertEquals(998L, AccountBalancesSnapshot.accountNum(cut.accountAt(slot)))
+        );
+    }
+
+    @Test
+    public void iterateSlots() {
+        final var cut = new AccountBalancesSnapshot(1L, 4);
+        cut.put(AccountBalancesSnapshot.account(0, 2), 20L);
+        cut.put(AccountBalancesSnapshot.account(0, Integer.MAX_VALUE), 30L);
+        cut.put(AccountBalancesSnapshot.account(Short.MAX_VALUE, 4), 40L);
+        long sum = 0;
+        int count = 0;
+        for (int slot = cut.nextSlot(0); slot >= 0; slot = cut.nextSlot(slot + 1)) {
+            sum += cut.balanceAt(slot);
+            count++;
+        }
+        assertEquals(3, count);
+        assertEquals(90L, sum);
+    }
+
+    @Test
+    public void deltaChain() {
+        final var full = new AccountBalancesSnapshot(10L, 0);
+        full.setBase(null);
+        final var delta1 = new AccountBalancesSnapshot(20L, 0);
+        delta1.setBase(full);
+        final var delta2 = new AccountBalancesSnapshot(30L, 0);
+        delta2.setBase(delta1);
+        assertAll(
+                () -> assertNull(full.getBaseConsensusTimestamp())
+                ,() -> assertEquals(0, full.getDeltaCount())
+                ,() -> assertEquals(10L, delta1.getBaseConsensusTimestamp())
+                ,() -> assertEquals(1, delta1.getDeltaCount())
+                ,() -> assertEquals(10L, delta2.getBaseConsensusTimestamp())
+                ,() -> assertEquals(2, delta2.getDeltaCount())
+        );
+    }
+}
@@ -0,0 +1,109 @@
+package com.hedera.mirrorservice;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.hederahashgraph.api.proto.java.AccountID;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NodeLatencyTrackerTest {
+    private static final AccountID NODE_3 = AccountID.newBuilder().setAccountNum(3).build();
+    private static final AccountID NODE_4 = AccountID.newBuilder().setAccountNum(4).build();
+    private static final AccountID NODE_5 = AccountID.newBuilder().setAccountNum(5).build();
+
+    private NodeLatencyTracker getCut() {
+        return new NodeLatencyTracker(60, 0.5);
+    }
+
+    @Test
+    public void percentiles() {
+        final var cut = getCut();
+        for (int i = 1; i <= 100; i++) {
+            cut.record(NODE_3, i, true);
+        }
+        cut.record(NODE_3, 1_000, false);
+        assertAll(
+                () -> assertEquals(50, cut.percentile(NODE_3, 50))
+                ,() -> assertEquals(95, cut.percentile(NODE_3, 95))
+                ,() -> assertEquals(100, cut.percentile(NODE_3, 100))
+                ,() -> assertEquals(-1, cut.percentile(NODE_4, 50))
+                ,() -> assertEquals(1.0 / 101, cut.errorRate(NODE_3), 1e-9)
+        );
+    }
+
+    @Test
+    public void windowKeepsLatestCalls() {
+        final var cut = getCut();
+        for (int i = 0; i < NodeLatencyTracker.WINDOW; i++) {
+            cut.record(NODE_3, 1_000, false);
+        }
+        for (int i = 0; i < NodeLatencyTracker.WINDOW; i++) {
+            cut.record(NODE_3, 10, true);
+        }
+        assertAll(
+                () -> assertEquals(0, cut.errorRate(NODE_3))
+                ,() -> assertEquals(10, cut.percentile(NODE_3, 95))
+        );
+    }
+
+    @Test
+    public void selectsUnmeasuredThenHealthyNodes() {
+        final var cut = getCut();
+        final var nodes = List.of(NODE_3, NODE_4, NODE_5);
+        cut.record(NODE_3, 10, true);
+        cut.record(NODE_4, 20, true);
+        assertEquals(NODE_5, cut.select(nodes, null));
+
+        cut.record(NODE_5, 30, false);
+        for (int i = 0; i < 20; i++) {
+            final var selected = cut.select(nodes, null);
+            assertNotEquals(NODE_5, selected);
+            assertNotEquals(NODE_3, cut.select(nodes, NODE_3));
+        }
+        assertNull(cut.select(List.of(NODE_3), NODE_3));
+    }
+
+    @Test
+    public void probesUnmeasuredNodesOneCallAtATime() {
+        final var cut = getCut();
+        final var nodes = List.of(NODE_3, NODE_4);
+        cut.record(NODE_3, 10, true);
+        cut.started(NODE_4);
+        assertAll(
+                () -> assertEquals(1, cut.inFlight(NODE_4))
+                ,() -> assertEquals(NODE_3, cut.select(nodes, null))
+                ,() -> assertNotNull(cut.select(nodes, NODE_3))
+        );
+
+        cut.abandoned(NODE_4);
+        assertEquals(NODE_4, cut.select(nodes, null));
+
+        cut.started(NODE_4);
+        cut.record(NODE_4, 1_000, false);
+        assertAll(
+                () -> assertEquals(0, cut.inFlight(NODE_4))
+                ,() -> assertEquals(NODE_3, cut.select(nodes, null))
+        );
+    }
+}
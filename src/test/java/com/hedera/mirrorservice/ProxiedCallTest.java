@@ -0,0 +1,281 @@
+package com.hedera.mirrorservice;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.hederahashgraph.api.proto.java.AccountID;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProxiedCallTest {
+    private static final AccountID NODE_3 = AccountID.newBuilder().setAccountNum(3).build();
+    private static final AccountID NODE_4 = AccountID.newBuilder().setAccountNum(4).build();
+
+    private static final MethodDescriptor.Marshaller<String> STRING_MARSHALLER = new MethodDescriptor.Marshaller<>() {
+        @Override
+        public InputStream stream(final String value) {
+            return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String parse(final InputStream stream) {
+            try {
+                return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    };
+
+    private static final MethodDescriptor<String, String> METHOD = MethodDescriptor.<String, String>newBuilder()
+            .setType(MethodDescriptor.MethodType.UNARY)
+            .setFullMethodName(MethodDescriptor.generateFullMethodName("test", "call"))
+            .setRequestMarshaller(STRING_MARSHALLER)
+            .setResponseMarshaller(STRING_MARSHALLER)
+            .build();
+
+    private final NodeLatencyTracker latencyTracker = new NodeLatencyTracker(60, 0.5);
+    private final List<NodeCall> calls = new CopyOnWriteArrayList<>();
+    private final Client client = new Client();
+
+    /**
+     * A call to a node, answered or failed by the test
+     */
+    private static class NodeCall extends ClientCall<String, String> {
+        private final AccountID node;
+        private final CallOptions callOptions;
+        private volatile Listener<String> listener;
+        private volatile boolean closed;
+
+        NodeCall(final AccountID node, final CallOptions callOptions) {
+            this.node = node;
+            this.callOptions = callOptions;
+        }
+
+        @Override
+        public void start(final Listener<String> responseListener, final Metadata headers) {
+            listener = responseListener;
+        }
+
+        @Override
+        public void request(final int numMessages) {
+        }
+
+        @Override
+        public void cancel(final String message, final Throwable cause) {
+            close(Status.CANCELLED.withDescription(message));
+        }
+
+        @Override
+        public void halfClose() {
+        }
+
+        @Override
+        public void sendMessage(final String message) {
+        }
+
+        void answer(final String response) {
+            listener.onMessage(response);
+            close(Status.OK);
+        }
+
+        synchronized void close(final Status status) {
+            if (!closed) {
+                closed = true;
+                listener.onClose(status, new Metadata());
+            }
+        }
+    }
+
+    /**
+     * The client's side of the proxied call
+     */
+    private static class Client extends ServerCallStreamObserver<String> {
+        private final List<String> responses = new CopyOnWriteArrayList<>();
+        private final List<Throwable> errors = new CopyOnWriteArrayList<>();
+        private volatile boolean completed;
+        private volatile boolean cancelled;
+        private volatile Runnable onCancelHandler;
+
+        void cancel() {
+            cancelled = true;
+            onCancelHandler.run();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void setOnCancelHandler(final Runnable onCancelHandler) {
+            this.onCancelHandler = onCancelHandler;
+        }
+
+        @Override
+        public void setCompression(final String compression) {
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setOnReadyHandler(final Runnable onReadyHandler) {
+        }
+
+        @Override
+        public void disableAutoInboundFlowControl() {
+        }
+
+        @Override
+        public void request(final int count) {
+        }
+
+        @Override
+        public void setMessageCompression(final boolean enable) {
+        }
+
+        @Override
+        public void onNext(final String value) {
+            responses.add(value);
+        }
+
+        @Override
+        public void onError(final Throwable t) {
+            errors.add(t);
+        }
+
+        @Override
+        public void onCompleted() {
+            completed = true;
+        }
+    }
+
+    private Channel channel(final AccountID node) {
+        return new Channel() {
+            @Override
+            public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(final MethodDescriptor<ReqT, RespT> method,
+                    final CallOptions callOptions) {
+                final var call = new NodeCall(node, callOptions);
+                calls.add(call);
+                @SuppressWarnings("unchecked")
+                final var clientCall = (ClientCall<ReqT, RespT>) call;
+                return clientCall;
+            }
+
+            @Override
+            public String authority() {
+                return "node";
+            }
+        };
+    }
+
+    private ProxiedCall<String, String> getCut() {
+        return new ProxiedCall<>("call", METHOD, "request", client, response -> {}, latencyTracker, this::channel, 30);
+    }
+
+    // starts a call to NODE_3 that is hedged to NODE_4 right away
+    private void startHedged() throws InterruptedException {
+        latencyTracker.record(NODE_3, 1, true);
+        getCut().start(NODE_3, () -> NODE_4);
+        for (int i = 0; i < 500 && calls.size() < 2; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    public void callsHaveADeadline() {
+        getCut().start(NODE_3, null);
+        calls.get(0).answer("3");
+        assertAll(
+                () -> assertEquals(1, calls.size())
+                ,() -> assertNotNull(calls.get(0).callOptions.getDeadline())
+                ,() -> assertEquals(List.of("3"), client.responses)
+                ,() -> assertTrue(client.completed)
+                ,() -> assertEquals(0, latencyTracker.inFlight(NODE_3))
+        );
+    }
+
+    @Test
+    public void firstAnswerWins() throws InterruptedException {
+        startHedged();
+        final var first = calls.get(0);
+        final var hedge = calls.get(1);
+        hedge.answer("4");
+        assertAll(
+                () -> assertEquals(NODE_4, hedge.node)
+                ,() -> assertEquals(List.of("4"), client.responses)
+                ,() -> assertTrue(client.completed)
+                ,() -> assertTrue(client.errors.isEmpty())
+                ,() -> assertTrue(first.closed)
+                ,() -> assertEquals(0, latencyTracker.inFlight(NODE_3))
+                ,() -> assertEquals(0, latencyTracker.errorRate(NODE_3))
+        );
+    }
+
+    @Test
+    public void errorOnlyAfterTheLastOutstandingCall() throws InterruptedException {
+        startHedged();
+        calls.get(0).close(Status.UNAVAILABLE);
+        assertTrue(client.errors.isEmpty());
+        calls.get(1).close(Status.DEADLINE_EXCEEDED);
+        assertAll(
+                () -> assertEquals(1, client.errors.size())
+                ,() -> assertEquals(Status.Code.DEADLINE_EXCEEDED, Status.fromThrowable(client.errors.get(0)).getCode())
+                ,() -> assertTrue(client.responses.isEmpty())
+                ,() -> assertEquals(0.5, latencyTracker.errorRate(NODE_3))
+                ,() -> assertEquals(1.0, latencyTracker.errorRate(NODE_4))
+        );
+    }
+
+    @Test
+    public void clientCancelCancelsTheCalls() throws InterruptedException {
+        startHedged();
+        client.cancel();
+        assertAll(
+                () -> assertTrue(calls.get(0).closed)
+                ,() -> assertTrue(calls.get(1).closed)
+                ,() -> assertTrue(client.responses.isEmpty())
+                ,() -> assertTrue(client.errors.isEmpty())
+                ,() -> assertEquals(0, latencyTracker.inFlight(NODE_3))
+                ,() -> assertEquals(0, latencyTracker.inFlight(NODE_4))
+                ,() -> assertEquals(0, latencyTracker.errorRate(NODE_4))
+        );
+    }
+}
@@ -0,0 +1,112 @@
+package com.hedera.mirrorservice;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.hederahashgraph.api.proto.java.AccountID;
+import com.hederahashgraph.api.proto.java.CryptoGetAccountBalanceQuery;
+import com.hederahashgraph.api.proto.java.Query;
+import com.hederahashgraph.api.proto.java.QueryHeader;
+import com.hederahashgraph.api.proto.java.Response;
+import com.hederahashgraph.api.proto.java.ResponseCodeEnum;
+import com.hederahashgraph.api.proto.java.ResponseHeader;
+import com.hederahashgraph.api.proto.java.ResponseType;
+import com.hederahashgraph.api.proto.java.Transaction;
+import com.hederahashgraph.api.proto.java.TransactionGetReceiptQuery;
+import com.hederahashgraph.api.proto.java.TransactionGetReceiptResponse;
+import com.hederahashgraph.api.proto.java.TransactionID;
+import com.hederahashgraph.api.proto.java.TransactionReceipt;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryResponseCacheTest {
+    private QueryResponseCache getCut() {
+        return new QueryResponseCache(16, 60, 60);
+    }
+
+    private static Query receiptQuery(final long accountNum) {
+        return Query.newBuilder().setTransactionGetReceipt(TransactionGetReceiptQuery.newBuilder()
+                .setHeader(QueryHeader.newBuilder().setResponseType(ResponseType.ANSWER_ONLY))
+                .setTransactionID(TransactionID.newBuilder()
+                        .setAccountID(AccountID.newBuilder().setAccountNum(accountNum))))
+                .build();
+    }
+
+    private static Query balanceQuery(final QueryHeader.Builder header) {
+        return Query.newBuilder().setCryptogetAccountBalance(CryptoGetAccountBalanceQuery.newBuilder()
+                .setHeader(header)
+                .setAccountID(AccountID.newBuilder().setAccountNum(1001)))
+                .build();
+    }
+
+    private static Response receiptResponse(final ResponseCodeEnum precheck, final ResponseCodeEnum status) {
+        return Response.newBuilder().setTransactionGetReceipt(TransactionGetReceiptResponse.newBuilder()
+                .setHeader(ResponseHeader.newBuilder().setNodeTransactionPrecheckCode(precheck))
+                .setReceipt(TransactionReceipt.newBuilder().setStatus(status)))
+                .build();
+    }
+
+    @Test
+    public void policies() {
+        final var cut = getCut();
+        final var receipt = receiptQuery(1001);
+        final var cost = balanceQuery(QueryHeader.newBuilder().setResponseType(ResponseType.COST_ANSWER));
+        final var paid = balanceQuery(QueryHeader.newBuilder().setResponseType(ResponseType.COST_ANSWER)
+                .setPayment(Transaction.getDefaultInstance()));
+        final var answer = balanceQuery(QueryHeader.newBuilder().setResponseType(ResponseType.ANSWER_ONLY));
+        assertAll(
+                () -> assertEquals(QueryResponseCache.Policy.RECEIPT, cut.policy(receipt, ServiceAgent.extractQueryHeader(receipt)))
+                ,() -> assertEquals(QueryResponseCache.Policy.COST_ANSWER, cut.policy(cost, ServiceAgent.extractQueryHeader(cost)))
+                ,() -> assertNull(cut.policy(paid, ServiceAgent.extractQueryHeader(paid)))
+                ,() -> assertNull(cut.policy(answer, ServiceAgent.extractQueryHeader(answer)))
+        );
+    }
+
+    @Test
+    public void cachesFinalReceipts() {
+        final var cut = getCut();
+        final var policy = QueryResponseCache.Policy.RECEIPT;
+        final var success = receiptResponse(ResponseCodeEnum.OK, ResponseCodeEnum.SUCCESS);
+        cut.put(policy, receiptQuery(1001), success);
+        cut.put(policy, receiptQuery(1002), receiptResponse(ResponseCodeEnum.OK, ResponseCodeEnum.UNKNOWN));
+        cut.put(policy, receiptQuery(1003), receiptResponse(ResponseCodeEnum.BUSY, ResponseCodeEnum.UNKNOWN));
+        assertAll(
+                () -> assertEquals(success, cut.get(policy, receiptQuery(1001)))
+                ,() -> assertNull(cut.get(policy, receiptQuery(1002)))
+                ,() -> assertNull(cut.get(policy, receiptQuery(1003)))
+                ,() -> assertEquals(1, cut.size())
+                ,() -> assertEquals(1, cut.getHits(policy))
+                ,() -> assertEquals(2, cut.getMisses(policy))
+        );
+    }
+
+    @Test
+    public void expires() throws InterruptedException {
+        final var cut = new QueryResponseCache(16, 0, 0);
+        final var policy = QueryResponseCache.Policy.RECEIPT;
+        cut.put(policy, receiptQuery(1001), receiptResponse(ResponseCodeEnum.OK, ResponseCodeEnum.SUCCESS));
+        Thread.sleep(1);
+        assertAll(
+                () -> assertNull(cut.get(policy, receiptQuery(1001)))
+                ,() -> assertEquals(0, cut.size())
+        );
+    }
+}
@@ -0,0 +1,82 @@
+package com.hedera.parser;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventHashCacheTest {
+    private EventHashCache getCut() {
+        return new EventHashCache(10);
+    }
+
+    private static byte[] hash(final int i) {
+        final var hash = new byte[48];
+        hash[0] = (byte)i;
+        hash[47] = (byte)(i >> 8);
+        return hash;
+    }
+
+    @Test
+    public void getByHashContent() {
+        final var cut = getCut();
+        cut.put(hash(1), 100L, 5L);
+        assertAll(
+                () -> assertEquals(100L, cut.get(hash(1)))
+                ,() -> assertEquals(EventHashCache.NOT_FOUND, cut.get(hash(2)))
+                ,() -> assertEquals(1, cut.getHits())
+                ,() -> assertEquals(1, cut.getMisses())
+        );
+    }
+
+    @Test
+    public void commitEvictsOldGenerations() {
+        final var cut = getCut();
+        for (int i = 0; i <= 20; i++) {
+            cut.put(hash(i), i, i);
+        }
+        assertEquals(21, cut.size());
+        cut.commit();
+        assertAll(
+                () -> assertEquals(11, cut.size())
+                ,() -> assertEquals(EventHashCache.NOT_FOUND, cut.get(hash(9)))
+                ,() -> assertEquals(10L, cut.get(hash(10)))
+                ,() -> assertEquals(20L, cut.get(hash(20)))
+        );
+    }
+
+    @Test
+    public void rollbackEvictsUncommitted() {
+        final var cut = getCut();
+        cut.put(hash(1), 1L, 1L);
+        cut.commit();
+        cut.put(hash(2), 2L, 100L);
+        cut.rollback();
+        cut.put(hash(3), 3L, 2L);
+        cut.commit();
+        assertAll(
+                () -> assertEquals(1L, cut.get(hash(1)))
+                ,() -> assertEquals(EventHashCache.NOT_FOUND, cut.get(hash(2)))
+                ,() -> assertEquals(3L, cut.get(hash(3)))
+        );
+    }
+}
@@ -0,0 +1,80 @@
+package com.hedera.parser;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventRollupsTest {
+
+    @ParameterizedTest(name="latencyBucketBounds({0})")
+    @ValueSource(longs = {0L, 1L, 7L, 8L, 15L, 16L, 17L, 1_000L, 123_456_789L, 2_500_000_000L, Long.MAX_VALUE})
+    public void latencyBucketBounds(final long latency) {
+        final var bucket = EventRollups.latencyBucket(latency);
+        assertAll(
+                () -> assertTrue(bucket >= 0 && bucket < EventRollups.BUCKETS)
+                ,() -> assertTrue(EventRollups.bucketLowerBound(bucket) <= latency)
+                ,() -> assertTrue(EventRollups.bucketUpperBound(bucket) >= latency)
+                ,() -> assertTrue(EventRollups.bucketUpperBound(bucket) - EventRollups.bucketLowerBound(bucket)
+                        <= EventRollups.bucketLowerBound(bucket) / EventRollups.SUB_BUCKETS)
+        );
+    }
+
+    @Test
+    public void bucketsAreContiguous() {
+        for (int bucket = 1; bucket < EventRollups.BUCKETS; bucket++) {
+            assertEquals(EventRollups.bucketUpperBound(bucket - 1) + 1, EventRollups.bucketLowerBound(bucket));
+            assertEquals(bucket, EventRollups.latencyBucket(EventRollups.bucketLowerBound(bucket)));
+        }
+        assertEquals(0, EventRollups.latencyBucket(-5L));
+    }
+
+    @Test
+    public void minute() {
+        assertAll(
+                () -> assertEquals(120_000_000_000L, EventRollups.minute(120_000_000_000L))
+                ,() -> assertEquals(120_000_000_000L, EventRollups.minute(179_999_999_999L))
+        );
+    }
+
+    @Test
+    public void percentileWithinBucket() {
+        final var rollup = new EventRollups.Rollup();
+        for (long latency = 1_000_000L; latency <= 100_000_000L; latency += 1_000_000L) {
+            rollup.addConsensus(1, 1, 2, latency, latency, latency);
+            rollup.addBucket(EventRollups.latencyBucket(latency), 1);
+        }
+        final var median = rollup.getLatencyPercentile(0.5);
+        assertAll(
+                () -> assertEquals(100, rollup.getConsensusCount())
+                ,() -> assertEquals(200, rollup.getAppTxCount())
+                ,() -> assertEquals(1_000_000L, rollup.getLatencyMin())
+                ,() -> assertEquals(100_000_000L, rollup.getLatencyMax())
+                ,() -> assertEquals(50_500_000L, rollup.getLatencyMean())
+                ,() -> assertEquals(50_000_000L, median, 50_000_000L / EventRollups.SUB_BUCKETS)
+                ,() -> assertEquals(100_000_000L, rollup.getLatencyPercentile(1.0), 100_000_000L / EventRollups.SUB_BUCKETS)
+                ,() -> assertEquals(0, new EventRollups.Rollup().getLatencyPercentile(0.5))
+        );
+    }
+}
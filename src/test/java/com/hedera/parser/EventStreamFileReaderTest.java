@@ -0,0 +1,300 @@
+package com.hedera.parser;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.hedera.platform.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks EventStreamFileReader against the field encoding and file hash of the DataInputStream parser it replaced,
+ * which hashed transactions through com.hedera.platform.Transaction.
+ */
+public class EventStreamFileReaderTest {
+    private static final byte STREAM_EVENT_START_NO_TRANS_WITH_VERSION = 0x5b;
+    private static final byte STREAM_EVENT_START_WITH_VERSION = 0x5a;
+    private static final byte COMM_EVENT_LAST = 0x46;
+    private static final int STREAM_EVENT_VERSION = 2;
+
+    /**
+     * The values written for an event, and the transaction totals the reader should count
+     */
+    private static class WrittenEvent {
+        long creatorId;
+        long creatorSeq;
+        long otherId;
+        long otherSeq;
+        long selfParentGen;
+        long otherParentGen;
+        byte[] selfParentHash;
+        byte[] otherParentHash;
+        int txsBytesCount;
+        int platformTxCount;
+        int appTxCount;
+        long timeCreatedNanos;
+        byte[] hash;
+        long consensusTimestampNanos;
+        long consensusOrder;
+    }
+
+    private static byte[] randomBytes(final Random random, final int length) {
+        final var bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void writeByteArray(final DataOutputStream dos, final byte[] bytes) throws IOException {
+        if (bytes == null) {
+            dos.writeInt(-1);
+            return;
+        }
+        dos.writeInt(bytes.length);
+        dos.writeInt(101 - bytes.length);
+        dos.write(bytes);
+    }
+
+    private static void writeInstant(final DataOutputStream dos, final long nanos) throws IOException {
+        dos.writeLong(nanos / 1_000_000_000L);
+        dos.writeLong(nanos % 1_000_000_000L);
+    }
+
+    private static WrittenEvent writeEvent(final DataOutputStream dos, final Random random, final int i,
+            final boolean noTxs) throws IOException {
+        final var event = new WrittenEvent();
+        event.creatorId = i % 4;
+        event.creatorSeq = i;
+        event.otherId = (i + 1) % 4;
+        event.otherSeq = i - 1;
+        event.selfParentGen = i;
+        event.otherParentGen = i + 1;
+        // the first event has no parents, the reader must not reuse a previous event's hash for them
+        event.selfParentHash = i == 0 ? null : randomBytes(random, 48);
+        event.otherParentHash = i == 0 || i % 3 == 0 ? null : randomBytes(random, 48);
+        event.timeCreatedNanos = 1_567_000_000_000_000_000L + i * 1_000_003L;
+        event.hash = randomBytes(random, 48);
+        event.consensusTimestampNanos = event.timeCreatedNanos + 2_000_000_007L;
+        event.consensusOrder = 1000 + i;
+
+        dos.writeByte(noTxs ? STREAM_EVENT_START_NO_TRANS_WITH_VERSION : STREAM_EVENT_START_WITH_VERSION);
+        dos.writeInt(STREAM_EVENT_VERSION);
+        dos.writeLong(event.creatorId);
+        dos.writeLong(event.creatorSeq);
+        dos.writeLong(event.otherId);
+        dos.writeLong(event.otherSeq);
+        dos.writeLong(event.selfParentGen);
+        dos.writeLong(event.otherParentGen);
+        writeByteArray(dos, event.selfParentHash);
+        writeByteArray(dos, event.otherParentHash);
+        if (!noTxs) {
+            final int txCount = 1 + random.nextInt(4);
+            dos.writeInt(txCount);
+            dos.writeInt(1873 - txCount);
+            for (int t = 0; t < txCount; t++) {
+                final var contents = randomBytes(random, 1 + random.nextInt(200));
+                final boolean system = random.nextInt(4) == 0;
+                dos.writeInt(contents.length);
+                dos.writeInt(277 - contents.length);
+                dos.writeBoolean(system);
+                dos.write(contents);
+                event.txsBytesCount += 4 * Integer.BYTES + Byte.BYTES + contents.length;
+                if (system) {
+                    event.platformTxCount++;
+                } else {
+                    event.appTxCount++;
+                }
+
+                final int sigCount = random.nextInt(3);
+                dos.writeInt(sigCount);
+                dos.writeInt(353 - sigCount);
+                for (int s = 0; s < sigCount; s++) {
+                    final var sig = randomBytes(random, 64);
+                    final var pk = randomBytes(random, 32);
+                    final var msg = randomBytes(random, random.nextInt(20));
+                    dos.writeInt(sig.length);
+                    dos.writeInt(439 - sig.length);
+                    dos.writeInt(1);
+                    dos.write(sig);
+                    dos.writeInt(pk.length);
+                    dos.writeInt(541 - pk.length);
+                    dos.write(pk);
+                    dos.writeInt(msg.length);
+                    dos.writeInt(647 - msg.length);
+                    dos.write(msg);
+                    event.txsBytesCount += 7 * Integer.BYTES + sig.length + pk.length + msg.length;
+                }
+            }
+        }
+        writeInstant(dos, event.timeCreatedNanos);
+        writeByteArray(dos, randomBytes(random, 64));
+        dos.writeByte(COMM_EVENT_LAST);
+        writeByteArray(dos, event.hash);
+        writeInstant(dos, event.consensusTimestampNanos);
+        dos.writeLong(event.consensusOrder);
+        return event;
+    }
+
+    private static File writeEventFile(final int version, final List<WrittenEvent> events) throws IOException {
+        final var file = File.createTempFile("EventStreamFileReaderTest", ".evts");
+        file.deleteOnExit();
+        final var random = new Random(version);
+        try (var dos = new DataOutputStream(new FileOutputStream(file))) {
+            dos.writeInt(version);
+            dos.writeByte(EventStreamFileParser.TYPE_PREV_HASH);
+            dos.write(randomBytes(random, 48));
+            for (int i = 0; i < 40; i++) {
+                events.add(writeEvent(dos, random, i, i % 5 == 4));
+            }
+        }
+        return file;
+    }
+
+    private static byte[] intBytes(final int i) {
+        return ByteBuffer.allocate(Integer.BYTES).putInt(i).array();
+    }
+
+    private static byte[] longBytes(final long l) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(l).array();
+    }
+
+    private static void streamByteArray(final DataInputStream dis, final MessageDigest md) throws IOException {
+        final int len = dis.readInt();
+        md.update(intBytes(len));
+        if (len >= 0) {
+            md.update(intBytes(dis.readInt()));
+            final var bytes = new byte[len];
+            dis.readFully(bytes);
+            md.update(bytes);
+        }
+    }
+
+    // the file hash as computed by the DataInputStream parser
+    private static byte[] streamFileHash(final File file) throws Exception {
+        final var md = MessageDigest.getInstance("SHA-384");
+        final var mdForContent = MessageDigest.getInstance("SHA-384");
+        final int version;
+        try (var dis = new DataInputStream(new FileInputStream(file))) {
+            version = dis.readInt();
+            md.update(intBytes(version));
+            final var digest = version >= 3 ? mdForContent : md;
+            while (dis.available() != 0) {
+                final byte typeDelimiter = dis.readByte();
+                if (typeDelimiter == EventStreamFileParser.TYPE_PREV_HASH) {
+                    final var prevHash = new byte[48];
+                    dis.readFully(prevHash);
+                    md.update(typeDelimiter);
+                    md.update(prevHash);
+                    continue;
+                }
+                digest.update(typeDelimiter);
+                digest.update(intBytes(dis.readInt()));
+                for (int i = 0; i < 6; i++) {
+                    digest.update(longBytes(dis.readLong()));
+                }
+                streamByteArray(dis, digest);
+                streamByteArray(dis, digest);
+                if (typeDelimiter == STREAM_EVENT_START_WITH_VERSION) {
+                    Transaction.readArray(dis, new int[3], digest);
+                }
+                digest.update(longBytes(dis.readLong()));
+                digest.update(longBytes(dis.readLong()));
+                streamByteArray(dis, digest);
+                digest.update(dis.readByte());
+                streamByteArray(dis, digest);
+                digest.update(longBytes(dis.readLong()));
+                digest.update(longBytes(dis.readLong()));
+                digest.update(longBytes(dis.readLong()));
+            }
+        }
+        if (version >= 3) {
+            md.update(mdForContent.digest());
+        }
+        return md.digest();
+    }
+
+    private static void assertReadsLikeStream(final int version) throws Exception {
+        final List<WrittenEvent> written = new ArrayList<>();
+        final var file = writeEventFile(version, written);
+        try {
+            final var reader = new EventStreamFileReader(file);
+            final var event = new EventStreamFileReader.Event();
+            int events = 0;
+            while (reader.hasRemaining()) {
+                final byte typeDelimiter = reader.nextType();
+                if (typeDelimiter == EventStreamFileParser.TYPE_PREV_HASH) {
+                    reader.readPrevHash();
+                    continue;
+                }
+                assertTrue(reader.readEvent(event, typeDelimiter == STREAM_EVENT_START_NO_TRANS_WITH_VERSION));
+                final var expected = written.get(events++);
+                assertAll(
+                        () -> assertEquals(expected.creatorId, event.getCreatorId())
+                        ,() -> assertEquals(expected.creatorSeq, event.getCreatorSeq())
+                        ,() -> assertEquals(expected.otherId, event.getOtherId())
+                        ,() -> assertEquals(expected.otherSeq, event.getOtherSeq())
+                        ,() -> assertEquals(expected.selfParentGen, event.getSelfParentGen())
+                        ,() -> assertEquals(expected.otherParentGen, event.getOtherParentGen())
+                        ,() -> assertArrayEquals(expected.selfParentHash, event.getSelfParentHash())
+                        ,() -> assertArrayEquals(expected.otherParentHash, event.getOtherParentHash())
+                        ,() -> assertEquals(expected.txsBytesCount, event.getTxsBytesCount())
+                        ,() -> assertEquals(expected.platformTxCount, event.getPlatformTxCount())
+                        ,() -> assertEquals(expected.appTxCount, event.getAppTxCount())
+                        ,() -> assertEquals(expected.timeCreatedNanos, event.getTimeCreatedNanos())
+                        ,() -> assertArrayEquals(expected.hash, event.getHash())
+                        ,() -> assertEquals(expected.consensusTimestampNanos, event.getConsensusTimestampNanos())
+                        ,() -> assertEquals(expected.consensusOrder, event.getConsensusOrder())
+                );
+            }
+            final var fileHash = reader.getFileHash();
+            final var expectedFileHash = streamFileHash(file);
+            final var eventsRead = events;
+            assertAll(
+                    () -> assertEquals(version, reader.getVersion())
+                    ,() -> assertEquals(written.size(), eventsRead)
+                    ,() -> assertArrayEquals(expectedFileHash, fileHash)
+            );
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void version2FileReadsLikeStream() throws Exception {
+        assertReadsLikeStream(2);
+    }
+
+    @Test
+    public void version3FileReadsLikeStream() throws Exception {
+        assertReadsLikeStream(3);
+    }
+}
@@ -0,0 +1,196 @@
+package com.hedera.parser;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.google.protobuf.ByteString;
+import com.hederahashgraph.api.proto.java.AccountAmount;
+import com.hederahashgraph.api.proto.java.AccountID;
+import com.hederahashgraph.api.proto.java.CryptoTransferTransactionBody;
+import com.hederahashgraph.api.proto.java.Duration;
+import com.hederahashgraph.api.proto.java.Timestamp;
+import com.hederahashgraph.api.proto.java.Transaction;
+import com.hederahashgraph.api.proto.java.TransactionBody;
+import com.hederahashgraph.api.proto.java.TransactionID;
+import com.hederahashgraph.api.proto.java.TransactionReceipt;
+import com.hederahashgraph.api.proto.java.TransactionRecord;
+import com.hederahashgraph.api.proto.java.TransferList;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading a generated record file of crypto transfers through a DataInputStream, as RecordFileParser used
+ * to, with reading it through the memory mapped {@link RecordFileReader}. Both parse every transaction and record and
+ * compute the file hash.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RecordFileReaderBenchmark {
+
+    @Param({"1000", "10000"})
+    public int transactions;
+
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = File.createTempFile("RecordFileReaderBenchmark", ".rcd");
+        file.deleteOnExit();
+        try (DataOutputStream dos = new DataOutputStream(new FileOutputStream(file))) {
+            dos.writeInt(RecordFileParser.RECORD_FORMAT_VERSION);
+            dos.writeInt(3);
+            dos.writeByte(RecordFileParser.TYPE_PREV_HASH);
+            dos.write(new byte[48]);
+            for (int i = 0; i < transactions; i++) {
+                dos.writeByte(RecordFileParser.TYPE_RECORD);
+                writeBytes(dos, transaction(i).toByteArray());
+                writeBytes(dos, record(i).toByteArray());
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public void stream(final Blackhole blackhole) throws Exception {
+        try (DataInputStream dis = new DataInputStream(new FileInputStream(file))) {
+            final MessageDigest md = MessageDigest.getInstance("SHA-384");
+            final MessageDigest mdForContent = MessageDigest.getInstance("SHA-384");
+            md.update(intToBytes(dis.readInt()));
+            md.update(intToBytes(dis.readInt()));
+            while (dis.available() != 0) {
+                final byte typeDelimiter = dis.readByte();
+                if (typeDelimiter == RecordFileParser.TYPE_PREV_HASH) {
+                    final byte[] prevHash = new byte[48];
+                    dis.readFully(prevHash);
+                    md.update(typeDelimiter);
+                    md.update(prevHash);
+                } else {
+                    mdForContent.update(typeDelimiter);
+                    byte[] rawBytes = readBytes(dis, mdForContent);
+                    blackhole.consume(Transaction.parseFrom(rawBytes));
+                    rawBytes = readBytes(dis, mdForContent);
+                    blackhole.consume(TransactionRecord.parseFrom(rawBytes));
+                }
+            }
+            md.update(mdForContent.digest());
+            blackhole.consume(md.digest());
+        }
+    }
+
+    @Benchmark
+    public void mapped(final Blackhole blackhole) throws Exception {
+        final RecordFileReader reader = new RecordFileReader(file);
+        while (reader.hasRemaining()) {
+            if (reader.nextType() == RecordFileParser.TYPE_PREV_HASH) {
+                blackhole.consume(reader.readPrevHash());
+            } else {
+                reader.readRecord();
+                blackhole.consume(reader.getTransaction());
+                blackhole.consume(reader.getRecord());
+            }
+        }
+        blackhole.consume(reader.getFileHash());
+    }
+
+    private static Transaction transaction(final int i) {
+        final TransactionBody body = TransactionBody.newBuilder()
+                .setTransactionID(transactionId(i))
+                .setNodeAccountID(account(3))
+                .setTransactionFee(100_000)
+                .setTransactionValidDuration(Duration.newBuilder().setSeconds(120))
+                .setMemo("benchmark " + i)
+                .setCryptoTransfer(CryptoTransferTransactionBody.newBuilder().setTransfers(transfers(i)))
+                .build();
+        return Transaction.newBuilder().setBodyBytes(body.toByteString()).build();
+    }
+
+    private static TransactionRecord record(final int i) {
+        return TransactionRecord.newBuilder()
+                .setReceipt(TransactionReceipt.newBuilder().setStatusValue(22))
+                .setTransactionHash(ByteString.copyFrom(new byte[48]))
+                .setConsensusTimestamp(Timestamp.newBuilder().setSeconds(1_568_000_000L + i))
+                .setTransactionID(transactionId(i))
+                .setMemo("benchmark " + i)
+                .setTransactionFee(84_000)
+                .setTransferList(transfers(i))
+                .build();
+    }
+
+    private static TransactionID transactionId(final int i) {
+        return TransactionID.newBuilder()
+                .setAccountID(account(1_000 + i))
+                .setTransactionValidStart(Timestamp.newBuilder().setSeconds(1_568_000_000L + i))
+                .build();
+    }
+
+    private static TransferList transfers(final int i) {
+        return TransferList.newBuilder()
+                .addAccountAmounts(AccountAmount.newBuilder().setAccountID(account(1_000 + i)).setAmount(-1_000))
+                .addAccountAmounts(AccountAmount.newBuilder().setAccountID(account(2_000 + i)).setAmount(1_000))
+                .build();
+    }
+
+    private static AccountID account(final long num) {
+        return AccountID.newBuilder().setAccountNum(num).build();
+    }
+
+    private static void writeBytes(final DataOutputStream dos, final byte[] bytes) throws IOException {
+        dos.writeInt(bytes.length);
+        dos.write(bytes);
+    }
+
+    private static byte[] readBytes(final DataInputStream dis, final MessageDigest md) throws IOException {
+        final int length = dis.readInt();
+        final byte[] rawBytes = new byte[length];
+        dis.readFully(rawBytes);
+        md.update(intToBytes(length));
+        md.update(rawBytes);
+        return rawBytes;
+    }
+
+    private static byte[] intToBytes(final int i) {
+        return ByteBuffer.allocate(4).putInt(i).array();
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RecordFileReaderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
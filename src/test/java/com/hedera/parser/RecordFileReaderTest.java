@@ -0,0 +1,173 @@
+package com.hedera.parser;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks RecordFileReader against the hash the parser computed with a DataInputStream before files were mapped.
+ */
+public class RecordFileReaderTest {
+    private static final int LEGACY_RECORD_FORMAT_VERSION = 1;
+
+    // writes a record file with random transaction and record bytes and a trailing signature
+    private static File writeRecordFile(final int recordFormatVersion, final int records, final byte[] prevHash)
+            throws IOException {
+        final var file = File.createTempFile("RecordFileReaderTest", ".rcd");
+        file.deleteOnExit();
+        final var random = new Random(recordFormatVersion * 31 + records);
+        try (var dos = new DataOutputStream(new FileOutputStream(file))) {
+            dos.writeInt(recordFormatVersion);
+            dos.writeInt(3);
+            dos.writeByte(RecordFileParser.TYPE_PREV_HASH);
+            dos.write(prevHash);
+            for (int i = 0; i < records; i++) {
+                dos.writeByte(RecordFileParser.TYPE_RECORD);
+                for (int part = 0; part < 2; part++) {
+                    final var bytes = new byte[random.nextInt(300)];
+                    random.nextBytes(bytes);
+                    dos.writeInt(bytes.length);
+                    dos.write(bytes);
+                }
+            }
+            final var signature = new byte[384];
+            random.nextBytes(signature);
+            dos.writeByte(RecordFileParser.TYPE_SIGNATURE);
+            dos.writeInt(signature.length);
+            dos.write(signature);
+        }
+        return file;
+    }
+
+    // the file hash as computed by the DataInputStream parser
+    private static byte[] streamFileHash(final File file) throws Exception {
+        final var md = MessageDigest.getInstance("SHA-384");
+        final var mdForContent = MessageDigest.getInstance("SHA-384");
+        try (var dis = new DataInputStream(new FileInputStream(file))) {
+            final int recordFormatVersion = dis.readInt();
+            final int version = dis.readInt();
+            md.update(intBytes(recordFormatVersion));
+            md.update(intBytes(version));
+            while (dis.available() != 0) {
+                final byte typeDelimiter = dis.readByte();
+                if (typeDelimiter == RecordFileParser.TYPE_PREV_HASH) {
+                    final var prevHash = new byte[48];
+                    dis.readFully(prevHash);
+                    md.update(typeDelimiter);
+                    md.update(prevHash);
+                } else if (typeDelimiter == RecordFileParser.TYPE_RECORD) {
+                    final var digest = recordFormatVersion >= RecordFileParser.RECORD_FORMAT_VERSION ? mdForContent : md;
+                    digest.update(typeDelimiter);
+                    for (int part = 0; part < 2; part++) {
+                        final var bytes = new byte[dis.readInt()];
+                        dis.readFully(bytes);
+                        digest.update(intBytes(bytes.length));
+                        digest.update(bytes);
+                    }
+                } else {
+                    dis.readFully(new byte[dis.readInt()]);
+                }
+            }
+        }
+        if (recordFormatVersion(file) >= RecordFileParser.RECORD_FORMAT_VERSION) {
+            md.update(mdForContent.digest());
+        }
+        return md.digest();
+    }
+
+    private static int recordFormatVersion(final File file) throws IOException {
+        try (var dis = new DataInputStream(new FileInputStream(file))) {
+            return dis.readInt();
+        }
+    }
+
+    private static byte[] intBytes(final int i) {
+        return ByteBuffer.allocate(4).putInt(i).array();
+    }
+
+    private static void assertReadsLikeStream(final int recordFormatVersion, final int records) throws Exception {
+        final var prevHash = new byte[48];
+        new Random(records).nextBytes(prevHash);
+        final var file = writeRecordFile(recordFormatVersion, records, prevHash);
+        try {
+            final var reader = new RecordFileReader(file);
+            byte[] readPrevHash = null;
+            int readRecords = 0;
+            int signatureLength = 0;
+            while (reader.hasRemaining()) {
+                final byte typeDelimiter = reader.nextType();
+                if (typeDelimiter == RecordFileParser.TYPE_PREV_HASH) {
+                    readPrevHash = reader.readPrevHash();
+                } else if (typeDelimiter == RecordFileParser.TYPE_RECORD) {
+                    reader.readRawRecord();
+                    readRecords++;
+                } else {
+                    signatureLength = reader.readSignature().length;
+                }
+            }
+            final var prevHashRead = readPrevHash;
+            final var recordsRead = readRecords;
+            final var signatureLengthRead = signatureLength;
+            final var fileHash = reader.getFileHash();
+            final var expectedFileHash = streamFileHash(file);
+            assertAll(
+                    () -> assertEquals(recordFormatVersion, reader.getRecordFormatVersion())
+                    ,() -> assertEquals(3, reader.getVersion())
+                    ,() -> assertArrayEquals(prevHash, prevHashRead)
+                    ,() -> assertEquals(records, recordsRead)
+                    ,() -> assertEquals(384, signatureLengthRead)
+                    ,() -> assertArrayEquals(expectedFileHash, fileHash)
+            );
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void legacyFileHashMatchesStreamHash() throws Exception {
+        assertReadsLikeStream(LEGACY_RECORD_FORMAT_VERSION, 50);
+    }
+
+    @Test
+    public void fileHashMatchesStreamHash() throws Exception {
+        assertReadsLikeStream(RecordFileParser.RECORD_FORMAT_VERSION, 50);
+    }
+
+    @Test
+    public void fileWithoutRecordsHashMatchesStreamHash() throws Exception {
+        assertAll(
+                () -> assertReadsLikeStream(LEGACY_RECORD_FORMAT_VERSION, 0)
+                ,() -> assertReadsLikeStream(RecordFileParser.RECORD_FORMAT_VERSION, 0)
+        );
+    }
+}
@@ -0,0 +1,93 @@
+package com.hedera.recordFileLogger;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CopyRecordWriterTest {
+    private CopyRecordWriter.CopyTable getCut() {
+        return new CopyRecordWriter.CopyTable("t_test", "a, b");
+    }
+
+    private String text(final CopyRecordWriter.CopyTable table) {
+        return new String(table.bytes(), StandardCharsets.US_ASCII);
+    }
+
+    static Stream<Arguments> longValueSource() throws Throwable {
+        return Stream.of(
+                Arguments.of(0L, "0")
+                ,Arguments.of(7L, "7")
+                ,Arguments.of(10L, "10")
+                ,Arguments.of(1_568_000_000_123_456_789L, "1568000000123456789")
+                ,Arguments.of(-42L, "-42")
+                ,Arguments.of(Long.MAX_VALUE, "9223372036854775807")
+                ,Arguments.of(Long.MIN_VALUE, "-9223372036854775808")
+        );
+    }
+
+    @ParameterizedTest(name="longValue({0})")
+    @MethodSource("longValueSource")
+    public void longValue(final long value, final String expected) {
+        final var cut = getCut();
+        cut.value(value).endRow();
+        assertEquals(expected + "\n", text(cut));
+    }
+
+    @Test
+    public void rowFormat() {
+        final var cut = getCut();
+        cut.value(1).value(new byte[] {0x00, 0x1f, (byte) 0xff}).endRow();
+        cut.value(2).value((byte[]) null).endRow();
+        cut.nullValue().value(new byte[0]).endRow();
+        assertAll(
+                () -> assertEquals("1\t\\\\x001fff\n2\t\\N\n\\N\t\\\\x\n", text(cut))
+                ,() -> assertEquals(3, cut.rows())
+        );
+    }
+
+    @Test
+    public void clear() {
+        final var cut = getCut();
+        cut.value(1).value(2);
+        cut.clear();
+        cut.value(3).endRow();
+        assertAll(
+                () -> assertEquals("3\n", text(cut))
+                ,() -> assertEquals(1, cut.rows())
+        );
+    }
+
+    @Test
+    public void growsBuffer() {
+        final var cut = getCut();
+        final var data = new byte[10_000];
+        cut.value(1).value(data).endRow();
+        assertEquals(2 + 3 + data.length * 2 + 1, cut.size());
+    }
+}
@@ -0,0 +1,130 @@
+package com.hedera.recordFileLogger;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityIdCacheTest {
+    private EntityIdCache getCut(final int capacity) {
+        return new EntityIdCache(capacity);
+    }
+
+    static Stream<Arguments> keyRoundTripSource() throws Throwable {
+        return Stream.of(
+                Arguments.of(0L, 0L, 2L, 1)
+                ,Arguments.of(0L, 0L, 4_294_967_295L, 3)
+                ,Arguments.of(2047L, 65_535L, 1_000L, 15)
+        );
+    }
+
+    @ParameterizedTest(name="keyRoundTrip({0},{1},{2},{3})")
+    @MethodSource("keyRoundTripSource")
+    public void keyRoundTrip(final long shard, final long realm, final long num, final int type) {
+        final var key = EntityIdCache.key(shard, realm, num, type);
+        assertAll(
+                () -> assertTrue(key >= 0)
+                ,() -> assertEquals(shard, EntityIdCache.shard(key))
+                ,() -> assertEquals(realm, EntityIdCache.realm(key))
+                ,() -> assertEquals(num, EntityIdCache.num(key))
+                ,() -> assertEquals(type, EntityIdCache.type(key))
+        );
+    }
+
+    static Stream<Arguments> keyOutOfRangeSource() throws Throwable {
+        return Stream.of(
+                Arguments.of(2048L, 0L, 1L, 1)
+                ,Arguments.of(0L, 65_536L, 1L, 1)
+                ,Arguments.of(0L, 0L, 4_294_967_296L, 1)
+                ,Arguments.of(0L, 0L, 1L, 16)
+                ,Arguments.of(-1L, 0L, 1L, 1)
+        );
+    }
+
+    @ParameterizedTest(name="keyOutOfRange({0},{1},{2},{3})")
+    @MethodSource("keyOutOfRangeSource")
+    public void keyOutOfRange(final long shard, final long realm, final long num, final int type) {
+        final var cut = getCut(16);
+        final var key = EntityIdCache.key(shard, realm, num, type);
+        cut.put(key, 1L);
+        assertAll(
+                () -> assertEquals(EntityIdCache.NO_KEY, key)
+                ,() -> assertEquals(EntityIdCache.NOT_FOUND, cut.get(key))
+                ,() -> assertEquals(0, cut.size())
+        );
+    }
+
+    @Test
+    public void putGetRemove() {
+        final var cut = getCut(16);
+        final var key = EntityIdCache.key(0, 0, 98, 1);
+        assertEquals(EntityIdCache.NOT_FOUND, cut.get(key));
+        cut.put(key, 42L);
+        assertEquals(42L, cut.get(key));
+        cut.put(key, 43L);
+        assertEquals(43L, cut.get(key));
+        assertEquals(1, cut.size());
+        cut.remove(key);
+        assertAll(
+                () -> assertEquals(EntityIdCache.NOT_FOUND, cut.get(key))
+                ,() -> assertEquals(0, cut.size())
+                ,() -> assertEquals(2, cut.getHits())
+                ,() -> assertEquals(2, cut.getMisses())
+        );
+    }
+
+    @Test
+    public void bounded() {
+        final var cut = getCut(64);
+        final int count = 10_000;
+        for (int i = 0; i < count; i++) {
+            cut.put(EntityIdCache.key(0, 0, i, 1), i);
+        }
+        assertAll(
+                () -> assertEquals(64, cut.capacity())
+                ,() -> assertEquals(64, cut.size())
+                ,() -> assertEquals(count - 64, cut.getEvictions())
+        );
+        for (int i = 0; i < count; i++) {
+            final var id = cut.get(EntityIdCache.key(0, 0, i, 1));
+            assertTrue(id == EntityIdCache.NOT_FOUND || id == i);
+        }
+        assertEquals(count, cut.getHits() + cut.getMisses());
+    }
+
+    @Test
+    public void referencedEntrySurvivesEviction() {
+        final var cut = getCut(4);
+        final var hot = EntityIdCache.key(0, 0, 3, 1);
+        cut.put(hot, 3L);
+        for (int i = 1000; i < 1100; i++) {
+            assertEquals(3L, cut.get(hot));
+            cut.put(EntityIdCache.key(0, 0, i, 1), i);
+        }
+        assertEquals(3L, cut.get(hot));
+    }
+}
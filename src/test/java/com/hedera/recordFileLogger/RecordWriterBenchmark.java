@@ -0,0 +1,131 @@
+package com.hedera.recordFileLogger;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.hedera.configLoader.ConfigLoader;
+import com.hedera.configLoader.ConfigLoader.RECORD_WRITER;
+import com.hedera.databaseUtilities.DatabaseUtilities;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the BATCH and COPY record writers writing transactions with their transfer lists to the database
+ * configured in config.json. Every invocation is rolled back, the database is left as it was.
+ * Run main() from the test classpath with the database up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RecordWriterBenchmark {
+    private static final byte[] MEMO = "benchmark".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"BATCH", "COPY"})
+    public RECORD_WRITER writer;
+
+    @Param({"1000", "10000"})
+    public int transactions;
+
+    @Param({"3"})
+    public int transfers;
+
+    private Connection connection;
+    private Savepoint savepoint;
+    private long recordFileId;
+    private long accountId;
+    private int transactionTypeId;
+    private int resultId;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        connection = DatabaseUtilities.getConnection();
+        connection.setAutoCommit(false);
+
+        try (CallableStatement fileCreate = connection.prepareCall("{? = call f_file_create( ? ) }")) {
+            fileCreate.registerOutParameter(1, Types.BIGINT);
+            fileCreate.setString(2, "RecordWriterBenchmark-" + System.nanoTime());
+            fileCreate.execute();
+            recordFileId = fileCreate.getLong(1);
+        }
+        accountId = selectLong("INSERT INTO t_entities (entity_shard, entity_realm, entity_num, fk_entity_type_id)"
+                + " SELECT 0, 0, 2, id FROM t_entity_types WHERE name = 'account'"
+                + " ON CONFLICT (entity_shard, entity_realm, entity_num, fk_entity_type_id)"
+                + " DO UPDATE SET entity_num = excluded.entity_num"
+                + " RETURNING id");
+        transactionTypeId = (int) selectLong("SELECT MIN(id) FROM t_transaction_types");
+        resultId = (int) selectLong("SELECT MIN(id) FROM t_transaction_results");
+
+        savepoint = connection.setSavepoint();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.rollback();
+        connection.close();
+    }
+
+    @Benchmark
+    public void write() throws SQLException {
+        final RecordWriter recordWriter = writer == RECORD_WRITER.COPY
+                ? new CopyRecordWriter(connection, ConfigLoader.getRecordCopyBufferSize())
+                : new BatchRecordWriter(connection);
+        try {
+            for (int i = 0; i < transactions; i++) {
+                // far above the ids and timestamps of stored transactions
+                final long id = Long.MAX_VALUE - i;
+                recordWriter.addTransaction(id, accountId, MEMO, id, transactionTypeId, accountId, resultId
+                        , id / 1_000_000_000L, id % 1_000_000_000L, id, 0, 100_000, 0, recordFileId);
+                for (int t = 0; t < transfers; t++) {
+                    recordWriter.addTransfer(id, accountId, t == 0 ? -1_000L * (transfers - 1) : 1_000L);
+                }
+                recordWriter.endRecord();
+            }
+            recordWriter.flush();
+        } finally {
+            recordWriter.close();
+            connection.rollback(savepoint);
+        }
+    }
+
+    private long selectLong(final String sql) throws SQLException {
+        try (var statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RecordWriterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,97 @@
+package com.hedera.signatureVerifier;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SignatureVerificationCacheTest {
+    private static final String NODE = "0.0.3";
+    private static final byte[] HASH = {1, 2, 3};
+    private static final byte[] SIGNATURE = {4, 5, 6};
+
+    private static PublicKey publicKey;
+    private static PublicKey rotatedPublicKey;
+
+    @BeforeAll
+    static void generateKeys() throws NoSuchAlgorithmException {
+        final var generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        publicKey = generator.generateKeyPair().getPublic();
+        rotatedPublicKey = generator.generateKeyPair().getPublic();
+    }
+
+    private SignatureVerificationCache getCut(final int capacity) {
+        return new SignatureVerificationCache(capacity);
+    }
+
+    @Test
+    public void cachedOutcome() {
+        final var cut = getCut(4);
+        cut.put(NODE, HASH, publicKey, SIGNATURE, true);
+        cut.put("0.0.4", HASH, publicKey, SIGNATURE, false);
+        assertAll(
+                () -> assertEquals(Boolean.TRUE, cut.get(NODE, HASH.clone(), publicKey, SIGNATURE.clone()))
+                ,() -> assertEquals(Boolean.FALSE, cut.get("0.0.4", HASH, publicKey, SIGNATURE))
+                ,() -> assertNull(cut.get("0.0.5", HASH, publicKey, SIGNATURE))
+                ,() -> assertNull(cut.get(NODE, new byte[] {1, 2, 4}, publicKey, SIGNATURE))
+                ,() -> assertEquals(2, cut.size())
+        );
+    }
+
+    @Test
+    public void rotatedKeyOrOtherSignatureMisses() {
+        final var cut = getCut(4);
+        cut.put(NODE, HASH, publicKey, SIGNATURE, true);
+        assertAll(
+                () -> assertNull(cut.get(NODE, HASH, rotatedPublicKey, SIGNATURE))
+                ,() -> assertNull(cut.get(NODE, HASH, publicKey, new byte[] {4, 5, 7}))
+                ,() -> assertEquals(0, cut.getHits())
+                ,() -> assertEquals(2, cut.getMisses())
+        );
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        final var cut = getCut(2);
+        cut.put("0.0.3", HASH, publicKey, SIGNATURE, true);
+        cut.put("0.0.4", HASH, publicKey, SIGNATURE, true);
+        cut.get("0.0.3", HASH, publicKey, SIGNATURE);
+        cut.put("0.0.5", HASH, publicKey, SIGNATURE, true);
+        assertAll(
+                () -> assertEquals(2, cut.size())
+                ,() -> assertNotNull(cut.get("0.0.3", HASH, publicKey, SIGNATURE))
+                ,() -> assertNull(cut.get("0.0.4", HASH, publicKey, SIGNATURE))
+                ,() -> assertNotNull(cut.get("0.0.5", HASH, publicKey, SIGNATURE))
+        );
+    }
+
+    @Test
+    public void invalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> getCut(0));
+    }
+}
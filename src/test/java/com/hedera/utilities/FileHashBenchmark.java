@@ -0,0 +1,80 @@
+package com.hedera.utilities;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares Utility.getFileHash, which hashes files in chunks with a per thread digest and direct buffer, with hashing
+ * the whole file read into a byte array, as getFileHash used to. Run with -prof gc to compare the allocation rates.
+ * Run main() from the test classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class FileHashBenchmark {
+    // a small record file, a large record file, and a balance file of a few million accounts
+    @Param({"4096", "4194304", "134217728"})
+    public int fileSize;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = Files.createTempFile("FileHashBenchmark", ".rcd");
+        final byte[] bytes = new byte[fileSize];
+        new Random(fileSize).nextBytes(bytes);
+        Files.write(file, bytes);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public byte[] readAllBytes() throws IOException, NoSuchAlgorithmException {
+        return MessageDigest.getInstance("SHA-384").digest(Files.readAllBytes(file));
+    }
+
+    @Benchmark
+    public byte[] getFileHash() {
+        return Utility.getFileHash(file.toString());
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FileHashBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,109 @@
+package com.hedera.utilities;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that Utility.getFileHash, which reads files in chunks with a digest reused by the thread, hashes files like
+ * SHA-384 of all their bytes.
+ */
+public class FileHashTest {
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private static File writeFile(final int size) throws IOException {
+        final var file = File.createTempFile("FileHashTest", ".rcd");
+        file.deleteOnExit();
+        final var bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        Files.write(file.toPath(), bytes);
+        return file;
+    }
+
+    private static byte[] sha384(final File file) throws Exception {
+        return MessageDigest.getInstance("SHA-384").digest(Files.readAllBytes(file.toPath()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MessageDigest threadDigest() throws Exception {
+        final var field = Utility.class.getDeclaredField("fileHashDigests");
+        field.setAccessible(true);
+        return ((ThreadLocal<MessageDigest>) field.get(null)).get();
+    }
+
+    private static void assertHashes(final int size) throws Exception {
+        final var file = writeFile(size);
+        assertArrayEquals(sha384(file), Utility.getFileHash(file.getPath()), "file of " + size + " bytes");
+    }
+
+    @Test
+    void emptyFile() throws Exception {
+        assertHashes(0);
+    }
+
+    @Test
+    void fileSmallerThanAChunk() throws Exception {
+        assertHashes(1000);
+    }
+
+    @Test
+    void fileOfExactlyOneChunk() throws Exception {
+        assertHashes(CHUNK_SIZE);
+    }
+
+    @Test
+    void fileOfSeveralChunks() throws Exception {
+        assertHashes(CHUNK_SIZE * 3);
+        assertHashes(CHUNK_SIZE * 3 + 17);
+    }
+
+    @Test
+    void digestIsReusedBetweenFiles() throws Exception {
+        final var first = writeFile(CHUNK_SIZE + 1);
+        final var second = writeFile(12345);
+        assertArrayEquals(sha384(first), Utility.getFileHash(first.getPath()));
+        assertArrayEquals(sha384(second), Utility.getFileHash(second.getPath()));
+        assertArrayEquals(sha384(first), Utility.getFileHash(first.getPath()));
+    }
+
+    @Test
+    void digestIsResetAfterAReadFailure() throws Exception {
+        final var directory = Files.createTempDirectory("FileHashTest").toFile();
+        directory.deleteOnExit();
+        final var file = writeFile(CHUNK_SIZE * 2 + 5);
+
+        // a failure can happen after some chunks were digested, which the failing reads here are made to look like
+        threadDigest().update(new byte[100]);
+        assertNull(Utility.getFileHash(directory.getPath()));
+        assertArrayEquals(sha384(file), Utility.getFileHash(file.getPath()));
+        threadDigest().update(new byte[100]);
+        assertNull(Utility.getFileHash(new File(directory, "missing.rcd").getPath()));
+        assertArrayEquals(sha384(file), Utility.getFileHash(file.getPath()));
+    }
+}